@@ -18,6 +18,36 @@ public class FileConstant {
      */
     public static final String DEFAULT_UPLOAD_PATH = "uploads";
     
+    /**
+     * 上传临时目录（位于上传根目录下，保证与最终存储位置在同一文件系统，便于原子移动）
+     */
+    public static final String TEMP_UPLOAD_DIR = ".tmp";
+    
+    /**
+     * 分片上传的分片存放目录（位于上传根目录下）
+     */
+    public static final String CHUNK_UPLOAD_DIR = ".chunks";
+    
+    /**
+     * 内容存储目录（位于上传根目录下），物理文件按内容哈希分层存放
+     */
+    public static final String BLOB_STORAGE_DIR = "blobs";
+    
+    /**
+     * 预压缩文件的后缀，与原文件存放在同一目录
+     */
+    public static final String GZIP_SIDECAR_SUFFIX = ".gz";
+    
+    /**
+     * 分片上传允许的最小分片大小（1MB），最后一个分片除外
+     */
+    public static final long MIN_CHUNK_SIZE = 1024 * 1024L;
+    
+    /**
+     * 流式读写缓冲区大小（64KB）
+     */
+    public static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    
     /**
      * 文件名分隔符
      */
@@ -24,6 +24,15 @@ public enum ResultCode {
     FILE_TYPE_NOT_SUPPORTED(1004, "不支持的文件类型"),
     FILE_SIZE_EXCEED(1005, "文件大小超出限制"),
     FILE_NAME_INVALID(1006, "文件名不合法"),
+    UPLOAD_SESSION_NOT_FOUND(1007, "上传会话不存在或已过期"),
+    UPLOAD_CHUNK_INVALID(1008, "分片不合法"),
+    UPLOAD_CHUNKS_INCOMPLETE(1009, "分片尚未全部上传"),
+    UPLOAD_SESSION_BUSY(1010, "上传会话正在合并中"),
+    DOWNLOAD_ZIP_TOO_LARGE(1011, "打包下载的文件数量超出限制"),
+    DOWNLOAD_TOO_MANY_REQUESTS(1012, "同时进行的下载过多，请稍后重试"),
+    DOWNLOAD_SERVER_BUSY(1013, "服务器下载繁忙，请稍后重试"),
+    DOWNLOAD_URL_INVALID(1014, "下载链接无效"),
+    DOWNLOAD_URL_EXPIRED(1015, "下载链接已过期"),
     
     // 目录相关
     DIRECTORY_NOT_FOUND(2001, "目录不存在"),
@@ -33,6 +42,10 @@ public enum ResultCode {
     DIRECTORY_NAME_INVALID(2005, "目录名不合法"),
     DIRECTORY_NAME_DUPLICATE(2006, "目录名称重复"),
     DIRECTORY_HAS_CHILDREN(2007, "目录下存在子目录，无法删除"),
+    DIRECTORY_MOVE_INTO_SUBTREE(2008, "不能将目录移动到自身或其子目录下"),
+    DIRECTORY_ROOT_NOT_DELETABLE(2009, "根目录不能删除"),
+    DIRECTORY_DELETE_JOB_NOT_FOUND(2010, "目录删除任务不存在或已过期"),
+    DIRECTORY_ROOT_NOT_MOVABLE(2011, "根目录不能移动"),
     
     // 系统相关
     SYSTEM_ERROR(9999, "系统异常");
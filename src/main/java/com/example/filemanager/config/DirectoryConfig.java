@@ -0,0 +1,67 @@
+package com.example.filemanager.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 目录配置类，对应配置项 file.directory
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+@Configuration
+@ConfigurationProperties(prefix = "file.directory")
+public class DirectoryConfig {
+    
+    /**
+     * 目录树内存索引的全量刷新间隔（毫秒）
+     */
+    private long indexRefreshInterval = 5 * 60 * 1000L;
+    
+    /**
+     * 递归删除时每个事务处理的目录数和文件数
+     */
+    private int deleteBatchSize = 500;
+    
+    /**
+     * 递归删除的目录数与文件数之和不超过该值时在请求线程内同步完成，否则转为后台任务
+     */
+    private int deleteSyncLimit = 1000;
+    
+    /**
+     * 已结束的递归删除任务保留时间（秒），过期后无法再查询进度
+     */
+    private long deleteJobRetention = 60 * 60L;
+    
+    public long getIndexRefreshInterval() {
+        return indexRefreshInterval;
+    }
+    
+    public void setIndexRefreshInterval(long indexRefreshInterval) {
+        this.indexRefreshInterval = indexRefreshInterval;
+    }
+    
+    public int getDeleteBatchSize() {
+        return deleteBatchSize;
+    }
+    
+    public void setDeleteBatchSize(int deleteBatchSize) {
+        this.deleteBatchSize = deleteBatchSize;
+    }
+    
+    public int getDeleteSyncLimit() {
+        return deleteSyncLimit;
+    }
+    
+    public void setDeleteSyncLimit(int deleteSyncLimit) {
+        this.deleteSyncLimit = deleteSyncLimit;
+    }
+    
+    public long getDeleteJobRetention() {
+        return deleteJobRetention;
+    }
+    
+    public void setDeleteJobRetention(long deleteJobRetention) {
+        this.deleteJobRetention = deleteJobRetention;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.filemanager.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 线程池配置类
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+@Configuration
+public class ExecutorConfig {
+    
+    /**
+     * 批量上传时并发写入文件的线程数
+     */
+    @Value("${file.upload.batch-concurrency:8}")
+    private int uploadConcurrency;
+    
+    /**
+     * 批量上传线程池，用于并发计算MD5并写入临时文件
+     * <p>
+     * 队列满时由提交线程自己执行，天然对请求线程形成背压。
+     */
+    @Bean("uploadTaskExecutor")
+    public ThreadPoolTaskExecutor uploadTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(uploadConcurrency);
+        executor.setMaxPoolSize(uploadConcurrency);
+        executor.setQueueCapacity(uploadConcurrency * 64);
+        executor.setThreadNamePrefix("upload-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * 流式下载线程池，慢速客户端的下载在这里阻塞写出，不占用Tomcat工作线程
+     * <p>
+     * 同时进行的流式下载数由 {@code DownloadLimitService} 限制在线程数以内，
+     * 队列只用于吸收线程归还前的短暂重叠，不会积压任务；空闲线程超时回收。
+     * 下载接口通过 {@code WebAsyncTask} 指定本线程池和超时时间，不作为 Spring MVC 全局的异步线程池。
+     */
+    @Bean("downloadTaskExecutor")
+    public ThreadPoolTaskExecutor downloadTaskExecutor(FileDownloadConfig fileDownloadConfig) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(fileDownloadConfig.getMaxConcurrentStreams());
+        executor.setMaxPoolSize(fileDownloadConfig.getMaxConcurrentStreams());
+        executor.setQueueCapacity(fileDownloadConfig.getMaxConcurrentStreams());
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setKeepAliveSeconds(60);
+        executor.setThreadNamePrefix("download-");
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * 目录递归删除线程池，单线程依次执行后台删除任务
+     * <p>
+     * 删除按批提交短事务，串行执行避免多个大任务同时争抢数据库连接和行锁。
+     */
+    @Bean("directoryDeleteExecutor")
+    public ThreadPoolTaskExecutor directoryDeleteExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("directory-delete-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * 预压缩文件生成线程池，线程数和队列都较小
+     * <p>
+     * 不与批量上传共用线程池，避免大文件压缩占用上传线程；队列满时直接丢弃，
+     * 没有预压缩文件的下载退回实时压缩。
+     */
+    @Bean("gzipPrecomputeExecutor")
+    public ThreadPoolTaskExecutor gzipPrecomputeExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("gzip-precompute-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * 物理文件回收线程池，单线程处理
+     * <p>
+     * 只保留一个待执行的唤醒，多余的唤醒直接丢弃：正在执行的回收会处理完所有到期任务。
+     */
+    @Bean("reclaimTaskExecutor")
+    public ThreadPoolTaskExecutor reclaimTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("reclaim-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.filemanager.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 文件下载配置类，对应配置项 file.download
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+@Configuration
+@ConfigurationProperties(prefix = "file.download")
+public class FileDownloadConfig {
+    
+    /**
+     * 是否启用零拷贝下载（Tomcat sendfile），不支持时自动退回缓冲读写
+     */
+    private boolean sendfileEnabled = true;
+    
+    /**
+     * 使用零拷贝下载的最小文件大小（字节），更小的文件直接缓冲写出，默认48KB
+     */
+    private long sendfileMinSize = 48 * 1024L;
+    
+    /**
+     * 同时进行的流式下载上限（全局），也是下载线程池的线程数
+     * <p>
+     * 默认按1000个慢速客户端同时下载再留20%余量。每个进行中的下载占用一个阻塞在写出上的线程和
+     * 64KB缓冲区，线程栈实际使用的内存只有几十KB，1200个下载约占用200MB内存。
+     */
+    private int maxConcurrentStreams = 1200;
+    
+    /**
+     * 单个客户端（按IP）同时进行的流式下载上限
+     * <p>
+     * 客户端IP取自请求的远端地址，同一NAT出口后的用户共用这一上限；
+     * 部署在反向代理后需开启 {@code server.forward-headers-strategy}，否则所有用户都记为代理地址
+     */
+    private int maxConcurrentStreamsPerClient = 8;
+    
+    /**
+     * 流式下载的超时时间（毫秒），超时后连接被关闭，默认1小时；只作用于下载，不影响其他异步请求
+     */
+    private long streamTimeout = 60 * 60 * 1000L;
+    
+    /**
+     * 是否启用小文件内存缓存
+     */
+    private boolean memoryCacheEnabled = true;
+    
+    /**
+     * 小文件内存缓存的容量上限（字节），默认64MB
+     */
+    private long memoryCacheMaxSize = 64 * 1024 * 1024L;
+    
+    /**
+     * 可进入内存缓存的最大文件大小（字节），默认48KB
+     */
+    private long memoryCacheMaxFileSize = 48 * 1024L;
+    
+    /**
+     * 下载描述信息缓存的最大条目数
+     */
+    private long descriptorCacheSize = 10000;
+    
+    /**
+     * 下载描述信息缓存的有效期（秒）
+     */
+    private long descriptorCacheTtl = 600;
+    
+    /**
+     * 是否对文本类文件启用 gzip 压缩传输（客户端声明支持且不是 Range 请求时）
+     */
+    private boolean gzipEnabled = true;
+    
+    /**
+     * 启用 gzip 压缩传输的最小文件大小（字节），更小的文件压缩收益低于开销
+     */
+    private long gzipMinSize = 1024;
+    
+    /**
+     * 上传时生成预压缩文件的最小文件大小（字节），更小的文件下载时实时压缩，默认64KB
+     */
+    private long gzipPrecomputeMinSize = 64 * 1024L;
+    
+    /**
+     * 签名下载链接的HMAC密钥，多节点部署时必须配置相同的值；未配置时启动时随机生成
+     */
+    private String signingSecret;
+    
+    /**
+     * 签名下载链接的有效期（秒）
+     */
+    private long signedUrlTtl = 300;
+    
+    /**
+     * 签名下载链接的基础地址（如独立下载节点的域名），未配置时使用当前请求的地址
+     */
+    private String signedUrlBase;
+    
+    /**
+     * 单次打包下载的最大文件数
+     */
+    private int zipMaxFiles = 10000;
+    
+    /**
+     * 未单独配置的文件类型使用的 Cache-Control，默认每次使用前向服务端验证（命中时返回304）
+     */
+    private String defaultCacheControl = "no-cache";
+    
+    /**
+     * 按文件类型（文档、图片、视频等）配置的 Cache-Control
+     */
+    private Map<String, String> cacheControl = new HashMap<>();
+    
+    /**
+     * 获取文件类型对应的 Cache-Control
+     * 
+     * @param fileType 文件类型
+     * @return Cache-Control 响应头的值
+     */
+    public String getCacheControl(String fileType) {
+        if (fileType == null) {
+            return defaultCacheControl;
+        }
+        return cacheControl.getOrDefault(fileType, defaultCacheControl);
+    }
+    
+    public boolean isSendfileEnabled() {
+        return sendfileEnabled;
+    }
+    
+    public void setSendfileEnabled(boolean sendfileEnabled) {
+        this.sendfileEnabled = sendfileEnabled;
+    }
+    
+    public long getSendfileMinSize() {
+        return sendfileMinSize;
+    }
+    
+    public void setSendfileMinSize(long sendfileMinSize) {
+        this.sendfileMinSize = sendfileMinSize;
+    }
+    
+    public int getMaxConcurrentStreams() {
+        return maxConcurrentStreams;
+    }
+    
+    public void setMaxConcurrentStreams(int maxConcurrentStreams) {
+        this.maxConcurrentStreams = maxConcurrentStreams;
+    }
+    
+    public int getMaxConcurrentStreamsPerClient() {
+        return maxConcurrentStreamsPerClient;
+    }
+    
+    public void setMaxConcurrentStreamsPerClient(int maxConcurrentStreamsPerClient) {
+        this.maxConcurrentStreamsPerClient = maxConcurrentStreamsPerClient;
+    }
+    
+    public long getStreamTimeout() {
+        return streamTimeout;
+    }
+    
+    public void setStreamTimeout(long streamTimeout) {
+        this.streamTimeout = streamTimeout;
+    }
+    
+    public boolean isMemoryCacheEnabled() {
+        return memoryCacheEnabled;
+    }
+    
+    public void setMemoryCacheEnabled(boolean memoryCacheEnabled) {
+        this.memoryCacheEnabled = memoryCacheEnabled;
+    }
+    
+    public long getMemoryCacheMaxSize() {
+        return memoryCacheMaxSize;
+    }
+    
+    public void setMemoryCacheMaxSize(long memoryCacheMaxSize) {
+        this.memoryCacheMaxSize = memoryCacheMaxSize;
+    }
+    
+    public long getMemoryCacheMaxFileSize() {
+        return memoryCacheMaxFileSize;
+    }
+    
+    public void setMemoryCacheMaxFileSize(long memoryCacheMaxFileSize) {
+        this.memoryCacheMaxFileSize = memoryCacheMaxFileSize;
+    }
+    
+    public long getDescriptorCacheSize() {
+        return descriptorCacheSize;
+    }
+    
+    public void setDescriptorCacheSize(long descriptorCacheSize) {
+        this.descriptorCacheSize = descriptorCacheSize;
+    }
+    
+    public long getDescriptorCacheTtl() {
+        return descriptorCacheTtl;
+    }
+    
+    public void setDescriptorCacheTtl(long descriptorCacheTtl) {
+        this.descriptorCacheTtl = descriptorCacheTtl;
+    }
+    
+    public boolean isGzipEnabled() {
+        return gzipEnabled;
+    }
+    
+    public void setGzipEnabled(boolean gzipEnabled) {
+        this.gzipEnabled = gzipEnabled;
+    }
+    
+    public long getGzipMinSize() {
+        return gzipMinSize;
+    }
+    
+    public void setGzipMinSize(long gzipMinSize) {
+        this.gzipMinSize = gzipMinSize;
+    }
+    
+    public long getGzipPrecomputeMinSize() {
+        return gzipPrecomputeMinSize;
+    }
+    
+    public void setGzipPrecomputeMinSize(long gzipPrecomputeMinSize) {
+        this.gzipPrecomputeMinSize = gzipPrecomputeMinSize;
+    }
+    
+    public String getSigningSecret() {
+        return signingSecret;
+    }
+    
+    public void setSigningSecret(String signingSecret) {
+        this.signingSecret = signingSecret;
+    }
+    
+    public long getSignedUrlTtl() {
+        return signedUrlTtl;
+    }
+    
+    public void setSignedUrlTtl(long signedUrlTtl) {
+        this.signedUrlTtl = signedUrlTtl;
+    }
+    
+    public String getSignedUrlBase() {
+        return signedUrlBase;
+    }
+    
+    public void setSignedUrlBase(String signedUrlBase) {
+        this.signedUrlBase = signedUrlBase;
+    }
+    
+    public int getZipMaxFiles() {
+        return zipMaxFiles;
+    }
+    
+    public void setZipMaxFiles(int zipMaxFiles) {
+        this.zipMaxFiles = zipMaxFiles;
+    }
+    
+    public String getDefaultCacheControl() {
+        return defaultCacheControl;
+    }
+    
+    public void setDefaultCacheControl(String defaultCacheControl) {
+        this.defaultCacheControl = defaultCacheControl;
+    }
+    
+    public Map<String, String> getCacheControl() {
+        return cacheControl;
+    }
+    
+    public void setCacheControl(Map<String, String> cacheControl) {
+        this.cacheControl = cacheControl;
+    }
+}
@@ -37,6 +37,36 @@ public class FileStorageConfig {
     @Value("${file.upload.allowed-types:*}")
     private String allowedTypes;
     
+    /**
+     * 分片上传的默认分片大小（默认5MB）
+     */
+    @Value("${file.upload.chunk-size:5242880}")
+    private long chunkSize;
+    
+    /**
+     * 分片上传允许的最大文件大小（默认20GB）
+     */
+    @Value("${file.upload.chunked-max-size:21474836480}")
+    private long maxChunkedFileSize;
+    
+    /**
+     * 流式上传允许的最大文件大小（默认20GB），不受multipart的100MB限制
+     */
+    @Value("${file.upload.stream-max-size:21474836480}")
+    private long maxStreamFileSize;
+    
+    /**
+     * 分片上传会话的过期时间（小时），超时未完成的会话会被清理
+     */
+    @Value("${file.upload.chunk-session-expire-hours:24}")
+    private int chunkSessionExpireHours;
+    
+    /**
+     * 物理文件回收任务每批处理的数量
+     */
+    @Value("${file.reclaim.batch-size:200}")
+    private int reclaimBatchSize;
+    
     @PostConstruct
     public void init() {
         try {
@@ -90,4 +120,44 @@ public class FileStorageConfig {
     public void setAllowedTypes(String allowedTypes) {
         this.allowedTypes = allowedTypes;
     }
+    
+    public long getChunkSize() {
+        return chunkSize;
+    }
+    
+    public void setChunkSize(long chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+    
+    public long getMaxChunkedFileSize() {
+        return maxChunkedFileSize;
+    }
+    
+    public void setMaxChunkedFileSize(long maxChunkedFileSize) {
+        this.maxChunkedFileSize = maxChunkedFileSize;
+    }
+    
+    public long getMaxStreamFileSize() {
+        return maxStreamFileSize;
+    }
+    
+    public void setMaxStreamFileSize(long maxStreamFileSize) {
+        this.maxStreamFileSize = maxStreamFileSize;
+    }
+    
+    public int getChunkSessionExpireHours() {
+        return chunkSessionExpireHours;
+    }
+    
+    public void setChunkSessionExpireHours(int chunkSessionExpireHours) {
+        this.chunkSessionExpireHours = chunkSessionExpireHours;
+    }
+    
+    public int getReclaimBatchSize() {
+        return reclaimBatchSize;
+    }
+    
+    public void setReclaimBatchSize(int reclaimBatchSize) {
+        this.reclaimBatchSize = reclaimBatchSize;
+    }
 } 
\ No newline at end of file
@@ -1,12 +1,15 @@
 package com.example.filemanager.controller;
 
+import com.example.filemanager.common.exception.BusinessException;
 import com.example.filemanager.common.result.Result;
 import com.example.filemanager.dto.request.DirectoryCreateDTO;
 import com.example.filemanager.dto.request.DirectoryMoveDTO;
 import com.example.filemanager.dto.request.DirectoryUpdateDTO;
 import com.example.filemanager.dto.response.DeleteResultDTO;
+import com.example.filemanager.dto.response.DirectoryDeleteJobDTO;
 import com.example.filemanager.dto.response.DirectoryResponseDTO;
 import com.example.filemanager.dto.response.PageResponseDTO;
+import com.example.filemanager.service.DirectoryDeleteService;
 import com.example.filemanager.service.DirectoryService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,6 +48,9 @@ public class DirectoryController {
     @Autowired
     private DirectoryService directoryService;
     
+    @Autowired
+    private DirectoryDeleteService directoryDeleteService;
+    
     /**
      * 获取所有目录列表
      * 
@@ -150,6 +156,36 @@ public class DirectoryController {
         }
     }
     
+    /**
+     * 获取目录子树（懒加载目录树时一次返回多层）
+     * 
+     * @param id 目录ID
+     * @param depth 向下展开的层数，默认为1（只包含直接子目录）
+     * @return 目录子树
+     */
+    @GetMapping("/{id}/subtree")
+    public Result<DirectoryResponseDTO> getDirectorySubtree(
+            @PathVariable Long id,
+            @RequestParam(value = "depth", defaultValue = "1") Integer depth) {
+        logger.info("接收到获取目录子树的请求，目录ID：{}，层数：{}", id, depth);
+        try {
+            // 限制展开层数
+            if (depth > 10) {
+                depth = 10;
+            }
+            if (depth < 1) {
+                depth = 1;
+            }
+            
+            DirectoryResponseDTO subtree = directoryService.getDirectorySubtree(id, depth);
+            logger.info("成功返回目录子树，目录名称：{}", subtree.getName());
+            return Result.success("获取目录子树成功", subtree);
+        } catch (Exception e) {
+            logger.error("获取目录子树失败，目录ID：{}", id, e);
+            return Result.error("获取目录子树失败");
+        }
+    }
+    
     /**
      * 更新目录信息
      * 
@@ -196,6 +232,53 @@ public class DirectoryController {
         }
     }
     
+    /**
+     * 递归删除目录及其所有子目录和文件（软删除）
+     * <p>
+     * 规模较小时同步完成；规模较大时转为后台任务，返回任务ID，通过删除任务接口查询进度
+     * 
+     * @param id 目录ID
+     * @return 删除任务
+     */
+    @DeleteMapping("/{id}/recursive")
+    public Result<DirectoryDeleteJobDTO> deleteDirectoryRecursively(@PathVariable Long id) {
+        logger.info("接收到递归删除目录的请求，目录ID：{}", id);
+        try {
+            DirectoryDeleteJobDTO job = directoryDeleteService.deleteRecursively(id);
+            if (job.getStatus() == DirectoryDeleteJobDTO.STATUS_RUNNING) {
+                logger.info("目录删除转为后台任务，目录ID：{}，任务ID：{}", id, job.getJobId());
+                return Result.success("目录删除已转为后台任务", job);
+            }
+            logger.info("成功递归删除目录，目录ID：{}，删除目录数：{}，删除文件数：{}", 
+                id, job.getDeletedDirectories(), job.getDeletedFiles());
+            return Result.success("删除目录成功", job);
+        } catch (BusinessException e) {
+            logger.warn("递归删除目录失败，目录ID：{}，原因：{}", id, e.getMessage());
+            return Result.error(e.getCode(), e.getMessage());
+        } catch (Exception e) {
+            logger.error("递归删除目录失败，目录ID：{}", id, e);
+            return Result.error("删除目录失败");
+        }
+    }
+    
+    /**
+     * 查询目录递归删除任务的进度
+     * 
+     * @param jobId 任务ID
+     * @return 删除任务
+     */
+    @GetMapping("/delete-jobs/{jobId}")
+    public Result<DirectoryDeleteJobDTO> getDeleteJob(@PathVariable String jobId) {
+        try {
+            return Result.success("获取删除任务成功", directoryDeleteService.getJob(jobId));
+        } catch (BusinessException e) {
+            return Result.error(e.getCode(), e.getMessage());
+        } catch (Exception e) {
+            logger.error("获取删除任务失败，任务ID：{}", jobId, e);
+            return Result.error("获取删除任务失败");
+        }
+    }
+    
     /**
      * 创建新目录
      * 
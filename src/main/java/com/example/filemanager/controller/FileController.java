@@ -1,24 +1,42 @@
 package com.example.filemanager.controller;
 
+import com.example.filemanager.common.exception.BusinessException;
 import com.example.filemanager.common.result.Result;
+import com.example.filemanager.common.result.ResultCode;
+import com.example.filemanager.config.FileDownloadConfig;
+import com.example.filemanager.dto.FileDownloadDescriptor;
+import com.example.filemanager.dto.request.ChunkUploadInitDTO;
+import com.example.filemanager.dto.request.InstantUploadBatchDTO;
+import com.example.filemanager.dto.request.InstantUploadDTO;
+import com.example.filemanager.dto.response.BatchUploadResultDTO;
+import com.example.filemanager.dto.response.ChunkUploadSessionDTO;
 import com.example.filemanager.dto.response.FileResponseDTO;
+import com.example.filemanager.dto.response.InstantUploadResultDTO;
 import com.example.filemanager.dto.response.PageResponseDTO;
+import com.example.filemanager.dto.response.SignedDownloadUrlDTO;
+import com.example.filemanager.service.ChunkUploadService;
+import com.example.filemanager.service.DownloadLimitService.LimitedStream;
+import com.example.filemanager.service.DownloadService;
 import com.example.filemanager.service.FileService;
+import com.example.filemanager.service.SignedUrlService;
+import com.example.filemanager.service.ZipDownloadService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.InputStreamResource;
-import org.springframework.core.io.Resource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 
 /**
@@ -45,9 +63,33 @@ public class FileController {
     
     private static final Logger logger = LoggerFactory.getLogger(FileController.class);
     
+    /**
+     * 下载并发已满时建议客户端重试的等待时间（秒）
+     */
+    private static final int DOWNLOAD_RETRY_AFTER_SECONDS = 5;
+    
     @Autowired
     private FileService fileService;
     
+    @Autowired
+    private ChunkUploadService chunkUploadService;
+    
+    @Autowired
+    private DownloadService downloadService;
+    
+    @Autowired
+    private ZipDownloadService zipDownloadService;
+    
+    @Autowired
+    private SignedUrlService signedUrlService;
+    
+    @Autowired
+    private FileDownloadConfig fileDownloadConfig;
+    
+    @Autowired
+    @Qualifier("downloadTaskExecutor")
+    private AsyncTaskExecutor downloadTaskExecutor;
+    
     /**
      * 上传文件到指定目录
      * 
@@ -81,6 +123,189 @@ public class FileController {
         }
     }
     
+    /**
+     * 批量上传多个文件到同一目录，一个请求完成整批文件的写入和登记
+     * 
+     * @param files 上传的文件（表单字段名均为 files）
+     * @param directoryId 目录ID
+     * @param description 文件描述（可选，应用于所有文件）
+     * @return 批量上传结果
+     */
+    @PostMapping("/upload/batch")
+    public Result<BatchUploadResultDTO> uploadFiles(
+            @RequestParam("files") MultipartFile[] files,
+            @RequestParam("directoryId") Long directoryId,
+            @RequestParam(value = "description", required = false) String description) {
+        logger.info("接收到批量上传请求，文件数量：{}，目录ID：{}", files.length, directoryId);
+    
+        try {
+            if (files.length == 0) {
+                return Result.error("上传文件不能为空");
+            }
+    
+            BatchUploadResultDTO result = fileService.uploadFiles(files, directoryId, description);
+            return Result.success("批量上传完成", result);
+        } catch (Exception e) {
+            logger.error("批量上传失败，文件数量：{}，目录ID：{}", files.length, directoryId, e);
+            return Result.error("批量上传失败：" + e.getMessage());
+        }
+    }
+    
+    /**
+     * 流式上传文件到指定目录，直接解析请求体写入存储目录，不受multipart的100MB限制
+     * <p>
+     * 请求格式与普通上传相同（multipart/form-data，文件字段名任意），目录ID通过路径传递；
+     * 可选的 description 表单字段需放在文件字段之前。
+     * 
+     * @param directoryId 目录ID
+     * @param request HTTP请求
+     * @return 上传后的文件信息
+     */
+    @PostMapping("/upload/stream/{directoryId}")
+    public Result<FileResponseDTO> uploadFileStream(@PathVariable Long directoryId, HttpServletRequest request) {
+        logger.info("接收到流式文件上传请求，目录ID：{}，请求大小：{}", directoryId, request.getContentLengthLong());
+        
+        try {
+            FileResponseDTO fileResponse = fileService.uploadFileStream(request, directoryId);
+            logger.info("流式文件上传成功，文件ID：{}，文件名：{}", fileResponse.getId(), fileResponse.getOriginalName());
+            return Result.success("文件上传成功", fileResponse);
+        } catch (Exception e) {
+            logger.error("流式文件上传失败，目录ID：{}", directoryId, e);
+            return Result.error("文件上传失败：" + e.getMessage());
+        }
+    }
+    
+    /**
+     * 秒传：先提交文件哈希，服务端已有相同内容时直接登记文件，无需上传文件内容
+     * 
+     * @param instantUploadDTO 秒传请求数据（md5Hash、fileSize、fileName、directoryId）
+     * @return 秒传结果，hit为false时需要继续上传文件
+     */
+    @PostMapping("/instant")
+    public Result<InstantUploadResultDTO> instantUpload(@Valid @RequestBody InstantUploadDTO instantUploadDTO) {
+        logger.info("接收到秒传请求，请求数据：{}", instantUploadDTO);
+        
+        try {
+            InstantUploadResultDTO result = fileService.instantUpload(instantUploadDTO);
+            return Result.success(result.isHit() ? "秒传成功" : "未命中秒传，请上传文件", result);
+        } catch (Exception e) {
+            logger.error("秒传失败，请求数据：{}", instantUploadDTO, e);
+            return Result.error("秒传失败：" + e.getMessage());
+        }
+    }
+    
+    /**
+     * 批量秒传，返回结果与请求顺序一致，客户端只需上传未命中的文件
+     * 
+     * @param batchDTO 批量秒传请求数据
+     * @return 秒传结果列表
+     */
+    @PostMapping("/instant/batch")
+    public Result<List<InstantUploadResultDTO>> instantUploadBatch(@Valid @RequestBody InstantUploadBatchDTO batchDTO) {
+        logger.info("接收到批量秒传请求，文件数量：{}", batchDTO.getFiles().size());
+        
+        try {
+            List<InstantUploadResultDTO> results = fileService.instantUploadBatch(batchDTO.getFiles());
+            return Result.success("批量秒传比对完成", results);
+        } catch (Exception e) {
+            logger.error("批量秒传失败，文件数量：{}", batchDTO.getFiles().size(), e);
+            return Result.error("批量秒传失败：" + e.getMessage());
+        }
+    }
+    
+    /**
+     * 初始化分片上传会话
+     * 
+     * @param initDTO 初始化请求数据
+     * @return 会话信息（包含上传会话标识、分片大小和分片总数）
+     */
+    @PostMapping("/chunks/init")
+    public Result<ChunkUploadSessionDTO> initChunkUpload(@Valid @RequestBody ChunkUploadInitDTO initDTO) {
+        logger.info("接收到分片上传初始化请求，请求数据：{}", initDTO);
+        
+        try {
+            ChunkUploadSessionDTO session = chunkUploadService.initSession(initDTO);
+            return Result.success("分片上传会话创建成功", session);
+        } catch (BusinessException e) {
+            logger.warn("分片上传会话创建失败，原因：{}", e.getMessage());
+            return Result.error(e.getCode(), e.getMessage());
+        } catch (Exception e) {
+            logger.error("分片上传会话创建失败，请求数据：{}", initDTO, e);
+            return Result.error("分片上传会话创建失败：" + e.getMessage());
+        }
+    }
+    
+    /**
+     * 上传单个分片，请求体为分片的原始字节（application/octet-stream），不同分片可以并发上传
+     * 
+     * @param uploadId 上传会话标识
+     * @param chunkIndex 分片序号（从0开始）
+     * @param request HTTP请求
+     * @return 已上传的分片序号
+     */
+    @PutMapping("/chunks/{uploadId}/{chunkIndex}")
+    public Result<Integer> uploadChunk(
+            @PathVariable String uploadId,
+            @PathVariable Integer chunkIndex,
+            HttpServletRequest request) {
+        logger.debug("接收到分片上传请求，会话标识：{}，分片序号：{}", uploadId, chunkIndex);
+        
+        try (InputStream inputStream = request.getInputStream()) {
+            chunkUploadService.uploadChunk(uploadId, chunkIndex, inputStream);
+            return Result.success("分片上传成功", chunkIndex);
+        } catch (BusinessException e) {
+            logger.warn("分片上传失败，会话标识：{}，分片序号：{}，原因：{}", uploadId, chunkIndex, e.getMessage());
+            return Result.error(e.getCode(), e.getMessage());
+        } catch (Exception e) {
+            logger.error("分片上传失败，会话标识：{}，分片序号：{}", uploadId, chunkIndex, e);
+            return Result.error("分片上传失败：" + e.getMessage());
+        }
+    }
+    
+    /**
+     * 查询分片上传会话状态，返回已上传和缺失的分片序号，用于断点续传
+     * 
+     * @param uploadId 上传会话标识
+     * @return 会话信息
+     */
+    @GetMapping("/chunks/{uploadId}")
+    public Result<ChunkUploadSessionDTO> getChunkUploadSession(@PathVariable String uploadId) {
+        logger.info("接收到查询分片上传会话请求，会话标识：{}", uploadId);
+        
+        try {
+            ChunkUploadSessionDTO session = chunkUploadService.getSession(uploadId);
+            return Result.success("获取分片上传会话成功", session);
+        } catch (BusinessException e) {
+            return Result.error(e.getCode(), e.getMessage());
+        } catch (Exception e) {
+            logger.error("获取分片上传会话失败，会话标识：{}", uploadId, e);
+            return Result.error("获取分片上传会话失败：" + e.getMessage());
+        }
+    }
+    
+    /**
+     * 完成分片上传，合并全部分片并登记文件
+     * 
+     * @param uploadId 上传会话标识
+     * @return 上传后的文件信息
+     */
+    @PostMapping("/chunks/{uploadId}/complete")
+    public Result<FileResponseDTO> completeChunkUpload(@PathVariable String uploadId) {
+        logger.info("接收到完成分片上传请求，会话标识：{}", uploadId);
+        
+        try {
+            FileResponseDTO fileResponse = chunkUploadService.completeSession(uploadId);
+            logger.info("分片上传完成，文件ID：{}，文件名：{}", fileResponse.getId(), fileResponse.getOriginalName());
+            return Result.success("文件上传成功", fileResponse);
+        } catch (BusinessException e) {
+            logger.warn("完成分片上传失败，会话标识：{}，原因：{}", uploadId, e.getMessage());
+            return Result.error(e.getCode(), e.getMessage());
+        } catch (Exception e) {
+            logger.error("完成分片上传失败，会话标识：{}", uploadId, e);
+            return Result.error("文件上传失败：" + e.getMessage());
+        }
+    }
+    
     /**
      * 根据目录ID获取文件列表
      * 
@@ -136,83 +361,204 @@ public class FileController {
     }
     
     /**
-     * 下载文件
+     * 下载文件，支持 Range 请求实现断点续传、分段下载和音视频拖动播放
+     * <p>
+     * 需要读取文件写出的下载返回流式响应，在下载线程池中异步写出，不占用请求线程
      * 
      * @param fileId 文件ID
-     * @return 文件内容
+     * @param request HTTP请求
+     * @param response HTTP响应
+     * @return 在下载线程池中写出的异步任务，已在请求线程中处理完成时为null
      */
     @GetMapping("/download/{fileId}")
-    public ResponseEntity<Resource> downloadFile(@PathVariable Long fileId) {
-        logger.info("接收到文件下载请求，文件ID：{}", fileId);
+    public WebAsyncTask<Void> downloadFile(@PathVariable Long fileId, HttpServletRequest request,
+                                           HttpServletResponse response) {
+        logger.info("接收到文件下载请求，文件ID：{}，Range：{}", fileId, request.getHeader(HttpHeaders.RANGE));
         
         try {
-            // 获取文件信息
-            FileResponseDTO fileResponse = fileService.getFileById(fileId);
-            
-            logger.info("文件下载信息 - ID: {}, 原始名: {}, 存储名: {}, 路径: {}", 
-                fileId, fileResponse.getOriginalName(), fileResponse.getStoredName(), fileResponse.getFilePath());
-            
-            // 检查文件是否存在
-            File file = new File(fileResponse.getFilePath());
-            logger.info("检查文件存在性 - 路径: {}, 存在: {}, 绝对路径: {}", 
-                fileResponse.getFilePath(), file.exists(), file.getAbsolutePath());
-            
-            if (!file.exists()) {
-                logger.error("文件不存在，文件ID：{}，路径：{}", fileId, fileResponse.getFilePath());
-                
-                // 尝试列出目录内容，帮助调试
-                File parentDir = file.getParentFile();
-                if (parentDir != null && parentDir.exists()) {
-                    logger.info("父目录存在，列出目录内容：{}", java.util.Arrays.toString(parentDir.list()));
-                } else {
-                    logger.error("父目录不存在：{}", parentDir != null ? parentDir.getAbsolutePath() : "null");
-                }
-                
-                return ResponseEntity.notFound().build();
-            }
-            
-            // 更新下载次数
-            fileService.updateDownloadCount(fileId);
-            
-            // 创建文件资源，使用InputStreamResource避免中文路径编码问题
-            FileInputStream fileInputStream = new FileInputStream(file);
-            Resource resource = new InputStreamResource(fileInputStream);
-            
-            // 设置文件名，处理中文文件名编码问题
-            String encodedFilename = URLEncoder.encode(fileResponse.getOriginalName(), StandardCharsets.UTF_8.toString())
-                    .replaceAll("\\+", "%20");
-            
-            // 构建响应头，避免中文字符编码问题
-            HttpHeaders headers = new HttpHeaders();
-            
-            // 只使用 filename*=UTF-8'' 格式，防止Tomcat编码问题
-            // 不设置 filename= 参数，避免Unicode字符编码错误
-            headers.add(HttpHeaders.CONTENT_DISPOSITION, 
-                "attachment; filename*=UTF-8''" + encodedFilename);
-            
-            // 设置Content-Type，特别处理文本文件的编码
-            String contentType = fileResponse.getMimeType();
-            if (contentType != null && contentType.startsWith("text/")) {
-                contentType = contentType + "; charset=UTF-8";
-            }
-            
-            // 添加其他响应头
-            headers.add(HttpHeaders.CONTENT_LENGTH, String.valueOf(file.length()));
-            headers.add(HttpHeaders.CACHE_CONTROL, "no-cache");
-            headers.add("X-Content-Type-Options", "nosniff");
-            
-            logger.info("文件下载成功，文件ID：{}，文件名：{}", fileId, fileResponse.getOriginalName());
-            
-            // 构建响应，避免重复设置Content-Type
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .contentLength(file.length())
-                    .contentType(MediaType.parseMediaType(contentType != null ? contentType : fileResponse.getMimeType()))
-                    .body(resource);
-                    
+            return streamAsync(downloadService.download(fileId, request, response), response);
+        } catch (BusinessException e) {
+            logger.warn("文件下载失败，文件ID：{}，原因：{}", fileId, e.getMessage());
+            sendDownloadError(response, e);
+        } catch (IOException e) {
+            // 客户端取消下载或拖动播放进度时连接会被中断
+            logger.info("文件下载中断，文件ID：{}，原因：{}", fileId, e.getMessage());
         } catch (Exception e) {
             logger.error("文件下载失败，文件ID：{}", fileId, e);
-            return ResponseEntity.internalServerError().build();
+            sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+        return null;
+    }
+    
+    /**
+     * 签发有时效的下载链接，链接中携带下载所需的文件信息，下载时不再查询数据库
+     * 
+     * @param fileId 文件ID
+     * @return 下载链接和过期时间
+     */
+    @PostMapping("/{fileId}/download-url")
+    public Result<SignedDownloadUrlDTO> createDownloadUrl(@PathVariable Long fileId) {
+        logger.info("接收到签发下载链接请求，文件ID：{}", fileId);
+        
+        try {
+            SignedDownloadUrlDTO downloadUrl = signedUrlService.createDownloadUrl(fileId);
+            return Result.success("签发下载链接成功", downloadUrl);
+        } catch (BusinessException e) {
+            logger.warn("签发下载链接失败，文件ID：{}，原因：{}", fileId, e.getMessage());
+            return Result.error(e.getCode(), e.getMessage());
+        } catch (Exception e) {
+            logger.error("签发下载链接失败，文件ID：{}", fileId, e);
+            return Result.error("签发下载链接失败");
+        }
+    }
+    
+    /**
+     * 通过签名下载链接下载文件，只校验签名和有效期，不访问数据库
+     * 
+     * @param token 下载令牌
+     * @param request HTTP请求
+     * @param response HTTP响应
+     * @return 在下载线程池中写出的异步任务，已在请求线程中处理完成时为null
+     */
+    @GetMapping("/download/signed")
+    public WebAsyncTask<Void> downloadSigned(@RequestParam("token") String token, HttpServletRequest request,
+                                             HttpServletResponse response) {
+        try {
+            FileDownloadDescriptor descriptor = signedUrlService.verify(token);
+            logger.info("接收到签名链接下载请求，文件ID：{}，Range：{}", descriptor.getId(), request.getHeader(HttpHeaders.RANGE));
+            return streamAsync(downloadService.download(descriptor, request, response), response);
+        } catch (BusinessException e) {
+            logger.warn("签名链接下载失败，原因：{}", e.getMessage());
+            sendDownloadError(response, e);
+        } catch (IOException e) {
+            logger.info("签名链接下载中断，原因：{}", e.getMessage());
+        } catch (Exception e) {
+            logger.error("签名链接下载失败", e);
+            sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+        return null;
+    }
+    
+    /**
+     * 将目录及其所有子目录打包为ZIP下载
+     * 
+     * @param directoryId 目录ID
+     * @param request HTTP请求
+     * @param response HTTP响应
+     * @return 在下载线程池中写出压缩包的异步任务，失败时为null
+     */
+    @GetMapping("/download/directory/{directoryId}")
+    public WebAsyncTask<Void> downloadDirectory(@PathVariable Long directoryId, HttpServletRequest request,
+                                                HttpServletResponse response) {
+        logger.info("接收到目录打包下载请求，目录ID：{}", directoryId);
+        
+        try {
+            return streamAsync(zipDownloadService.downloadDirectory(directoryId, request, response), response);
+        } catch (BusinessException e) {
+            logger.warn("目录打包下载失败，目录ID：{}，原因：{}", directoryId, e.getMessage());
+            sendDownloadError(response, e);
+        } catch (Exception e) {
+            logger.error("目录打包下载失败，目录ID：{}", directoryId, e);
+            sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+        return null;
+    }
+    
+    /**
+     * 将选中的多个文件打包为ZIP下载
+     * 
+     * @param fileIds 文件ID列表
+     * @param name 压缩包名称（不含扩展名，可选）
+     * @param request HTTP请求
+     * @param response HTTP响应
+     * @return 在下载线程池中写出压缩包的异步任务，失败时为null
+     */
+    @GetMapping("/download/zip")
+    public WebAsyncTask<Void> downloadFilesAsZip(
+            @RequestParam("fileIds") List<Long> fileIds,
+            @RequestParam(value = "name", required = false) String name,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+        logger.info("接收到文件打包下载请求，文件数：{}", fileIds.size());
+        
+        try {
+            return streamAsync(zipDownloadService.downloadFiles(fileIds, name, request, response), response);
+        } catch (BusinessException e) {
+            logger.warn("文件打包下载失败，原因：{}", e.getMessage());
+            sendDownloadError(response, e);
+        } catch (Exception e) {
+            logger.error("文件打包下载失败", e);
+            sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+        return null;
+    }
+    
+    /**
+     * 流式响应体包装为异步任务，在下载线程池中写出
+     * <p>
+     * 超时时间只作用于这次下载，其他异步请求仍使用容器默认的超时时间。
+     * 请求结束时（包括超时、出错或任务未执行）归还下载许可，写出结束时已归还的不会重复归还。
+     * 
+     * @param body 流式响应体，为null时表示已在请求线程中处理完成
+     * @param response HTTP响应
+     * @return 异步任务，body为null时为null
+     */
+    private WebAsyncTask<Void> streamAsync(LimitedStream body, HttpServletResponse response) {
+        if (body == null) {
+            return null;
+        }
+        WebAsyncTask<Void> task = new WebAsyncTask<>(fileDownloadConfig.getStreamTimeout(), downloadTaskExecutor, () -> {
+            OutputStream outputStream = response.getOutputStream();
+            body.writeTo(outputStream);
+            outputStream.flush();
+            return null;
+        });
+        task.onCompletion(body::close);
+        return task;
+    }
+    
+    /**
+     * 下载的业务异常转换为状态码：文件或目录不存在返回404，单个客户端并发过多返回429，
+     * 全局并发已满返回503，下载链接无效或过期返回403，其余返回400；429和503带 Retry-After 提示客户端稍后重试
+     */
+    private void sendDownloadError(HttpServletResponse response, BusinessException e) {
+        Integer code = e.getCode();
+        if (ResultCode.FILE_NOT_FOUND.getCode().equals(code) || ResultCode.DIRECTORY_NOT_FOUND.getCode().equals(code)) {
+            sendError(response, HttpServletResponse.SC_NOT_FOUND);
+        } else if (ResultCode.DOWNLOAD_TOO_MANY_REQUESTS.getCode().equals(code)) {
+            sendError(response, HttpStatus.TOO_MANY_REQUESTS.value(), DOWNLOAD_RETRY_AFTER_SECONDS);
+        } else if (ResultCode.DOWNLOAD_SERVER_BUSY.getCode().equals(code)) {
+            sendError(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, DOWNLOAD_RETRY_AFTER_SECONDS);
+        } else if (ResultCode.DOWNLOAD_URL_INVALID.getCode().equals(code)
+                || ResultCode.DOWNLOAD_URL_EXPIRED.getCode().equals(code)) {
+            sendError(response, HttpServletResponse.SC_FORBIDDEN);
+        } else {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST);
+        }
+    }
+    
+    /**
+     * 响应尚未提交时返回错误状态码
+     */
+    private void sendError(HttpServletResponse response, int status) {
+        sendError(response, status, 0);
+    }
+    
+    /**
+     * 响应尚未提交时返回错误状态码，retryAfterSeconds 大于0时设置 Retry-After
+     */
+    private void sendError(HttpServletResponse response, int status, int retryAfterSeconds) {
+        if (response.isCommitted()) {
+            return;
+        }
+        try {
+            response.reset();
+            if (retryAfterSeconds > 0) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            }
+            response.sendError(status);
+        } catch (IOException e) {
+            logger.debug("写入错误响应失败，状态码：{}", status, e);
         }
     }
     
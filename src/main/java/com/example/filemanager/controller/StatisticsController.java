@@ -1,8 +1,10 @@
 package com.example.filemanager.controller;
 
 import com.example.filemanager.common.result.Result;
+import com.example.filemanager.dto.response.CacheStatsResponseDTO;
 import com.example.filemanager.dto.response.StatisticsResponseDTO;
 import com.example.filemanager.service.DirectoryService;
+import com.example.filemanager.service.FileContentCacheService;
 import com.example.filemanager.service.FileService;
 import com.example.filemanager.util.FileUtil;
 import org.slf4j.Logger;
@@ -37,6 +39,9 @@ public class StatisticsController {
     @Autowired
     private FileService fileService;
     
+    @Autowired
+    private FileContentCacheService fileContentCacheService;
+    
     /**
      * 获取系统统计信息
      * 
@@ -77,4 +82,22 @@ public class StatisticsController {
             return Result.error("获取统计信息失败");
         }
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 获取小文件内存缓存的统计信息
+     * 
+     * @return 缓存统计信息，包括命中率、占用容量、淘汰次数
+     */
+    @GetMapping("/download-cache")
+    public Result<CacheStatsResponseDTO> getDownloadCacheStats() {
+        logger.info("接收到获取下载缓存统计信息的请求");
+        
+        try {
+            CacheStatsResponseDTO stats = fileContentCacheService.getStats();
+            return Result.success("获取缓存统计信息成功", stats);
+        } catch (Exception e) {
+            logger.error("获取下载缓存统计信息失败", e);
+            return Result.error("获取缓存统计信息失败");
+        }
+    }
+}
\ No newline at end of file
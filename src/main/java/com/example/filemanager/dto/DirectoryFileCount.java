@@ -0,0 +1,39 @@
+package com.example.filemanager.dto;
+
+/**
+ * 目录下的文件数量，按 directory_id 分组统计的结果行
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+public class DirectoryFileCount {
+    
+    /**
+     * 目录ID
+     */
+    private Long directoryId;
+    
+    /**
+     * 未删除的文件数量
+     */
+    private Long fileCount;
+    
+    public DirectoryFileCount() {}
+    
+    // Getter and Setter methods
+    public Long getDirectoryId() {
+        return directoryId;
+    }
+    
+    public void setDirectoryId(Long directoryId) {
+        this.directoryId = directoryId;
+    }
+    
+    public Long getFileCount() {
+        return fileCount;
+    }
+    
+    public void setFileCount(Long fileCount) {
+        this.fileCount = fileCount;
+    }
+}
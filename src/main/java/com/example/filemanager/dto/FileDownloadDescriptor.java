@@ -0,0 +1,136 @@
+package com.example.filemanager.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文件下载描述信息
+ * <p>
+ * 只包含下载需要的字段，由 file_info 主键查询直接得到，不需要查询目录。
+ * 文件记录创建后这些字段不再变化，可以缓存。
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+public class FileDownloadDescriptor {
+    
+    /**
+     * 文件ID
+     */
+    private Long id;
+    
+    /**
+     * 原始文件名
+     */
+    private String originalName;
+    
+    /**
+     * 文件存储路径
+     */
+    private String filePath;
+    
+    /**
+     * 文件大小（字节）
+     */
+    private Long fileSize;
+    
+    /**
+     * 文件类型
+     */
+    private String fileType;
+    
+    /**
+     * MIME类型
+     */
+    private String mimeType;
+    
+    /**
+     * 文件MD5哈希值
+     */
+    private String md5Hash;
+    
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createdAt;
+    
+    public FileDownloadDescriptor() {}
+    
+    // Getter and Setter methods
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getOriginalName() {
+        return originalName;
+    }
+    
+    public void setOriginalName(String originalName) {
+        this.originalName = originalName;
+    }
+    
+    public String getFilePath() {
+        return filePath;
+    }
+    
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+    
+    public Long getFileSize() {
+        return fileSize;
+    }
+    
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+    
+    public String getFileType() {
+        return fileType;
+    }
+    
+    public void setFileType(String fileType) {
+        this.fileType = fileType;
+    }
+    
+    public String getMimeType() {
+        return mimeType;
+    }
+    
+    public void setMimeType(String mimeType) {
+        this.mimeType = mimeType;
+    }
+    
+    public String getMd5Hash() {
+        return md5Hash;
+    }
+    
+    public void setMd5Hash(String md5Hash) {
+        this.md5Hash = md5Hash;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    @Override
+    public String toString() {
+        return "FileDownloadDescriptor{" +
+                "id=" + id +
+                ", originalName='" + originalName + '\'' +
+                ", filePath='" + filePath + '\'' +
+                ", fileSize=" + fileSize +
+                ", fileType='" + fileType + '\'' +
+                ", mimeType='" + mimeType + '\'' +
+                ", md5Hash='" + md5Hash + '\'' +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.filemanager.dto.request;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+/**
+ * 分片上传初始化请求DTO
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+public class ChunkUploadInitDTO {
+    
+    /**
+     * 原始文件名
+     */
+    @NotBlank(message = "文件名不能为空")
+    @Size(max = 255, message = "文件名长度不能超过255个字符")
+    private String fileName;
+    
+    /**
+     * 文件大小（字节）
+     */
+    @NotNull(message = "文件大小不能为空")
+    @Min(value = 1, message = "文件大小必须大于0")
+    private Long fileSize;
+    
+    /**
+     * 目标目录ID
+     */
+    @NotNull(message = "目录ID不能为空")
+    private Long directoryId;
+    
+    /**
+     * 分片大小（字节），为空时使用服务端默认值
+     */
+    private Long chunkSize;
+    
+    /**
+     * MIME类型（可选）
+     */
+    @Size(max = 100, message = "MIME类型长度不能超过100个字符")
+    private String mimeType;
+    
+    /**
+     * 文件描述（可选）
+     */
+    @Size(max = 500, message = "文件描述长度不能超过500个字符")
+    private String description;
+    
+    public ChunkUploadInitDTO() {}
+    
+    // Getter and Setter methods
+    public String getFileName() {
+        return fileName;
+    }
+    
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+    
+    public Long getFileSize() {
+        return fileSize;
+    }
+    
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+    
+    public Long getDirectoryId() {
+        return directoryId;
+    }
+    
+    public void setDirectoryId(Long directoryId) {
+        this.directoryId = directoryId;
+    }
+    
+    public Long getChunkSize() {
+        return chunkSize;
+    }
+    
+    public void setChunkSize(Long chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+    
+    public String getMimeType() {
+        return mimeType;
+    }
+    
+    public void setMimeType(String mimeType) {
+        this.mimeType = mimeType;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public void setDescription(String description) {
+        this.description = description;
+    }
+    
+    @Override
+    public String toString() {
+        return "ChunkUploadInitDTO{" +
+                "fileName='" + fileName + '\'' +
+                ", fileSize=" + fileSize +
+                ", directoryId=" + directoryId +
+                ", chunkSize=" + chunkSize +
+                ", mimeType='" + mimeType + '\'' +
+                ", description='" + description + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.filemanager.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * 批量秒传请求DTO
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+public class InstantUploadBatchDTO {
+    
+    /**
+     * 待秒传的文件列表
+     */
+    @Valid
+    @NotEmpty(message = "文件列表不能为空")
+    @Size(max = 1000, message = "单次最多提交1000个文件")
+    private List<InstantUploadDTO> files;
+    
+    public InstantUploadBatchDTO() {}
+    
+    // Getter and Setter methods
+    public List<InstantUploadDTO> getFiles() {
+        return files;
+    }
+    
+    public void setFiles(List<InstantUploadDTO> files) {
+        this.files = files;
+    }
+    
+    @Override
+    public String toString() {
+        return "InstantUploadBatchDTO{" +
+                "files=" + (files != null ? files.size() : 0) +
+                '}';
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.filemanager.dto.request;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+/**
+ * 秒传请求DTO（先提交文件哈希，服务端已有相同内容时无需再上传文件）
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+public class InstantUploadDTO {
+    
+    /**
+     * 文件MD5哈希值（32位十六进制）
+     */
+    @NotBlank(message = "文件MD5不能为空")
+    @Pattern(regexp = "^[0-9a-fA-F]{32}$", message = "文件MD5格式不正确")
+    private String md5Hash;
+    
+    /**
+     * 文件大小（字节）
+     */
+    @NotNull(message = "文件大小不能为空")
+    @Min(value = 1, message = "文件大小必须大于0")
+    private Long fileSize;
+    
+    /**
+     * 原始文件名
+     */
+    @NotBlank(message = "文件名不能为空")
+    @Size(max = 255, message = "文件名长度不能超过255个字符")
+    private String fileName;
+    
+    /**
+     * 目标目录ID
+     */
+    @NotNull(message = "目录ID不能为空")
+    private Long directoryId;
+    
+    /**
+     * MIME类型（可选）
+     */
+    @Size(max = 100, message = "MIME类型长度不能超过100个字符")
+    private String mimeType;
+    
+    /**
+     * 文件描述（可选）
+     */
+    @Size(max = 500, message = "文件描述长度不能超过500个字符")
+    private String description;
+    
+    public InstantUploadDTO() {}
+    
+    // Getter and Setter methods
+    public String getMd5Hash() {
+        return md5Hash;
+    }
+    
+    public void setMd5Hash(String md5Hash) {
+        this.md5Hash = md5Hash;
+    }
+    
+    public Long getFileSize() {
+        return fileSize;
+    }
+    
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+    
+    public String getFileName() {
+        return fileName;
+    }
+    
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+    
+    public Long getDirectoryId() {
+        return directoryId;
+    }
+    
+    public void setDirectoryId(Long directoryId) {
+        this.directoryId = directoryId;
+    }
+    
+    public String getMimeType() {
+        return mimeType;
+    }
+    
+    public void setMimeType(String mimeType) {
+        this.mimeType = mimeType;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public void setDescription(String description) {
+        this.description = description;
+    }
+    
+    @Override
+    public String toString() {
+        return "InstantUploadDTO{" +
+                "md5Hash='" + md5Hash + '\'' +
+                ", fileSize=" + fileSize +
+                ", fileName='" + fileName + '\'' +
+                ", directoryId=" + directoryId +
+                ", mimeType='" + mimeType + '\'' +
+                ", description='" + description + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.filemanager.dto.response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量上传结果DTO
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+public class BatchUploadResultDTO {
+    
+    /**
+     * 提交的文件总数
+     */
+    private int total;
+    
+    /**
+     * 上传成功的文件数
+     */
+    private int succeeded;
+    
+    /**
+     * 其中通过秒传完成的文件数
+     */
+    private int instantCount;
+    
+    /**
+     * 上传成功的文件信息
+     */
+    private List<FileResponseDTO> files = new ArrayList<>();
+    
+    /**
+     * 上传失败的文件名及原因
+     */
+    private List<String> failures = new ArrayList<>();
+    
+    public BatchUploadResultDTO() {}
+    
+    // Getter and Setter methods
+    public int getTotal() {
+        return total;
+    }
+    
+    public void setTotal(int total) {
+        this.total = total;
+    }
+    
+    public int getSucceeded() {
+        return succeeded;
+    }
+    
+    public void setSucceeded(int succeeded) {
+        this.succeeded = succeeded;
+    }
+    
+    public int getInstantCount() {
+        return instantCount;
+    }
+    
+    public void setInstantCount(int instantCount) {
+        this.instantCount = instantCount;
+    }
+    
+    public List<FileResponseDTO> getFiles() {
+        return files;
+    }
+    
+    public void setFiles(List<FileResponseDTO> files) {
+        this.files = files;
+    }
+    
+    public List<String> getFailures() {
+        return failures;
+    }
+    
+    public void setFailures(List<String> failures) {
+        this.failures = failures;
+    }
+    
+    @Override
+    public String toString() {
+        return "BatchUploadResultDTO{" +
+                "total=" + total +
+                ", succeeded=" + succeeded +
+                ", instantCount=" + instantCount +
+                ", failures=" + failures +
+                '}';
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.filemanager.dto.response;
+
+/**
+ * 小文件内存缓存统计响应DTO
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+public class CacheStatsResponseDTO {
+    
+    /**
+     * 是否启用缓存
+     */
+    private Boolean enabled;
+    
+    /**
+     * 缓存的文件数
+     */
+    private Long entryCount;
+    
+    /**
+     * 已占用的容量（字节）
+     */
+    private Long weightedSize;
+    
+    /**
+     * 容量上限（字节）
+     */
+    private Long maxSize;
+    
+    /**
+     * 命中次数
+     */
+    private Long hitCount;
+    
+    /**
+     * 未命中次数
+     */
+    private Long missCount;
+    
+    /**
+     * 命中率
+     */
+    private Double hitRate;
+    
+    /**
+     * 淘汰次数
+     */
+    private Long evictionCount;
+    
+    /**
+     * 加载失败次数（文件不存在或读取失败）
+     */
+    private Long loadFailureCount;
+    
+    public CacheStatsResponseDTO() {}
+    
+    // Getter and Setter methods
+    public Boolean getEnabled() {
+        return enabled;
+    }
+    
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    public Long getEntryCount() {
+        return entryCount;
+    }
+    
+    public void setEntryCount(Long entryCount) {
+        this.entryCount = entryCount;
+    }
+    
+    public Long getWeightedSize() {
+        return weightedSize;
+    }
+    
+    public void setWeightedSize(Long weightedSize) {
+        this.weightedSize = weightedSize;
+    }
+    
+    public Long getMaxSize() {
+        return maxSize;
+    }
+    
+    public void setMaxSize(Long maxSize) {
+        this.maxSize = maxSize;
+    }
+    
+    public Long getHitCount() {
+        return hitCount;
+    }
+    
+    public void setHitCount(Long hitCount) {
+        this.hitCount = hitCount;
+    }
+    
+    public Long getMissCount() {
+        return missCount;
+    }
+    
+    public void setMissCount(Long missCount) {
+        this.missCount = missCount;
+    }
+    
+    public Double getHitRate() {
+        return hitRate;
+    }
+    
+    public void setHitRate(Double hitRate) {
+        this.hitRate = hitRate;
+    }
+    
+    public Long getEvictionCount() {
+        return evictionCount;
+    }
+    
+    public void setEvictionCount(Long evictionCount) {
+        this.evictionCount = evictionCount;
+    }
+    
+    public Long getLoadFailureCount() {
+        return loadFailureCount;
+    }
+    
+    public void setLoadFailureCount(Long loadFailureCount) {
+        this.loadFailureCount = loadFailureCount;
+    }
+    
+    @Override
+    public String toString() {
+        return "CacheStatsResponseDTO{" +
+                "enabled=" + enabled +
+                ", entryCount=" + entryCount +
+                ", weightedSize=" + weightedSize +
+                ", maxSize=" + maxSize +
+                ", hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", hitRate=" + hitRate +
+                ", evictionCount=" + evictionCount +
+                ", loadFailureCount=" + loadFailureCount +
+                '}';
+    }
+}
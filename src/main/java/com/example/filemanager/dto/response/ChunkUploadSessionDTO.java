@@ -0,0 +1,147 @@
+package com.example.filemanager.dto.response;
+
+import java.util.List;
+
+/**
+ * 分片上传会话响应DTO
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+public class ChunkUploadSessionDTO {
+    
+    /**
+     * 上传会话标识
+     */
+    private String uploadId;
+    
+    /**
+     * 原始文件名
+     */
+    private String fileName;
+    
+    /**
+     * 文件大小（字节）
+     */
+    private Long fileSize;
+    
+    /**
+     * 分片大小（字节）
+     */
+    private Long chunkSize;
+    
+    /**
+     * 分片总数
+     */
+    private Integer totalChunks;
+    
+    /**
+     * 会话状态，0上传中，1合并中，2已完成
+     */
+    private Integer status;
+    
+    /**
+     * 已上传的分片序号
+     */
+    private List<Integer> uploadedChunks;
+    
+    /**
+     * 尚未上传的分片序号
+     */
+    private List<Integer> missingChunks;
+    
+    /**
+     * 合并完成后生成的文件ID
+     */
+    private Long fileId;
+    
+    public ChunkUploadSessionDTO() {}
+    
+    // Getter and Setter methods
+    public String getUploadId() {
+        return uploadId;
+    }
+    
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+    
+    public String getFileName() {
+        return fileName;
+    }
+    
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+    
+    public Long getFileSize() {
+        return fileSize;
+    }
+    
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+    
+    public Long getChunkSize() {
+        return chunkSize;
+    }
+    
+    public void setChunkSize(Long chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+    
+    public Integer getTotalChunks() {
+        return totalChunks;
+    }
+    
+    public void setTotalChunks(Integer totalChunks) {
+        this.totalChunks = totalChunks;
+    }
+    
+    public Integer getStatus() {
+        return status;
+    }
+    
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+    
+    public List<Integer> getUploadedChunks() {
+        return uploadedChunks;
+    }
+    
+    public void setUploadedChunks(List<Integer> uploadedChunks) {
+        this.uploadedChunks = uploadedChunks;
+    }
+    
+    public List<Integer> getMissingChunks() {
+        return missingChunks;
+    }
+    
+    public void setMissingChunks(List<Integer> missingChunks) {
+        this.missingChunks = missingChunks;
+    }
+    
+    public Long getFileId() {
+        return fileId;
+    }
+    
+    public void setFileId(Long fileId) {
+        this.fileId = fileId;
+    }
+    
+    @Override
+    public String toString() {
+        return "ChunkUploadSessionDTO{" +
+                "uploadId='" + uploadId + '\'' +
+                ", fileName='" + fileName + '\'' +
+                ", fileSize=" + fileSize +
+                ", chunkSize=" + chunkSize +
+                ", totalChunks=" + totalChunks +
+                ", status=" + status +
+                ", uploadedChunks=" + uploadedChunks +
+                ", missingChunks=" + missingChunks +
+                ", fileId=" + fileId +
+                '}';
+    }
+}
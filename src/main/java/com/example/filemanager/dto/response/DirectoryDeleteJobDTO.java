@@ -0,0 +1,174 @@
+package com.example.filemanager.dto.response;
+
+import java.time.LocalDateTime;
+
+/**
+ * 目录递归删除任务响应DTO
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+public class DirectoryDeleteJobDTO {
+    
+    /**
+     * 任务状态：执行中
+     */
+    public static final int STATUS_RUNNING = 0;
+    
+    /**
+     * 任务状态：已完成
+     */
+    public static final int STATUS_COMPLETED = 1;
+    
+    /**
+     * 任务状态：失败，已删除的部分不会恢复，可重新发起删除
+     */
+    public static final int STATUS_FAILED = 2;
+    
+    /**
+     * 任务ID
+     */
+    private String jobId;
+    
+    /**
+     * 被删除的目录ID
+     */
+    private Long directoryId;
+    
+    /**
+     * 任务状态，0执行中，1已完成，2失败
+     */
+    private Integer status;
+    
+    /**
+     * 需要删除的目录总数（含目录本身）
+     */
+    private Integer totalDirectories;
+    
+    /**
+     * 已删除的目录数
+     */
+    private Integer deletedDirectories;
+    
+    /**
+     * 需要删除的文件总数（任务开始时统计）
+     */
+    private Long totalFiles;
+    
+    /**
+     * 已删除的文件数
+     */
+    private Long deletedFiles;
+    
+    /**
+     * 失败原因
+     */
+    private String errorMessage;
+    
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createdAt;
+    
+    /**
+     * 结束时间
+     */
+    private LocalDateTime finishedAt;
+    
+    public DirectoryDeleteJobDTO() {}
+    
+    // Getter and Setter methods
+    public String getJobId() {
+        return jobId;
+    }
+    
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+    
+    public Long getDirectoryId() {
+        return directoryId;
+    }
+    
+    public void setDirectoryId(Long directoryId) {
+        this.directoryId = directoryId;
+    }
+    
+    public Integer getStatus() {
+        return status;
+    }
+    
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+    
+    public Integer getTotalDirectories() {
+        return totalDirectories;
+    }
+    
+    public void setTotalDirectories(Integer totalDirectories) {
+        this.totalDirectories = totalDirectories;
+    }
+    
+    public Integer getDeletedDirectories() {
+        return deletedDirectories;
+    }
+    
+    public void setDeletedDirectories(Integer deletedDirectories) {
+        this.deletedDirectories = deletedDirectories;
+    }
+    
+    public Long getTotalFiles() {
+        return totalFiles;
+    }
+    
+    public void setTotalFiles(Long totalFiles) {
+        this.totalFiles = totalFiles;
+    }
+    
+    public Long getDeletedFiles() {
+        return deletedFiles;
+    }
+    
+    public void setDeletedFiles(Long deletedFiles) {
+        this.deletedFiles = deletedFiles;
+    }
+    
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+    
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+    
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+    
+    @Override
+    public String toString() {
+        return "DirectoryDeleteJobDTO{" +
+                "jobId='" + jobId + '\'' +
+                ", directoryId=" + directoryId +
+                ", status=" + status +
+                ", totalDirectories=" + totalDirectories +
+                ", deletedDirectories=" + deletedDirectories +
+                ", totalFiles=" + totalFiles +
+                ", deletedFiles=" + deletedFiles +
+                ", errorMessage='" + errorMessage + '\'' +
+                '}';
+    }
+}
@@ -56,6 +56,16 @@ public class DirectoryResponseDTO {
      */
     private Boolean hasChildren;
     
+    /**
+     * 直接子目录数量
+     */
+    private Integer childCount;
+    
+    /**
+     * 目录下（不含子目录）的文件数量，整棵目录树和全部目录列表中不统计（为null）
+     */
+    private Long fileCount;
+    
     public DirectoryResponseDTO() {}
     
     // Getter and Setter methods
@@ -130,4 +140,20 @@ public class DirectoryResponseDTO {
     public void setHasChildren(Boolean hasChildren) {
         this.hasChildren = hasChildren;
     }
+    
+    public Integer getChildCount() {
+        return childCount;
+    }
+    
+    public void setChildCount(Integer childCount) {
+        this.childCount = childCount;
+    }
+    
+    public Long getFileCount() {
+        return fileCount;
+    }
+    
+    public void setFileCount(Long fileCount) {
+        this.fileCount = fileCount;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.example.filemanager.dto.response;
+
+/**
+ * 秒传结果DTO
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+public class InstantUploadResultDTO {
+    
+    /**
+     * 文件MD5哈希值
+     */
+    private String md5Hash;
+    
+    /**
+     * 原始文件名
+     */
+    private String fileName;
+    
+    /**
+     * 是否秒传成功，为false时客户端需要上传文件内容
+     */
+    private boolean hit;
+    
+    /**
+     * 秒传成功后生成的文件信息
+     */
+    private FileResponseDTO file;
+    
+    /**
+     * 未秒传的原因（可选）
+     */
+    private String message;
+    
+    public InstantUploadResultDTO() {}
+    
+    public InstantUploadResultDTO(String md5Hash, String fileName, boolean hit, FileResponseDTO file, String message) {
+        this.md5Hash = md5Hash;
+        this.fileName = fileName;
+        this.hit = hit;
+        this.file = file;
+        this.message = message;
+    }
+    
+    // Getter and Setter methods
+    public String getMd5Hash() {
+        return md5Hash;
+    }
+    
+    public void setMd5Hash(String md5Hash) {
+        this.md5Hash = md5Hash;
+    }
+    
+    public String getFileName() {
+        return fileName;
+    }
+    
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+    
+    public boolean isHit() {
+        return hit;
+    }
+    
+    public void setHit(boolean hit) {
+        this.hit = hit;
+    }
+    
+    public FileResponseDTO getFile() {
+        return file;
+    }
+    
+    public void setFile(FileResponseDTO file) {
+        this.file = file;
+    }
+    
+    public String getMessage() {
+        return message;
+    }
+    
+    public void setMessage(String message) {
+        this.message = message;
+    }
+    
+    @Override
+    public String toString() {
+        return "InstantUploadResultDTO{" +
+                "md5Hash='" + md5Hash + '\'' +
+                ", fileName='" + fileName + '\'' +
+                ", hit=" + hit +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.filemanager.dto.response;
+
+import java.time.LocalDateTime;
+
+/**
+ * 签名下载链接响应DTO
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+public class SignedDownloadUrlDTO {
+    
+    /**
+     * 文件ID
+     */
+    private Long fileId;
+    
+    /**
+     * 下载链接，有效期内无需再查询文件信息
+     */
+    private String url;
+    
+    /**
+     * 过期时间
+     */
+    private LocalDateTime expiresAt;
+    
+    public SignedDownloadUrlDTO() {}
+    
+    public SignedDownloadUrlDTO(Long fileId, String url, LocalDateTime expiresAt) {
+        this.fileId = fileId;
+        this.url = url;
+        this.expiresAt = expiresAt;
+    }
+    
+    // Getter and Setter methods
+    public Long getFileId() {
+        return fileId;
+    }
+    
+    public void setFileId(Long fileId) {
+        this.fileId = fileId;
+    }
+    
+    public String getUrl() {
+        return url;
+    }
+    
+    public void setUrl(String url) {
+        this.url = url;
+    }
+    
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+    
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+    
+    @Override
+    public String toString() {
+        return "SignedDownloadUrlDTO{" +
+                "fileId=" + fileId +
+                ", url='" + url + '\'' +
+                ", expiresAt=" + expiresAt +
+                '}';
+    }
+}
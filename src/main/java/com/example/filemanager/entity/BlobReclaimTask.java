@@ -0,0 +1,176 @@
+package com.example.filemanager.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 物理文件回收任务实体类
+ * <p>
+ * 删除文件记录时在同一事务内写入回收任务，事务提交后由后台任务删除不再被引用的物理文件；
+ * 任务处理完成后直接删除记录。
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+@TableName("blob_reclaim_tasks")
+public class BlobReclaimTask implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * 任务ID
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+    
+    /**
+     * 待回收的文件内容ID，为空时按文件路径检查引用（内容表引入前登记的任务）
+     */
+    @TableField("blob_id")
+    private Long blobId;
+    
+    /**
+     * 待回收的物理文件路径
+     */
+    @TableField("file_path")
+    private String filePath;
+    
+    /**
+     * 文件MD5哈希值
+     */
+    @TableField("md5_hash")
+    private String md5Hash;
+    
+    /**
+     * 已失败次数
+     */
+    @TableField("attempts")
+    private Integer attempts;
+    
+    /**
+     * 下次处理时间
+     */
+    @TableField("next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+    
+    /**
+     * 最近一次失败原因
+     */
+    @TableField("last_error")
+    private String lastError;
+    
+    /**
+     * 创建时间
+     */
+    @TableField("created_at")
+    private LocalDateTime createdAt;
+    
+    /**
+     * 更新时间
+     */
+    @TableField("updated_at")
+    private LocalDateTime updatedAt;
+    
+    public BlobReclaimTask() {}
+    
+    public BlobReclaimTask(Long blobId, String filePath, String md5Hash) {
+        this.blobId = blobId;
+        this.filePath = filePath;
+        this.md5Hash = md5Hash;
+        this.attempts = 0;
+        this.nextAttemptAt = LocalDateTime.now();
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = LocalDateTime.now();
+    }
+    
+    // Getter and Setter methods
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getBlobId() {
+        return blobId;
+    }
+    
+    public void setBlobId(Long blobId) {
+        this.blobId = blobId;
+    }
+    
+    public String getFilePath() {
+        return filePath;
+    }
+    
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+    
+    public String getMd5Hash() {
+        return md5Hash;
+    }
+    
+    public void setMd5Hash(String md5Hash) {
+        this.md5Hash = md5Hash;
+    }
+    
+    public Integer getAttempts() {
+        return attempts;
+    }
+    
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+    
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+    
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+    
+    public String getLastError() {
+        return lastError;
+    }
+    
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+    
+    @Override
+    public String toString() {
+        return "BlobReclaimTask{" +
+                "id=" + id +
+                ", blobId=" + blobId +
+                ", filePath='" + filePath + '\'' +
+                ", md5Hash='" + md5Hash + '\'' +
+                ", attempts=" + attempts +
+                ", nextAttemptAt=" + nextAttemptAt +
+                ", lastError='" + lastError + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.filemanager.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 文件内容实体类
+ * <p>
+ * 相同内容（MD5和大小都一致）只存储一份物理文件，文件记录通过 blob_id 引用，
+ * ref_count 为引用该内容的未删除文件记录数。
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+@TableName("file_blobs")
+public class FileBlob implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * 内容ID
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+    
+    /**
+     * 内容MD5哈希值
+     */
+    @TableField("md5_hash")
+    private String md5Hash;
+    
+    /**
+     * 内容大小（字节）
+     */
+    @TableField("file_size")
+    private Long fileSize;
+    
+    /**
+     * 物理文件存储路径
+     */
+    @TableField("storage_path")
+    private String storagePath;
+    
+    /**
+     * 引用计数
+     */
+    @TableField("ref_count")
+    private Integer refCount;
+    
+    /**
+     * 创建时间
+     */
+    @TableField("created_at")
+    private LocalDateTime createdAt;
+    
+    /**
+     * 更新时间
+     */
+    @TableField("updated_at")
+    private LocalDateTime updatedAt;
+    
+    public FileBlob() {}
+    
+    public FileBlob(String md5Hash, Long fileSize, String storagePath, Integer refCount) {
+        this.md5Hash = md5Hash;
+        this.fileSize = fileSize;
+        this.storagePath = storagePath;
+        this.refCount = refCount;
+    }
+    
+    // Getter and Setter methods
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getMd5Hash() {
+        return md5Hash;
+    }
+    
+    public void setMd5Hash(String md5Hash) {
+        this.md5Hash = md5Hash;
+    }
+    
+    public Long getFileSize() {
+        return fileSize;
+    }
+    
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+    
+    public String getStoragePath() {
+        return storagePath;
+    }
+    
+    public void setStoragePath(String storagePath) {
+        this.storagePath = storagePath;
+    }
+    
+    public Integer getRefCount() {
+        return refCount;
+    }
+    
+    public void setRefCount(Integer refCount) {
+        this.refCount = refCount;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+    
+    @Override
+    public String toString() {
+        return "FileBlob{" +
+                "id=" + id +
+                ", md5Hash='" + md5Hash + '\'' +
+                ", fileSize=" + fileSize +
+                ", storagePath='" + storagePath + '\'' +
+                ", refCount=" + refCount +
+                '}';
+    }
+}
@@ -68,6 +68,12 @@ public class FileInfo implements Serializable {
     @TableField("md5_hash")
     private String md5Hash;
     
+    /**
+     * 文件内容ID
+     */
+    @TableField("blob_id")
+    private Long blobId;
+    
     /**
      * 所属目录ID
      */
@@ -173,6 +179,14 @@ public class FileInfo implements Serializable {
         this.md5Hash = md5Hash;
     }
     
+    public Long getBlobId() {
+        return blobId;
+    }
+    
+    public void setBlobId(Long blobId) {
+        this.blobId = blobId;
+    }
+    
     public Long getDirectoryId() {
         return directoryId;
     }
@@ -232,6 +246,7 @@ public class FileInfo implements Serializable {
                 ", fileType='" + fileType + '\'' +
                 ", mimeType='" + mimeType + '\'' +
                 ", md5Hash='" + md5Hash + '\'' +
+                ", blobId=" + blobId +
                 ", directoryId=" + directoryId +
                 ", description='" + description + '\'' +
                 ", downloadCount=" + downloadCount +
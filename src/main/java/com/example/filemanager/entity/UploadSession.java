@@ -0,0 +1,258 @@
+package com.example.filemanager.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableLogic;
+import com.baomidou.mybatisplus.annotation.TableName;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 分片上传会话实体类
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+@TableName("upload_sessions")
+public class UploadSession implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * 会话状态：上传中
+     */
+    public static final int STATUS_UPLOADING = 0;
+    
+    /**
+     * 会话状态：合并中
+     */
+    public static final int STATUS_MERGING = 1;
+    
+    /**
+     * 会话状态：已完成
+     */
+    public static final int STATUS_COMPLETED = 2;
+    
+    /**
+     * 会话ID
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+    
+    /**
+     * 上传会话标识
+     */
+    @TableField("upload_id")
+    private String uploadId;
+    
+    /**
+     * 原始文件名
+     */
+    @TableField("file_name")
+    private String fileName;
+    
+    /**
+     * 文件大小（字节）
+     */
+    @TableField("file_size")
+    private Long fileSize;
+    
+    /**
+     * MIME类型
+     */
+    @TableField("mime_type")
+    private String mimeType;
+    
+    /**
+     * 分片大小（字节）
+     */
+    @TableField("chunk_size")
+    private Long chunkSize;
+    
+    /**
+     * 分片总数
+     */
+    @TableField("total_chunks")
+    private Integer totalChunks;
+    
+    /**
+     * 目标目录ID
+     */
+    @TableField("directory_id")
+    private Long directoryId;
+    
+    /**
+     * 文件描述
+     */
+    @TableField("description")
+    private String description;
+    
+    /**
+     * 会话状态，0上传中，1合并中，2已完成
+     */
+    @TableField("status")
+    private Integer status;
+    
+    /**
+     * 合并完成后生成的文件ID
+     */
+    @TableField("file_id")
+    private Long fileId;
+    
+    /**
+     * 创建时间
+     */
+    @TableField("created_at")
+    private LocalDateTime createdAt;
+    
+    /**
+     * 更新时间
+     */
+    @TableField("updated_at")
+    private LocalDateTime updatedAt;
+    
+    /**
+     * 逻辑删除标志，0未删除，1已删除
+     */
+    @TableLogic
+    @TableField("deleted")
+    private Integer deleted;
+    
+    // 无参构造函数
+    public UploadSession() {}
+    
+    // Getter and Setter methods
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getUploadId() {
+        return uploadId;
+    }
+    
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+    
+    public String getFileName() {
+        return fileName;
+    }
+    
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+    
+    public Long getFileSize() {
+        return fileSize;
+    }
+    
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+    
+    public String getMimeType() {
+        return mimeType;
+    }
+    
+    public void setMimeType(String mimeType) {
+        this.mimeType = mimeType;
+    }
+    
+    public Long getChunkSize() {
+        return chunkSize;
+    }
+    
+    public void setChunkSize(Long chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+    
+    public Integer getTotalChunks() {
+        return totalChunks;
+    }
+    
+    public void setTotalChunks(Integer totalChunks) {
+        this.totalChunks = totalChunks;
+    }
+    
+    public Long getDirectoryId() {
+        return directoryId;
+    }
+    
+    public void setDirectoryId(Long directoryId) {
+        this.directoryId = directoryId;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public void setDescription(String description) {
+        this.description = description;
+    }
+    
+    public Integer getStatus() {
+        return status;
+    }
+    
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+    
+    public Long getFileId() {
+        return fileId;
+    }
+    
+    public void setFileId(Long fileId) {
+        this.fileId = fileId;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+    
+    public Integer getDeleted() {
+        return deleted;
+    }
+    
+    public void setDeleted(Integer deleted) {
+        this.deleted = deleted;
+    }
+    
+    @Override
+    public String toString() {
+        return "UploadSession{" +
+                "id=" + id +
+                ", uploadId='" + uploadId + '\'' +
+                ", fileName='" + fileName + '\'' +
+                ", fileSize=" + fileSize +
+                ", mimeType='" + mimeType + '\'' +
+                ", chunkSize=" + chunkSize +
+                ", totalChunks=" + totalChunks +
+                ", directoryId=" + directoryId +
+                ", description='" + description + '\'' +
+                ", status=" + status +
+                ", fileId=" + fileId +
+                ", createdAt=" + createdAt +
+                ", updatedAt=" + updatedAt +
+                ", deleted=" + deleted +
+                '}';
+    }
+}
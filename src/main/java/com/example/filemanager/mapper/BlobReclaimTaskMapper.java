@@ -0,0 +1,39 @@
+package com.example.filemanager.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.filemanager.entity.BlobReclaimTask;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 物理文件回收任务Mapper接口
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+@Mapper
+public interface BlobReclaimTaskMapper extends BaseMapper<BlobReclaimTask> {
+    
+    /**
+     * 查询已到处理时间的回收任务
+     * 
+     * @param now 当前时间
+     * @param limit 最多返回的任务数
+     * @return 回收任务列表
+     */
+    List<BlobReclaimTask> selectDueTasks(@Param("now") LocalDateTime now, @Param("limit") int limit);
+    
+    /**
+     * 记录一次处理失败并推迟下次处理时间
+     * 
+     * @param id 任务ID
+     * @param lastError 失败原因
+     * @param nextAttemptAt 下次处理时间
+     * @return 更新行数
+     */
+    int markRetry(@Param("id") Long id, @Param("lastError") String lastError,
+                  @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+}
@@ -4,7 +4,10 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.example.filemanager.entity.Directory;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -31,6 +34,40 @@ public interface DirectoryMapper extends BaseMapper<Directory> {
      */
     Page<Directory> selectAllDirectoriesWithPage(Page<Directory> page);
     
+    /**
+     * 根据ID查询未删除的目录并加排他锁（SELECT ... FOR UPDATE），需在事务中调用，锁在事务结束时释放
+     * 
+     * @param id 目录ID
+     * @return 目录信息，不存在或已删除时返回null
+     */
+    Directory selectByIdForUpdate(@Param("id") Long id);
+    
+    /**
+     * 根据ID查询未删除的目录并加共享锁（SELECT ... FOR SHARE），需在事务中调用，
+     * 持有期间其他事务不能移动、重命名该目录
+     * 
+     * @param id 目录ID
+     * @return 目录信息，不存在或已删除时返回null
+     */
+    Directory selectByIdForShare(@Param("id") Long id);
+    
+    /**
+     * 按ID升序锁定多个未删除的目录（SELECT ... FOR UPDATE），需在事务中调用，
+     * 持有期间不能在这些目录下创建子目录，也不能把目录移入
+     * 
+     * @param ids 目录ID集合
+     * @return 未删除的目录列表
+     */
+    List<Directory> selectByIdsForUpdate(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * 查询多个父目录下未删除的子目录
+     * 
+     * @param parentIds 父目录ID集合
+     * @return 子目录列表
+     */
+    List<Directory> selectByParentIds(@Param("parentIds") Collection<Long> parentIds);
+    
     /**
      * 根据父目录ID查询子目录
      * 
@@ -39,6 +76,14 @@ public interface DirectoryMapper extends BaseMapper<Directory> {
      */
     List<Directory> selectByParentId(Long parentId);
     
+    /**
+     * 统计未删除的子目录数量
+     * 
+     * @param parentId 父目录ID
+     * @return 子目录数量
+     */
+    long countByParentId(@Param("parentId") Long parentId);
+    
     /**
      * 根据路径查询目录
      * 
@@ -46,4 +91,57 @@ public interface DirectoryMapper extends BaseMapper<Directory> {
      * @return 目录信息
      */
     Directory selectByPath(String path);
-} 
\ No newline at end of file
+    
+    /**
+     * 查询目录本身及其所有子孙目录（按路径前缀逐字节匹配，与排序规则无关），结果按路径排序
+     * 
+     * @param path 目录路径
+     * @param pathPattern 子孙目录路径的 LIKE 模式，通配符需已转义
+     * @return 目录列表
+     */
+    List<Directory> selectByPathPrefix(@Param("path") String path, @Param("pathPattern") String pathPattern);
+    
+    /**
+     * 查询目录本身及其所有子孙目录，结果按路径排序
+     * 
+     * @param path 目录路径
+     * @return 目录列表
+     */
+    default List<Directory> selectSubtree(String path) {
+        return selectByPathPrefix(path, subtreePattern(path));
+    }
+    
+    /**
+     * 将子孙目录路径中的旧前缀替换为新前缀（按路径前缀逐字节匹配，单条UPDATE），不包括目录本身
+     * 
+     * @param oldPath 目录的旧路径
+     * @param newPath 目录的新路径
+     * @param pathPattern 子孙目录路径的 LIKE 模式，通配符需已转义
+     * @param updatedAt 更新时间
+     * @return 更新的目录数量
+     */
+    int updatePathPrefix(@Param("oldPath") String oldPath, @Param("newPath") String newPath,
+                         @Param("pathPattern") String pathPattern, @Param("updatedAt") LocalDateTime updatedAt);
+    
+    /**
+     * 目录移动或重命名后，重写所有子孙目录的路径
+     * 
+     * @param oldPath 目录的旧路径
+     * @param newPath 目录的新路径
+     * @param updatedAt 更新时间
+     * @return 更新的目录数量
+     */
+    default int rewriteSubtreePaths(String oldPath, String newPath, LocalDateTime updatedAt) {
+        return updatePathPrefix(oldPath, newPath, subtreePattern(oldPath), updatedAt);
+    }
+    
+    /**
+     * 生成匹配子孙目录路径的 LIKE 模式，转义路径中的通配符
+     */
+    private static String subtreePattern(String path) {
+        String prefix = path.endsWith("/") ? path : path + "/";
+        return prefix.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+    }
+}
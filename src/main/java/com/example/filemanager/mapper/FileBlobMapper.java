@@ -0,0 +1,70 @@
+package com.example.filemanager.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.filemanager.entity.FileBlob;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文件内容Mapper接口
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+@Mapper
+public interface FileBlobMapper extends BaseMapper<FileBlob> {
+    
+    /**
+     * 根据MD5和大小查询内容
+     * 
+     * @param md5Hash MD5哈希值
+     * @param fileSize 内容大小
+     * @return 内容信息
+     */
+    FileBlob selectByHash(@Param("md5Hash") String md5Hash, @Param("fileSize") long fileSize);
+    
+    /**
+     * 根据MD5批量查询内容
+     * 
+     * @param md5Hashes MD5哈希值集合
+     * @return 内容信息列表
+     */
+    List<FileBlob> selectByMd5Hashes(@Param("md5Hashes") Collection<String> md5Hashes);
+    
+    /**
+     * 登记内容引用：内容不存在时插入，已存在时引用计数增加 refCount，插入或更新后回填内容ID
+     * 
+     * @param fileBlob 内容信息，refCount 为本次新增的引用数
+     * @return 影响行数
+     */
+    int upsertReference(FileBlob fileBlob);
+    
+    /**
+     * 减少内容引用计数
+     * 
+     * @param id 内容ID
+     * @param count 减少的引用数
+     * @return 更新行数
+     */
+    int decrementRefCount(@Param("id") Long id, @Param("count") int count);
+    
+    /**
+     * 批量减少多个内容的引用计数
+     * 
+     * @param counts 内容ID到减少的引用数的映射
+     * @return 更新行数
+     */
+    int decrementRefCounts(@Param("counts") Map<Long, Integer> counts);
+    
+    /**
+     * 查询内容并加行锁，用于回收时阻止并发的引用登记
+     * 
+     * @param id 内容ID
+     * @return 内容信息
+     */
+    FileBlob selectByIdForUpdate(@Param("id") Long id);
+}
@@ -2,11 +2,15 @@ package com.example.filemanager.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.example.filemanager.dto.DirectoryFileCount;
+import com.example.filemanager.dto.FileDownloadDescriptor;
 import com.example.filemanager.entity.FileInfo;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 文件信息Mapper接口
@@ -35,20 +39,63 @@ public interface FileInfoMapper extends BaseMapper<FileInfo> {
     Page<FileInfo> selectFilesWithPage(Page<FileInfo> page, @Param("directoryId") Long directoryId);
     
     /**
-     * 根据MD5查询文件
+     * 按主键查询下载所需的字段
+     * 
+     * @param fileId 文件ID
+     * @return 下载描述信息，文件不存在或已删除时返回null
+     */
+    FileDownloadDescriptor selectDownloadDescriptor(@Param("fileId") Long fileId);
+    
+    /**
+     * 查询多个目录下的文件列表，按目录和文件ID排序
+     * 
+     * @param directoryIds 目录ID集合
+     * @return 文件列表
+     */
+    List<FileInfo> selectByDirectoryIds(@Param("directoryIds") Collection<Long> directoryIds);
+    
+    /**
+     * 查询多个目录下待删除的未删除文件并加行锁，只返回释放内容引用所需的字段
+     * 
+     * @param directoryIds 目录ID集合
+     * @param limit 最多返回的记录数
+     * @return 文件列表（id、blob_id、file_path、md5_hash）
+     */
+    List<FileInfo> selectForDeleteByDirectoryIds(@Param("directoryIds") Collection<Long> directoryIds,
+                                                 @Param("limit") int limit);
+    
+    /**
+     * 按目录分组统计多个目录下的未删除文件数量，没有文件的目录不返回
+     * 
+     * @param directoryIds 目录ID集合
+     * @return 各目录的文件数量
+     */
+    List<DirectoryFileCount> countByDirectoryIds(@Param("directoryIds") Collection<Long> directoryIds);
+    
+    /**
+     * 统计仍指向指定物理文件的未删除记录数
      * 
      * @param md5Hash MD5哈希值
-     * @return 文件信息
+     * @param filePath 物理文件路径
+     * @return 记录数
      */
-    FileInfo selectByMd5Hash(@Param("md5Hash") String md5Hash);
+    long countLiveReferences(@Param("md5Hash") String md5Hash, @Param("filePath") String filePath);
     
     /**
-     * 更新文件下载次数
+     * 批量插入文件记录（单条INSERT语句），插入后回填自增ID
      * 
-     * @param fileId 文件ID
-     * @return 更新结果
+     * @param fileInfos 文件信息列表
+     * @return 插入行数
+     */
+    int insertBatch(@Param("fileInfos") List<FileInfo> fileInfos);
+    
+    /**
+     * 批量累加文件下载次数（单条UPDATE语句），不修改更新时间
+     * 
+     * @param counts 文件ID到新增下载次数的映射
+     * @return 更新行数
      */
-    int updateDownloadCount(@Param("fileId") Long fileId);
+    int addDownloadCounts(@Param("counts") Map<Long, Long> counts);
     
     /**
      * 统计文件总大小
@@ -0,0 +1,49 @@
+package com.example.filemanager.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.filemanager.entity.UploadSession;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 分片上传会话Mapper接口
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+@Mapper
+public interface UploadSessionMapper extends BaseMapper<UploadSession> {
+    
+    /**
+     * 根据上传会话标识查询会话
+     * 
+     * @param uploadId 上传会话标识
+     * @return 会话信息
+     */
+    UploadSession selectByUploadId(@Param("uploadId") String uploadId);
+    
+    /**
+     * 按预期状态切换会话状态（用于并发合并时的抢占）
+     * 
+     * @param uploadId 上传会话标识
+     * @param expectedStatus 预期的当前状态
+     * @param newStatus 新状态
+     * @param fileId 合并完成后生成的文件ID（可选）
+     * @return 更新行数，0表示状态已被其他请求修改
+     */
+    int updateStatus(@Param("uploadId") String uploadId,
+                     @Param("expectedStatus") Integer expectedStatus,
+                     @Param("newStatus") Integer newStatus,
+                     @Param("fileId") Long fileId);
+    
+    /**
+     * 查询在指定时间之前未更新、仍未完成的会话
+     * 
+     * @param expireBefore 过期时间点
+     * @return 过期会话列表
+     */
+    List<UploadSession> selectExpiredSessions(@Param("expireBefore") LocalDateTime expireBefore);
+}
@@ -0,0 +1,28 @@
+package com.example.filemanager.service;
+
+/**
+ * 物理文件回收服务接口
+ * <p>
+ * 删除文件记录时只登记回收任务，物理文件在事务提交后由后台任务批量删除，失败的任务会延迟重试。
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+public interface BlobReclaimService {
+    
+    /**
+     * 登记物理文件回收任务，需在删除文件记录的同一事务内调用；事务提交后会唤醒后台任务立即处理
+     * 
+     * @param blobId 引用计数归零的文件内容ID，为空时按文件路径检查引用
+     * @param filePath 物理文件路径
+     * @param md5Hash 文件MD5哈希值
+     */
+    void enqueue(Long blobId, String filePath, String md5Hash);
+    
+    /**
+     * 处理所有已到期的回收任务，引用计数已重新增加的内容会被保留
+     * 
+     * @return 本次处理完成的任务数
+     */
+    int reclaimPendingTasks();
+}
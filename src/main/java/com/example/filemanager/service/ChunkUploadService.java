@@ -0,0 +1,49 @@
+package com.example.filemanager.service;
+
+import com.example.filemanager.dto.request.ChunkUploadInitDTO;
+import com.example.filemanager.dto.response.ChunkUploadSessionDTO;
+import com.example.filemanager.dto.response.FileResponseDTO;
+
+import java.io.InputStream;
+
+/**
+ * 分片上传服务接口
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+public interface ChunkUploadService {
+    
+    /**
+     * 初始化分片上传会话
+     * 
+     * @param initDTO 初始化请求数据
+     * @return 会话信息（包含分片大小和分片总数）
+     */
+    ChunkUploadSessionDTO initSession(ChunkUploadInitDTO initDTO);
+    
+    /**
+     * 上传单个分片，同一会话的不同分片可以并发上传，重复上传同一分片会覆盖之前的内容
+     * 
+     * @param uploadId 上传会话标识
+     * @param chunkIndex 分片序号（从0开始）
+     * @param inputStream 分片内容
+     */
+    void uploadChunk(String uploadId, Integer chunkIndex, InputStream inputStream);
+    
+    /**
+     * 查询会话状态，包含已上传和缺失的分片序号，用于断点续传
+     * 
+     * @param uploadId 上传会话标识
+     * @return 会话信息
+     */
+    ChunkUploadSessionDTO getSession(String uploadId);
+    
+    /**
+     * 合并全部分片并登记文件
+     * 
+     * @param uploadId 上传会话标识
+     * @return 上传后的文件信息
+     */
+    FileResponseDTO completeSession(String uploadId);
+}
@@ -0,0 +1,31 @@
+package com.example.filemanager.service;
+
+import com.example.filemanager.dto.response.DirectoryDeleteJobDTO;
+
+/**
+ * 目录递归删除服务接口
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+public interface DirectoryDeleteService {
+    
+    /**
+     * 递归软删除目录及其所有子孙目录和文件
+     * <p>
+     * 规模较小时在当前线程内完成并返回已完成的任务；规模较大时转为后台任务，返回执行中的任务，
+     * 可通过 {@link #getJob(String)} 查询进度。同一目录已有执行中的任务时直接返回该任务。
+     * 
+     * @param id 目录ID
+     * @return 删除任务
+     */
+    DirectoryDeleteJobDTO deleteRecursively(Long id);
+    
+    /**
+     * 查询递归删除任务的进度
+     * 
+     * @param jobId 任务ID
+     * @return 删除任务
+     */
+    DirectoryDeleteJobDTO getJob(String jobId);
+}
@@ -57,6 +57,15 @@ public interface DirectoryService {
      */
     DirectoryResponseDTO getDirectoryById(Long id);
     
+    /**
+     * 获取以指定目录为根、向下指定层数的目录子树，用于目录树懒加载
+     * 
+     * @param id 目录ID
+     * @param depth 向下展开的层数，1表示只包含直接子目录
+     * @return 目录子树，最深一层的目录不包含children，可通过hasChildren判断是否可继续展开
+     */
+    DirectoryResponseDTO getDirectorySubtree(Long id, int depth);
+    
     /**
      * 创建新目录
      * 
@@ -0,0 +1,101 @@
+package com.example.filemanager.service;
+
+import com.example.filemanager.entity.Directory;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 目录树内存索引接口
+ * <p>
+ * 进程内维护 目录ID → 目录、父目录ID → 按名称排序的子目录 两张映射，目录读取不再访问数据库。
+ * 返回的目录对象均为副本，调用方修改后需通过 {@link #put(Directory)} 写回。
+ *
+ * @author system
+ * @since 2024-01-01
+ */
+public interface DirectoryTreeIndex {
+    
+    /**
+     * 根据ID获取未删除的目录
+     * 
+     * @param id 目录ID
+     * @return 目录副本，不存在时返回null
+     */
+    Directory getById(Long id);
+    
+    /**
+     * 获取直接子目录，按名称升序排列
+     * 
+     * @param parentId 父目录ID
+     * @return 子目录副本列表
+     */
+    List<Directory> getChildren(Long parentId);
+    
+    /**
+     * 按名称查找直接子目录，名称按与 directories.name 列排序规则近似一致的方式比较（忽略大小写、重音和尾部空格）
+     * 
+     * @param parentId 父目录ID
+     * @param name 目录名称
+     * @return 子目录副本，不存在时返回null
+     */
+    Directory getChildByName(Long parentId, String name);
+    
+    /**
+     * 获取直接子目录数量
+     * 
+     * @param id 目录ID
+     * @return 子目录数量
+     */
+    int countChildren(Long id);
+    
+    /**
+     * 获取系统根目录（parent_id = 0 的目录）
+     * 
+     * @return 根目录副本，不存在时返回null
+     */
+    Directory getRoot();
+    
+    /**
+     * 获取所有未删除的目录，按父目录ID、名称升序排列
+     * 
+     * @return 目录副本列表
+     */
+    List<Directory> getAll();
+    
+    /**
+     * 获取未删除的目录数量
+     * 
+     * @return 目录数量
+     */
+    long size();
+    
+    /**
+     * 写入或更新目录，数据库写入成功后调用；存在事务时在提交后生效
+     * 
+     * @param directory 目录信息
+     */
+    void put(Directory directory);
+    
+    /**
+     * 将目录所有子孙目录路径中的旧前缀替换为新前缀，数据库批量重写路径成功后调用；存在事务时在提交后生效
+     * 
+     * @param id 目录ID
+     * @param oldPath 目录的旧路径
+     * @param newPath 目录的新路径
+     * @param updatedAt 更新时间
+     */
+    void rewriteSubtreePaths(Long id, String oldPath, String newPath, LocalDateTime updatedAt);
+    
+    /**
+     * 移除目录，数据库删除成功后调用；存在事务时在提交后生效
+     * 
+     * @param id 目录ID
+     */
+    void remove(Long id);
+    
+    /**
+     * 从数据库重新加载整个索引
+     */
+    void reload();
+}
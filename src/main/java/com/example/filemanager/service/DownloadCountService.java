@@ -0,0 +1,26 @@
+package com.example.filemanager.service;
+
+/**
+ * 下载次数统计服务接口
+ * <p>
+ * 下载次数先在内存中累计，定期以一条批量UPDATE写入数据库，热门文件的下载不再争用同一行锁。
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+public interface DownloadCountService {
+    
+    /**
+     * 记录一次下载
+     * 
+     * @param fileId 文件ID
+     */
+    void increment(Long fileId);
+    
+    /**
+     * 将内存中累计的下载次数写入数据库
+     * 
+     * @return 本次写入的文件数
+     */
+    int flush();
+}
@@ -0,0 +1,27 @@
+package com.example.filemanager.service;
+
+import com.example.filemanager.dto.FileDownloadDescriptor;
+
+/**
+ * 文件下载描述信息服务接口
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+public interface DownloadDescriptorService {
+    
+    /**
+     * 获取文件的下载描述信息，优先从缓存读取
+     * 
+     * @param fileId 文件ID
+     * @return 下载描述信息，文件不存在或已删除时返回null
+     */
+    FileDownloadDescriptor getDescriptor(Long fileId);
+    
+    /**
+     * 使文件的下载描述信息失效，文件删除时调用
+     * 
+     * @param fileId 文件ID
+     */
+    void evict(Long fileId);
+}
@@ -0,0 +1,64 @@
+package com.example.filemanager.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 流式下载并发控制服务接口
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+public interface DownloadLimitService {
+    
+    /**
+     * 获取一个流式下载许可，下载结束后必须关闭许可
+     * 
+     * @param clientKey 客户端标识，即 {@code request.getRemoteAddr()}：同一NAT或代理之后的用户共用一个标识；
+     *                  部署在反向代理之后时需配置 {@code server.forward-headers-strategy}，否则所有请求都来自代理地址
+     * @return 下载许可
+     * @throws com.example.filemanager.common.exception.BusinessException 客户端或全局的并发下载数已达上限
+     */
+    DownloadPermit acquire(String clientKey);
+    
+    /**
+     * 流式下载许可，关闭时归还，重复关闭只归还一次
+     */
+    interface DownloadPermit extends AutoCloseable {
+        
+        @Override
+        void close();
+    }
+    
+    /**
+     * 持有下载许可的流式响应体，写出结束后归还许可
+     * <p>
+     * 异步任务超时、出错或未执行就结束时，写出不会发生，需要由调用方在请求结束时关闭以归还许可；
+     * 许可重复关闭只归还一次。
+     */
+    final class LimitedStream implements StreamingResponseBody, AutoCloseable {
+        
+        private final DownloadPermit permit;
+        
+        private final StreamingResponseBody body;
+        
+        public LimitedStream(DownloadPermit permit, StreamingResponseBody body) {
+            this.permit = permit;
+            this.body = body;
+        }
+        
+        @Override
+        public void writeTo(OutputStream outputStream) throws IOException {
+            try (permit) {
+                body.writeTo(outputStream);
+            }
+        }
+        
+        @Override
+        public void close() {
+            permit.close();
+        }
+    }
+}
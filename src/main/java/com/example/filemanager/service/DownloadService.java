@@ -0,0 +1,42 @@
+package com.example.filemanager.service;
+
+import com.example.filemanager.dto.FileDownloadDescriptor;
+import com.example.filemanager.service.DownloadLimitService.LimitedStream;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 文件下载服务接口
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+public interface DownloadService {
+    
+    /**
+     * 将文件内容写入响应，支持单区间和多区间的 Range 请求（206 Partial Content），
+     * If-Range 以文件MD5生成的 ETag 为准
+     * 
+     * @param fileId 文件ID
+     * @param request HTTP请求
+     * @param response HTTP响应，状态码和响应头在返回前设置完成
+     * @return 需要在下载线程池中写出的响应体；已在当前线程处理完成（304、416、零拷贝、内存缓存）时返回null
+     * @throws IOException 读取文件或写出响应失败（包括客户端断开连接）
+     */
+    LimitedStream download(Long fileId, HttpServletRequest request, HttpServletResponse response)
+            throws IOException;
+    
+    /**
+     * 按已知的文件信息下载（如签名下载链接中携带的信息），不访问数据库
+     * 
+     * @param descriptor 文件下载描述信息
+     * @param request HTTP请求
+     * @param response HTTP响应，状态码和响应头在返回前设置完成
+     * @return 需要在下载线程池中写出的响应体；已在当前线程处理完成时返回null
+     * @throws IOException 读取文件或写出响应失败（包括客户端断开连接）
+     */
+    LimitedStream download(FileDownloadDescriptor descriptor, HttpServletRequest request,
+                           HttpServletResponse response) throws IOException;
+}
@@ -0,0 +1,28 @@
+package com.example.filemanager.service;
+
+import com.example.filemanager.dto.response.CacheStatsResponseDTO;
+import com.example.filemanager.dto.FileDownloadDescriptor;
+
+/**
+ * 小文件内容缓存服务接口
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+public interface FileContentCacheService {
+    
+    /**
+     * 获取文件内容，命中时直接从内存返回，未命中时读取磁盘并尝试放入缓存
+     * 
+     * @param descriptor 文件下载描述信息
+     * @return 文件内容；缓存未启用、文件超过缓存大小上限或读取失败时返回null
+     */
+    byte[] getContent(FileDownloadDescriptor descriptor);
+    
+    /**
+     * 获取缓存统计信息
+     * 
+     * @return 缓存统计信息
+     */
+    CacheStatsResponseDTO getStats();
+}
@@ -1,10 +1,14 @@
 package com.example.filemanager.service;
 
+import com.example.filemanager.dto.request.InstantUploadDTO;
+import com.example.filemanager.dto.response.BatchUploadResultDTO;
 import com.example.filemanager.dto.response.FileResponseDTO;
+import com.example.filemanager.dto.response.InstantUploadResultDTO;
 import com.example.filemanager.dto.response.PageResponseDTO;
 import com.example.filemanager.entity.FileInfo;
 import org.springframework.web.multipart.MultipartFile;
 
+import jakarta.servlet.http.HttpServletRequest;
 import java.util.List;
 
 /**
@@ -25,6 +29,67 @@ public interface FileService {
      */
     FileResponseDTO uploadFile(MultipartFile file, Long directoryId, String description);
     
+    /**
+     * 流式上传文件：直接解析请求体中的multipart数据，边计算MD5边写入存储目录，不经过容器的临时文件
+     * <p>
+     * 只处理第一个文件字段；表单字段 description 需要放在文件字段之前才会生效。
+     * 
+     * @param request HTTP请求（multipart/form-data）
+     * @param directoryId 目录ID
+     * @return 上传后的文件信息
+     */
+    FileResponseDTO uploadFileStream(HttpServletRequest request, Long directoryId);
+    
+    /**
+     * 生成上传临时文件路径（位于上传根目录下的临时目录中，与最终存储位置同一文件系统）
+     * 
+     * @return 临时文件完整路径
+     */
+    String createTempFilePath();
+    
+    /**
+     * 将已写入临时文件并计算好MD5的上传内容登记入库
+     * <p>
+     * 存在相同MD5的文件时执行秒传并删除临时文件，否则将临时文件移动到目录对应的存储位置。
+     * 
+     * @param tempFilePath 临时文件路径（由 {@link #createTempFilePath()} 生成）
+     * @param md5Hash 文件MD5哈希值
+     * @param fileSize 文件大小（字节）
+     * @param originalFilename 原始文件名
+     * @param contentType MIME类型
+     * @param directoryId 目录ID
+     * @param description 文件描述（可选）
+     * @return 上传后的文件信息
+     */
+    FileResponseDTO storeTempFile(String tempFilePath, String md5Hash, long fileSize, String originalFilename,
+                                  String contentType, Long directoryId, String description);
+    
+    /**
+     * 秒传：根据文件哈希和大小查找已存在的相同内容，命中时直接登记文件记录，无需上传文件内容
+     * 
+     * @param instantUploadDTO 秒传请求数据
+     * @return 秒传结果，未命中时客户端需要上传文件
+     */
+    InstantUploadResultDTO instantUpload(InstantUploadDTO instantUploadDTO);
+    
+    /**
+     * 批量秒传，所有哈希在一次查询中完成比对
+     * 
+     * @param instantUploadDTOs 秒传请求数据列表
+     * @return 与请求顺序一致的秒传结果列表
+     */
+    List<InstantUploadResultDTO> instantUploadBatch(List<InstantUploadDTO> instantUploadDTOs);
+    
+    /**
+     * 批量上传文件到同一目录：并发写入文件，一次查询完成哈希比对，批量插入文件记录
+     * 
+     * @param files 上传的文件
+     * @param directoryId 目录ID
+     * @param description 文件描述（应用于所有文件）
+     * @return 批量上传结果，单个文件失败不影响其它文件
+     */
+    BatchUploadResultDTO uploadFiles(MultipartFile[] files, Long directoryId, String description);
+    
     /**
      * 根据目录ID获取文件列表
      * 
@@ -60,10 +125,10 @@ public interface FileService {
     boolean deleteFile(Long fileId);
     
     /**
-     * 更新文件下载次数
+     * 更新文件下载次数，计数先在内存中累计，定期批量写入数据库
      * 
      * @param fileId 文件ID
-     * @return 更新是否成功
+     * @return 是否已记录
      */
     boolean updateDownloadCount(Long fileId);
     
@@ -0,0 +1,37 @@
+package com.example.filemanager.service;
+
+/**
+ * gzip 压缩传输服务接口
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+public interface GzipCompressionService {
+    
+    /**
+     * 判断文件是否适合压缩传输（文本、CSV、JSON、XML等）
+     * 
+     * @param mimeType MIME类型
+     * @param fileName 文件名
+     * @return 是否适合压缩
+     */
+    boolean isCompressible(String mimeType, String fileName);
+    
+    /**
+     * 获取文件对应的预压缩文件路径
+     * 
+     * @param filePath 文件路径
+     * @return 预压缩文件路径
+     */
+    String getSidecarPath(String filePath);
+    
+    /**
+     * 在后台为文件生成预压缩文件；不适合压缩、小于阈值或预压缩文件已存在时跳过，后台繁忙时也会跳过
+     * 
+     * @param filePath 文件路径
+     * @param mimeType MIME类型
+     * @param fileName 文件名
+     * @param fileSize 文件大小
+     */
+    void precomputeAsync(String filePath, String mimeType, String fileName, long fileSize);
+}
@@ -0,0 +1,30 @@
+package com.example.filemanager.service;
+
+import com.example.filemanager.dto.FileDownloadDescriptor;
+import com.example.filemanager.dto.response.SignedDownloadUrlDTO;
+
+/**
+ * 签名下载链接服务接口
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+public interface SignedUrlService {
+    
+    /**
+     * 为文件签发有时效的下载链接，链接中包含下载所需的全部文件信息
+     * 
+     * @param fileId 文件ID
+     * @return 下载链接
+     */
+    SignedDownloadUrlDTO createDownloadUrl(Long fileId);
+    
+    /**
+     * 校验下载令牌的签名和有效期，并解析出文件信息，不访问数据库
+     * 
+     * @param token 下载令牌
+     * @return 文件下载描述信息
+     * @throws com.example.filemanager.common.exception.BusinessException 令牌无效或已过期
+     */
+    FileDownloadDescriptor verify(String token);
+}
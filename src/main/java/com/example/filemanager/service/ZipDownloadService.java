@@ -0,0 +1,38 @@
+package com.example.filemanager.service;
+
+import com.example.filemanager.service.DownloadLimitService.LimitedStream;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.List;
+
+/**
+ * 打包下载服务接口
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+public interface ZipDownloadService {
+    
+    /**
+     * 将目录及其所有子目录下的文件打包为ZIP写入响应，保留目录结构（包括空目录）
+     * 
+     * @param directoryId 目录ID
+     * @param request HTTP请求
+     * @param response HTTP响应，响应头在返回前设置完成
+     * @return 在下载线程池中写出压缩包的响应体
+     */
+    LimitedStream downloadDirectory(Long directoryId, HttpServletRequest request, HttpServletResponse response);
+    
+    /**
+     * 将选中的文件打包为ZIP写入响应，文件平铺在压缩包根目录
+     * 
+     * @param fileIds 文件ID列表
+     * @param zipName 压缩包名称（不含扩展名，可选）
+     * @param request HTTP请求
+     * @param response HTTP响应，响应头在返回前设置完成
+     * @return 在下载线程池中写出压缩包的响应体
+     */
+    LimitedStream downloadFiles(List<Long> fileIds, String zipName, HttpServletRequest request,
+                                HttpServletResponse response);
+}
@@ -0,0 +1,191 @@
+package com.example.filemanager.service.impl;
+
+import com.example.filemanager.common.constant.FileConstant;
+import com.example.filemanager.config.FileStorageConfig;
+import com.example.filemanager.entity.BlobReclaimTask;
+import com.example.filemanager.entity.FileBlob;
+import com.example.filemanager.mapper.BlobReclaimTaskMapper;
+import com.example.filemanager.mapper.FileBlobMapper;
+import com.example.filemanager.mapper.FileInfoMapper;
+import com.example.filemanager.service.BlobReclaimService;
+import com.example.filemanager.util.FileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 物理文件回收服务实现类
+ * <p>
+ * 回收任务与文件记录的删除在同一事务内写入，事务回滚时任务随之消失，物理文件不会被提前删除；
+ * 事务提交后唤醒后台线程处理，定时任务兜底处理遗漏和待重试的任务。
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+@Service
+public class BlobReclaimServiceImpl implements BlobReclaimService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BlobReclaimServiceImpl.class);
+    
+    /**
+     * 重试间隔上限（分钟）
+     */
+    private static final long MAX_RETRY_DELAY_MINUTES = 60;
+    
+    @Autowired
+    private BlobReclaimTaskMapper blobReclaimTaskMapper;
+    
+    @Autowired
+    private FileBlobMapper fileBlobMapper;
+    
+    @Autowired
+    private FileInfoMapper fileInfoMapper;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private FileStorageConfig fileStorageConfig;
+    
+    @Autowired
+    @Qualifier("reclaimTaskExecutor")
+    private Executor reclaimTaskExecutor;
+    
+    /**
+     * 保证同一时间只有一个线程在处理回收任务
+     */
+    private final AtomicBoolean reclaiming = new AtomicBoolean(false);
+    
+    @Override
+    public void enqueue(Long blobId, String filePath, String md5Hash) {
+        blobReclaimTaskMapper.insert(new BlobReclaimTask(blobId, filePath, md5Hash));
+        
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reclaimTaskExecutor.execute(BlobReclaimServiceImpl.this::reclaimPendingTasks);
+                }
+            });
+        }
+    }
+    
+    /**
+     * 定期处理回收任务，兜底处理唤醒失败和到期重试的任务
+     */
+    @Scheduled(fixedDelayString = "${file.reclaim.interval:30000}", initialDelay = 60 * 1000L)
+    public void scheduledReclaim() {
+        reclaimPendingTasks();
+    }
+    
+    @Override
+    public int reclaimPendingTasks() {
+        if (!reclaiming.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            int batchSize = fileStorageConfig.getReclaimBatchSize();
+            int reclaimed = 0;
+            List<BlobReclaimTask> tasks;
+            do {
+                tasks = blobReclaimTaskMapper.selectDueTasks(LocalDateTime.now(), batchSize);
+                reclaimed += reclaimBatch(tasks);
+            } while (tasks.size() == batchSize);
+            
+            if (reclaimed > 0) {
+                logger.info("物理文件回收完成，处理任务数：{}", reclaimed);
+            }
+            return reclaimed;
+        } catch (RuntimeException e) {
+            logger.error("处理物理文件回收任务失败", e);
+            return 0;
+        } finally {
+            reclaiming.set(false);
+        }
+    }
+    
+    /**
+     * 处理一批回收任务，完成的任务一次性删除，失败的任务推迟重试
+     */
+    private int reclaimBatch(List<BlobReclaimTask> tasks) {
+        List<Long> completedIds = new ArrayList<>(tasks.size());
+        for (BlobReclaimTask task : tasks) {
+            try {
+                reclaim(task);
+                completedIds.add(task.getId());
+            } catch (RuntimeException e) {
+                long delayMinutes = Math.min(1L << Math.min(task.getAttempts(), 6), MAX_RETRY_DELAY_MINUTES);
+                blobReclaimTaskMapper.markRetry(task.getId(), e.getMessage(),
+                        LocalDateTime.now().plusMinutes(delayMinutes));
+                logger.warn("物理文件回收失败，{}分钟后重试，任务：{}", delayMinutes, task, e);
+            }
+        }
+        if (!completedIds.isEmpty()) {
+            blobReclaimTaskMapper.deleteBatchIds(completedIds);
+        }
+        return completedIds.size();
+    }
+    
+    /**
+     * 内容引用计数仍为零时删除物理文件和内容记录
+     * <p>
+     * 检查和删除在同一事务内完成并持有内容行锁，上传时的引用登记会等待回收结束，
+     * 随后按插入新内容处理并补回物理文件。
+     */
+    private void reclaim(BlobReclaimTask task) {
+        if (task.getBlobId() == null) {
+            reclaimByPath(task);
+            return;
+        }
+        
+        transactionTemplate.executeWithoutResult(status -> {
+            FileBlob fileBlob = fileBlobMapper.selectByIdForUpdate(task.getBlobId());
+            if (fileBlob == null) {
+                return;
+            }
+            if (fileBlob.getRefCount() > 0) {
+                logger.info("保留物理文件，内容已被重新引用：{}", fileBlob);
+                return;
+            }
+            deletePhysicalFile(fileBlob.getStoragePath());
+            fileBlobMapper.deleteById(fileBlob.getId());
+        });
+    }
+    
+    /**
+     * 物理文件不再被任何未删除的文件记录引用时删除（内容表引入前登记的任务）
+     */
+    private void reclaimByPath(BlobReclaimTask task) {
+        long references = fileInfoMapper.countLiveReferences(task.getMd5Hash(), task.getFilePath());
+        if (references > 0) {
+            logger.info("保留物理文件，还有{}个记录指向该文件：{}", references, task.getFilePath());
+            return;
+        }
+        deletePhysicalFile(task.getFilePath());
+    }
+    
+    private void deletePhysicalFile(String filePath) {
+        File file = new File(filePath);
+        if (file.exists() && !FileUtil.deleteFile(filePath)) {
+            throw new RuntimeException("删除物理文件失败：" + filePath);
+        }
+        // 同时删除预压缩文件
+        String sidecarPath = filePath + FileConstant.GZIP_SIDECAR_SUFFIX;
+        if (new File(sidecarPath).exists() && !FileUtil.deleteFile(sidecarPath)) {
+            throw new RuntimeException("删除预压缩文件失败：" + sidecarPath);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.example.filemanager.service.impl;
+
+import com.example.filemanager.common.constant.FileConstant;
+import com.example.filemanager.common.exception.BusinessException;
+import com.example.filemanager.common.result.ResultCode;
+import com.example.filemanager.config.FileStorageConfig;
+import com.example.filemanager.dto.request.ChunkUploadInitDTO;
+import com.example.filemanager.dto.response.ChunkUploadSessionDTO;
+import com.example.filemanager.dto.response.FileResponseDTO;
+import com.example.filemanager.entity.Directory;
+import com.example.filemanager.entity.UploadSession;
+import com.example.filemanager.mapper.DirectoryMapper;
+import com.example.filemanager.mapper.UploadSessionMapper;
+import com.example.filemanager.service.ChunkUploadService;
+import com.example.filemanager.service.FileService;
+import com.example.filemanager.util.FileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 分片上传服务实现类
+ * <p>
+ * 每个分片单独写入上传根目录下 {@code .chunks/<uploadId>/} 中的文件，分片之间互不依赖，
+ * 因此可以并发上传；已上传的分片以磁盘上的文件为准，不需要逐片写数据库。
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+@Service
+public class ChunkUploadServiceImpl implements ChunkUploadService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ChunkUploadServiceImpl.class);
+    
+    /**
+     * 分片文件后缀
+     */
+    private static final String CHUNK_SUFFIX = ".chunk";
+    
+    @Autowired
+    private UploadSessionMapper uploadSessionMapper;
+    
+    @Autowired
+    private DirectoryMapper directoryMapper;
+    
+    @Autowired
+    private FileService fileService;
+    
+    @Autowired
+    private FileStorageConfig fileStorageConfig;
+    
+    @Override
+    public ChunkUploadSessionDTO initSession(ChunkUploadInitDTO initDTO) {
+        logger.info("初始化分片上传会话，请求数据：{}", initDTO);
+        
+        Directory directory = directoryMapper.selectById(initDTO.getDirectoryId());
+        if (directory == null) {
+            throw new BusinessException(ResultCode.DIRECTORY_NOT_FOUND);
+        }
+        
+        if (initDTO.getFileSize() > fileStorageConfig.getMaxChunkedFileSize()) {
+            throw new BusinessException(ResultCode.FILE_SIZE_EXCEED.getCode(), "文件大小超过限制，最大允许："
+                    + FileUtil.formatFileSize(fileStorageConfig.getMaxChunkedFileSize()));
+        }
+        
+        // 分片大小不能小于下限，避免分片数量过多
+        long chunkSize = initDTO.getChunkSize() != null ? initDTO.getChunkSize() : fileStorageConfig.getChunkSize();
+        if (chunkSize < FileConstant.MIN_CHUNK_SIZE) {
+            chunkSize = FileConstant.MIN_CHUNK_SIZE;
+        }
+        long totalChunks = (initDTO.getFileSize() + chunkSize - 1) / chunkSize;
+        
+        UploadSession session = new UploadSession();
+        session.setUploadId(UUID.randomUUID().toString().replace("-", ""));
+        session.setFileName(initDTO.getFileName());
+        session.setFileSize(initDTO.getFileSize());
+        session.setMimeType(initDTO.getMimeType());
+        session.setChunkSize(chunkSize);
+        session.setTotalChunks((int) totalChunks);
+        session.setDirectoryId(initDTO.getDirectoryId());
+        session.setDescription(initDTO.getDescription());
+        session.setStatus(UploadSession.STATUS_UPLOADING);
+        session.setCreatedAt(LocalDateTime.now());
+        session.setUpdatedAt(LocalDateTime.now());
+        session.setDeleted(0);
+        uploadSessionMapper.insert(session);
+        
+        if (!FileUtil.createDirectoryIfNotExists(getChunkDirectoryPath(session.getUploadId()))) {
+            throw new BusinessException(ResultCode.FILE_UPLOAD_ERROR);
+        }
+        
+        logger.info("分片上传会话创建成功，会话标识：{}，分片大小：{}，分片总数：{}", 
+            session.getUploadId(), chunkSize, totalChunks);
+        return convertToSessionDTO(session);
+    }
+    
+    @Override
+    public void uploadChunk(String uploadId, Integer chunkIndex, InputStream inputStream) {
+        UploadSession session = getRequiredSession(uploadId);
+        if (session.getStatus() != UploadSession.STATUS_UPLOADING) {
+            throw new BusinessException(ResultCode.UPLOAD_SESSION_BUSY);
+        }
+        if (chunkIndex == null || chunkIndex < 0 || chunkIndex >= session.getTotalChunks()) {
+            throw new BusinessException(ResultCode.UPLOAD_CHUNK_INVALID.getCode(), "分片序号不合法：" + chunkIndex);
+        }
+        
+        long expectedSize = getExpectedChunkSize(session, chunkIndex);
+        
+        // 先写入唯一的临时分片文件，校验大小后再原子重命名，保证并发重传同一分片时不会读到半个分片
+        String chunkDirectoryPath = getChunkDirectoryPath(uploadId);
+        File chunkFile = new File(chunkDirectoryPath, chunkIndex + CHUNK_SUFFIX);
+        File partFile = new File(chunkDirectoryPath,
+                chunkIndex + CHUNK_SUFFIX + "." + UUID.randomUUID().toString().replace("-", "") + ".part");
+        
+        long written;
+        try {
+            written = writeChunk(inputStream, partFile, expectedSize);
+        } catch (IOException e) {
+            FileUtil.deleteFile(partFile.getPath());
+            logger.error("写入分片失败，会话标识：{}，分片序号：{}", uploadId, chunkIndex, e);
+            throw new BusinessException(ResultCode.FILE_UPLOAD_ERROR.getCode(), "写入分片失败：" + e.getMessage());
+        }
+        
+        if (written != expectedSize) {
+            FileUtil.deleteFile(partFile.getPath());
+            throw new BusinessException(ResultCode.UPLOAD_CHUNK_INVALID.getCode(),
+                    "分片大小不正确，期望：" + expectedSize + "，实际：" + written);
+        }
+        
+        if (!FileUtil.moveFile(partFile.getPath(), chunkFile.getPath())) {
+            FileUtil.deleteFile(partFile.getPath());
+            throw new BusinessException(ResultCode.FILE_UPLOAD_ERROR);
+        }
+        
+        logger.debug("分片上传成功，会话标识：{}，分片序号：{}，大小：{}", uploadId, chunkIndex, written);
+    }
+    
+    @Override
+    public ChunkUploadSessionDTO getSession(String uploadId) {
+        return convertToSessionDTO(getRequiredSession(uploadId));
+    }
+    
+    @Override
+    public FileResponseDTO completeSession(String uploadId) {
+        logger.info("开始合并分片，会话标识：{}", uploadId);
+        
+        UploadSession session = getRequiredSession(uploadId);
+        if (session.getStatus() == UploadSession.STATUS_COMPLETED) {
+            // 重复提交完成请求时直接返回已生成的文件
+            return fileService.getFileById(session.getFileId());
+        }
+        
+        List<Integer> missingChunks = getMissingChunks(session, getUploadedChunks(session));
+        if (!missingChunks.isEmpty()) {
+            throw new BusinessException(ResultCode.UPLOAD_CHUNKS_INCOMPLETE.getCode(),
+                    "分片尚未全部上传，缺失分片数量：" + missingChunks.size());
+        }
+        
+        // 抢占合并权，防止并发的完成请求重复合并
+        if (uploadSessionMapper.updateStatus(uploadId, UploadSession.STATUS_UPLOADING,
+                UploadSession.STATUS_MERGING, null) == 0) {
+            throw new BusinessException(ResultCode.UPLOAD_SESSION_BUSY);
+        }
+        
+        try {
+            List<File> chunkFiles = new ArrayList<>(session.getTotalChunks());
+            for (int i = 0; i < session.getTotalChunks(); i++) {
+                chunkFiles.add(new File(getChunkDirectoryPath(uploadId), i + CHUNK_SUFFIX));
+            }
+            
+            String tempFilePath = fileService.createTempFilePath();
+            String md5Hash = FileUtil.mergeAndCalculateMD5(chunkFiles, tempFilePath);
+            if (md5Hash == null) {
+                throw new BusinessException(ResultCode.FILE_UPLOAD_ERROR.getCode(), "合并分片失败");
+            }
+            
+            FileResponseDTO fileResponse = fileService.storeTempFile(tempFilePath, md5Hash, session.getFileSize(),
+                    session.getFileName(), session.getMimeType(), session.getDirectoryId(), session.getDescription());
+            
+            uploadSessionMapper.updateStatus(uploadId, UploadSession.STATUS_MERGING,
+                    UploadSession.STATUS_COMPLETED, fileResponse.getId());
+            FileUtil.deleteDirectory(getChunkDirectoryPath(uploadId));
+            
+            logger.info("分片合并完成，会话标识：{}，文件ID：{}", uploadId, fileResponse.getId());
+            return fileResponse;
+        } catch (RuntimeException e) {
+            // 合并失败时恢复为上传中，允许客户端重试
+            uploadSessionMapper.updateStatus(uploadId, UploadSession.STATUS_MERGING,
+                    UploadSession.STATUS_UPLOADING, null);
+            logger.error("分片合并失败，会话标识：{}", uploadId, e);
+            throw e;
+        }
+    }
+    
+    /**
+     * 定期清理过期未完成的上传会话及其分片文件
+     */
+    @Scheduled(fixedDelay = 60 * 60 * 1000L, initialDelay = 10 * 60 * 1000L)
+    public void cleanupExpiredSessions() {
+        LocalDateTime expireBefore = LocalDateTime.now().minusHours(fileStorageConfig.getChunkSessionExpireHours());
+        List<UploadSession> expiredSessions = uploadSessionMapper.selectExpiredSessions(expireBefore);
+        long expireBeforeMillis = expireBefore.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        
+        int cleaned = 0;
+        for (UploadSession session : expiredSessions) {
+            File chunkDirectory = new File(getChunkDirectoryPath(session.getUploadId()));
+            // 仍有分片在持续写入的会话不清理
+            if (chunkDirectory.exists() && chunkDirectory.lastModified() > expireBeforeMillis) {
+                continue;
+            }
+            FileUtil.deleteDirectory(chunkDirectory.getPath());
+            uploadSessionMapper.deleteById(session.getId());
+            cleaned++;
+        }
+        
+        if (cleaned > 0) {
+            logger.info("清理过期分片上传会话完成，共清理{}个会话", cleaned);
+        }
+    }
+    
+    /**
+     * 查询会话，不存在时抛出业务异常
+     */
+    private UploadSession getRequiredSession(String uploadId) {
+        UploadSession session = uploadSessionMapper.selectByUploadId(uploadId);
+        if (session == null) {
+            throw new BusinessException(ResultCode.UPLOAD_SESSION_NOT_FOUND);
+        }
+        return session;
+    }
+    
+    /**
+     * 计算指定分片的期望大小，最后一个分片为剩余字节数
+     */
+    private long getExpectedChunkSize(UploadSession session, int chunkIndex) {
+        if (chunkIndex < session.getTotalChunks() - 1) {
+            return session.getChunkSize();
+        }
+        return session.getFileSize() - session.getChunkSize() * (session.getTotalChunks() - 1);
+    }
+    
+    /**
+     * 将分片内容写入文件，写入字节数超过期望大小时立即停止
+     * 
+     * @return 实际写入的字节数（超出时为期望大小加一）
+     */
+    private long writeChunk(InputStream inputStream, File partFile, long expectedSize) throws IOException {
+        byte[] buffer = new byte[FileConstant.STREAM_BUFFER_SIZE];
+        long written = 0;
+        try (OutputStream outputStream = new FileOutputStream(partFile)) {
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                if (written + bytesRead > expectedSize) {
+                    return expectedSize + 1;
+                }
+                outputStream.write(buffer, 0, bytesRead);
+                written += bytesRead;
+            }
+        }
+        return written;
+    }
+    
+    /**
+     * 获取会话的分片存放目录
+     */
+    private String getChunkDirectoryPath(String uploadId) {
+        return fileStorageConfig.getUploadPath() + File.separator + FileConstant.CHUNK_UPLOAD_DIR
+                + File.separator + uploadId;
+    }
+    
+    /**
+     * 根据磁盘上已存在的分片文件计算已上传的分片序号
+     */
+    private List<Integer> getUploadedChunks(UploadSession session) {
+        List<Integer> uploadedChunks = new ArrayList<>();
+        for (int i = 0; i < session.getTotalChunks(); i++) {
+            File chunkFile = new File(getChunkDirectoryPath(session.getUploadId()), i + CHUNK_SUFFIX);
+            if (chunkFile.isFile() && chunkFile.length() == getExpectedChunkSize(session, i)) {
+                uploadedChunks.add(i);
+            }
+        }
+        return uploadedChunks;
+    }
+    
+    /**
+     * 根据已上传的分片序号（升序）计算尚未上传的分片序号
+     */
+    private List<Integer> getMissingChunks(UploadSession session, List<Integer> uploadedChunks) {
+        List<Integer> missingChunks = new ArrayList<>();
+        int next = 0;
+        for (int i = 0; i < session.getTotalChunks(); i++) {
+            if (next < uploadedChunks.size() && uploadedChunks.get(next) == i) {
+                next++;
+            } else {
+                missingChunks.add(i);
+            }
+        }
+        return missingChunks;
+    }
+    
+    /**
+     * 将会话实体转换为响应DTO
+     */
+    private ChunkUploadSessionDTO convertToSessionDTO(UploadSession session) {
+        ChunkUploadSessionDTO dto = new ChunkUploadSessionDTO();
+        dto.setUploadId(session.getUploadId());
+        dto.setFileName(session.getFileName());
+        dto.setFileSize(session.getFileSize());
+        dto.setChunkSize(session.getChunkSize());
+        dto.setTotalChunks(session.getTotalChunks());
+        dto.setStatus(session.getStatus());
+        dto.setFileId(session.getFileId());
+        
+        if (session.getStatus() == UploadSession.STATUS_COMPLETED) {
+            dto.setUploadedChunks(new ArrayList<>());
+            dto.setMissingChunks(new ArrayList<>());
+            return dto;
+        }
+        
+        List<Integer> uploadedChunks = getUploadedChunks(session);
+        dto.setUploadedChunks(uploadedChunks);
+        dto.setMissingChunks(getMissingChunks(session, uploadedChunks));
+        return dto;
+    }
+}
@@ -0,0 +1,374 @@
+package com.example.filemanager.service.impl;
+
+import com.example.filemanager.common.exception.BusinessException;
+import com.example.filemanager.common.result.ResultCode;
+import com.example.filemanager.config.DirectoryConfig;
+import com.example.filemanager.dto.DirectoryFileCount;
+import com.example.filemanager.dto.response.DirectoryDeleteJobDTO;
+import com.example.filemanager.entity.Directory;
+import com.example.filemanager.entity.FileBlob;
+import com.example.filemanager.entity.FileInfo;
+import com.example.filemanager.mapper.DirectoryMapper;
+import com.example.filemanager.mapper.FileBlobMapper;
+import com.example.filemanager.mapper.FileInfoMapper;
+import com.example.filemanager.service.BlobReclaimService;
+import com.example.filemanager.service.DirectoryDeleteService;
+import com.example.filemanager.service.DirectoryTreeIndex;
+import com.example.filemanager.service.DownloadDescriptorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 目录递归删除服务实现类
+ * <p>
+ * 子树中的目录按层级从深到浅分批处理，每批一个短事务：锁定并软删除一批文件、按内容批量减少引用计数、
+ * 为引用归零的内容登记回收任务，文件删完后再软删除这批目录。中途失败时已提交的批次保持删除，
+ * 剩余部分仍是一棵完整的子树，可以重新发起删除。
+ * 删除一批目录的事务先锁定这批目录，读取子树之后才创建或移入的子目录会在这里被发现，
+ * 先删除这些子目录的子树再重试这一批，不会留下父目录已删除的目录。
+ * 任务进度只保存在本进程内存中。
+ *
+ * @author system
+ * @since 2024-01-01
+ */
+@Service
+public class DirectoryDeleteServiceImpl implements DirectoryDeleteService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryDeleteServiceImpl.class);
+    
+    @Autowired
+    private DirectoryMapper directoryMapper;
+    
+    @Autowired
+    private FileInfoMapper fileInfoMapper;
+    
+    @Autowired
+    private FileBlobMapper fileBlobMapper;
+    
+    @Autowired
+    private DirectoryTreeIndex directoryTreeIndex;
+    
+    @Autowired
+    private BlobReclaimService blobReclaimService;
+    
+    @Autowired
+    private DownloadDescriptorService downloadDescriptorService;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private DirectoryConfig directoryConfig;
+    
+    @Autowired
+    @Qualifier("directoryDeleteExecutor")
+    private Executor directoryDeleteExecutor;
+    
+    /**
+     * 任务ID到任务的映射
+     */
+    private final Map<String, DeleteJob> jobs = new ConcurrentHashMap<>();
+    
+    /**
+     * 目录ID到执行中任务的映射，防止对同一目录重复发起删除
+     */
+    private final Map<Long, DeleteJob> runningJobs = new ConcurrentHashMap<>();
+    
+    @Override
+    public DirectoryDeleteJobDTO deleteRecursively(Long id) {
+        logger.info("开始递归删除目录，ID：{}", id);
+        
+        // 从数据库读取目录，内存索引可能落后于其他节点的修改
+        Directory directory = directoryMapper.selectById(id);
+        if (directory == null) {
+            logger.warn("目录不存在或已删除，ID：{}", id);
+            throw new BusinessException(ResultCode.DIRECTORY_NOT_FOUND);
+        }
+        if (directory.getParentId() == null || directory.getParentId() == 0) {
+            logger.warn("不能删除根目录，ID：{}", id);
+            throw new BusinessException(ResultCode.DIRECTORY_ROOT_NOT_DELETABLE);
+        }
+        
+        DeleteJob running = runningJobs.get(id);
+        if (running != null) {
+            logger.info("目录已有执行中的删除任务，ID：{}，任务ID：{}", id, running.jobId);
+            return running.toDTO();
+        }
+        
+        List<Long> directoryIds = loadSubtreeIds(directory);
+        long totalFiles = countFiles(directoryIds);
+        
+        // 同步执行和后台任务都先登记，同一目录同时只有一个删除在执行
+        DeleteJob job = new DeleteJob(id, directoryIds.size(), totalFiles);
+        DeleteJob existing = runningJobs.putIfAbsent(id, job);
+        if (existing != null) {
+            logger.info("目录已有执行中的删除任务，ID：{}，任务ID：{}", id, existing.jobId);
+            return existing.toDTO();
+        }
+        jobs.put(job.jobId, job);
+        
+        if (directoryIds.size() + totalFiles <= directoryConfig.getDeleteSyncLimit()) {
+            try {
+                run(job, directoryIds);
+            } finally {
+                runningJobs.remove(id, job);
+            }
+            if (job.status == DirectoryDeleteJobDTO.STATUS_FAILED) {
+                throw new BusinessException(ResultCode.DIRECTORY_DELETE_ERROR);
+            }
+            return job.toDTO();
+        }
+        
+        try {
+            directoryDeleteExecutor.execute(() -> {
+                try {
+                    run(job, null);
+                } finally {
+                    runningJobs.remove(id, job);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            runningJobs.remove(id, job);
+            jobs.remove(job.jobId);
+            logger.error("提交目录删除任务失败，目录ID：{}", id, e);
+            throw new BusinessException(ResultCode.DIRECTORY_DELETE_ERROR);
+        }
+        
+        logger.info("目录删除转为后台任务，目录ID：{}，任务ID：{}，目录数：{}，文件数：{}",
+            id, job.jobId, directoryIds.size(), totalFiles);
+        return job.toDTO();
+    }
+    
+    @Override
+    public DirectoryDeleteJobDTO getJob(String jobId) {
+        DeleteJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new BusinessException(ResultCode.DIRECTORY_DELETE_JOB_NOT_FOUND);
+        }
+        return job.toDTO();
+    }
+    
+    /**
+     * 定期清理已结束且超过保留时间的任务
+     */
+    @Scheduled(fixedDelay = 60 * 1000L)
+    public void purgeFinishedJobs() {
+        LocalDateTime expireBefore = LocalDateTime.now().minusSeconds(directoryConfig.getDeleteJobRetention());
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(expireBefore));
+    }
+    
+    /**
+     * 统计目录下的未删除文件总数，按删除批次大小分批分组查询，避免 IN 列表过长
+     */
+    private long countFiles(List<Long> directoryIds) {
+        int batchSize = directoryConfig.getDeleteBatchSize();
+        long totalFiles = 0;
+        for (int from = 0; from < directoryIds.size(); from += batchSize) {
+            List<Long> batch = directoryIds.subList(from, Math.min(from + batchSize, directoryIds.size()));
+            for (DirectoryFileCount row : fileInfoMapper.countByDirectoryIds(batch)) {
+                totalFiles += row.getFileCount();
+            }
+        }
+        return totalFiles;
+    }
+    
+    /**
+     * 按路径前缀从数据库读取目录及其所有子孙目录的ID，子目录总在父目录之前
+     */
+    private List<Long> loadSubtreeIds(Directory directory) {
+        List<Directory> subtree = directoryMapper.selectSubtree(directory.getPath());
+        List<Long> directoryIds = new ArrayList<>(subtree.size());
+        // 按路径升序时父目录总在子孙目录之前，倒序后子目录先删除
+        for (int i = subtree.size() - 1; i >= 0; i--) {
+            directoryIds.add(subtree.get(i).getId());
+        }
+        return directoryIds;
+    }
+    
+    /**
+     * 按批删除子树，记录进度和结果，不抛出异常
+     * 
+     * @param job 删除任务
+     * @param directoryIds 子树中的目录ID（子目录在前）；为null时在开始执行时从数据库读取，
+     *                     后台任务可能排队较久，期间子树可能被移动、新建或删除
+     */
+    private void run(DeleteJob job, List<Long> directoryIds) {
+        try {
+            if (directoryIds == null) {
+                Directory directory = directoryMapper.selectById(job.directoryId);
+                directoryIds = directory == null ? Collections.emptyList() : loadSubtreeIds(directory);
+                job.totalDirectories = directoryIds.size();
+                job.totalFiles = countFiles(directoryIds);
+            }
+            deleteDirectories(job, directoryIds);
+            job.status = DirectoryDeleteJobDTO.STATUS_COMPLETED;
+            logger.info("递归删除目录完成，目录ID：{}，删除目录数：{}，删除文件数：{}",
+                job.directoryId, job.deletedDirectories.get(), job.deletedFiles.get());
+        } catch (Exception e) {
+            job.errorMessage = e.getMessage();
+            job.status = DirectoryDeleteJobDTO.STATUS_FAILED;
+            logger.error("递归删除目录失败，目录ID：{}，已删除目录数：{}，已删除文件数：{}",
+                job.directoryId, job.deletedDirectories.get(), job.deletedFiles.get(), e);
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+        }
+    }
+    
+    /**
+     * 按批删除目录（子目录在前）；某批目录下出现了不在列表中的子目录时，先删除这些子目录的子树再重试这一批
+     */
+    private void deleteDirectories(DeleteJob job, List<Long> directoryIds) {
+        int batchSize = directoryConfig.getDeleteBatchSize();
+        for (int from = 0; from < directoryIds.size(); from += batchSize) {
+            List<Long> batch = directoryIds.subList(from, Math.min(from + batchSize, directoryIds.size()));
+            
+            // 文件较多时分多个事务删除，最后一个事务同时删除这批目录
+            BatchResult result;
+            do {
+                result = transactionTemplate.execute(status -> deleteBatch(batch, batchSize));
+                job.deletedFiles.addAndGet(result.deletedFiles);
+                for (Directory straggler : result.newChildren) {
+                    logger.info("删除期间新增的子目录一并删除，目录ID：{}，子目录ID：{}，路径：{}",
+                        job.directoryId, straggler.getId(), straggler.getPath());
+                    List<Long> subtreeIds = loadSubtreeIds(straggler);
+                    job.totalDirectories += subtreeIds.size();
+                    job.totalFiles += countFiles(subtreeIds);
+                    deleteDirectories(job, subtreeIds);
+                }
+            } while (!result.directoriesDeleted);
+            job.deletedDirectories.addAndGet(batch.size());
+        }
+    }
+    
+    /**
+     * 在一个事务内删除一批目录下的至多 limit 个文件；文件已删完且没有列表外的子目录时同时软删除这批目录
+     * <p>
+     * 先锁定这批目录，创建子目录和移入目录需要锁定父目录，在本事务结束前会等待；
+     * 锁定后再查询子目录，读取子树之后新增的子目录不会被遗漏。
+     */
+    private BatchResult deleteBatch(List<Long> directoryIds, int limit) {
+        directoryMapper.selectByIdsForUpdate(directoryIds);
+        
+        List<FileInfo> files = fileInfoMapper.selectForDeleteByDirectoryIds(directoryIds, limit);
+        if (!files.isEmpty()) {
+            releaseFiles(files);
+        }
+        if (files.size() >= limit) {
+            return new BatchResult(files.size(), false, Collections.emptyList());
+        }
+        
+        // 子目录总在父目录之前的批次中删除，仍未删除且不在这一批中的子目录是读取子树之后新增的
+        List<Directory> newChildren = new ArrayList<>();
+        for (Directory child : directoryMapper.selectByParentIds(directoryIds)) {
+            if (!directoryIds.contains(child.getId())) {
+                newChildren.add(child);
+            }
+        }
+        if (!newChildren.isEmpty()) {
+            return new BatchResult(files.size(), false, newChildren);
+        }
+        
+        directoryMapper.deleteBatchIds(directoryIds);
+        for (Long directoryId : directoryIds) {
+            directoryTreeIndex.remove(directoryId);
+        }
+        return new BatchResult(files.size(), true, Collections.emptyList());
+    }
+    
+    /**
+     * 软删除文件记录并释放内容引用，引用归零的物理文件在事务提交后由回收任务异步处理
+     */
+    private void releaseFiles(List<FileInfo> files) {
+        List<Long> fileIds = new ArrayList<>(files.size());
+        Map<Long, Integer> blobReferences = new HashMap<>();
+        for (FileInfo fileInfo : files) {
+            fileIds.add(fileInfo.getId());
+            downloadDescriptorService.evict(fileInfo.getId());
+            if (fileInfo.getBlobId() == null) {
+                blobReclaimService.enqueue(null, fileInfo.getFilePath(), fileInfo.getMd5Hash());
+            } else {
+                blobReferences.merge(fileInfo.getBlobId(), 1, Integer::sum);
+            }
+        }
+        fileInfoMapper.deleteBatchIds(fileIds);
+        
+        if (!blobReferences.isEmpty()) {
+            fileBlobMapper.decrementRefCounts(blobReferences);
+            for (FileBlob fileBlob : fileBlobMapper.selectBatchIds(blobReferences.keySet())) {
+                if (fileBlob.getRefCount() <= 0) {
+                    blobReclaimService.enqueue(fileBlob.getId(), fileBlob.getStoragePath(), fileBlob.getMd5Hash());
+                }
+            }
+        }
+    }
+    
+    /**
+     * 一个批次事务的结果：删除的文件数、这批目录是否已删除、读取子树之后新增且需要先删除的子目录
+     */
+    private static class BatchResult {
+        private final int deletedFiles;
+        private final boolean directoriesDeleted;
+        private final List<Directory> newChildren;
+        
+        BatchResult(int deletedFiles, boolean directoriesDeleted, List<Directory> newChildren) {
+            this.deletedFiles = deletedFiles;
+            this.directoriesDeleted = directoriesDeleted;
+            this.newChildren = newChildren;
+        }
+    }
+    
+    /**
+     * 删除任务的运行状态，进度字段由执行线程更新、查询线程读取
+     */
+    private static class DeleteJob {
+        private final String jobId = UUID.randomUUID().toString().replace("-", "");
+        private final Long directoryId;
+        private volatile int totalDirectories;
+        private volatile long totalFiles;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final AtomicInteger deletedDirectories = new AtomicInteger();
+        private final AtomicLong deletedFiles = new AtomicLong();
+        private volatile int status = DirectoryDeleteJobDTO.STATUS_RUNNING;
+        private volatile String errorMessage;
+        private volatile LocalDateTime finishedAt;
+        
+        DeleteJob(Long directoryId, int totalDirectories, long totalFiles) {
+            this.directoryId = directoryId;
+            this.totalDirectories = totalDirectories;
+            this.totalFiles = totalFiles;
+        }
+        
+        DirectoryDeleteJobDTO toDTO() {
+            DirectoryDeleteJobDTO dto = new DirectoryDeleteJobDTO();
+            dto.setJobId(jobId);
+            dto.setDirectoryId(directoryId);
+            dto.setStatus(status);
+            dto.setTotalDirectories(totalDirectories);
+            dto.setDeletedDirectories(deletedDirectories.get());
+            dto.setTotalFiles(totalFiles);
+            dto.setDeletedFiles(deletedFiles.get());
+            dto.setErrorMessage(errorMessage);
+            dto.setCreatedAt(createdAt);
+            dto.setFinishedAt(finishedAt);
+            return dto;
+        }
+    }
+}
@@ -1,9 +1,10 @@
 package com.example.filemanager.service.impl;
 
-import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.example.filemanager.common.exception.BusinessException;
 import com.example.filemanager.common.result.ResultCode;
+import com.example.filemanager.dto.DirectoryFileCount;
 import com.example.filemanager.dto.request.DirectoryCreateDTO;
 import com.example.filemanager.dto.request.DirectoryMoveDTO;
 import com.example.filemanager.dto.request.DirectoryUpdateDTO;
@@ -12,17 +13,26 @@ import com.example.filemanager.dto.response.DirectoryResponseDTO;
 import com.example.filemanager.dto.response.PageResponseDTO;
 import com.example.filemanager.entity.Directory;
 import com.example.filemanager.mapper.DirectoryMapper;
+import com.example.filemanager.mapper.FileInfoMapper;
 import com.example.filemanager.service.DirectoryService;
+import com.example.filemanager.service.DirectoryTreeIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 
 /**
  * 目录服务实现类
@@ -35,19 +45,32 @@ public class DirectoryServiceImpl implements DirectoryService {
     
     private static final Logger logger = LoggerFactory.getLogger(DirectoryServiceImpl.class);
     
+    /**
+     * 统计文件数量时每次查询的目录数量上限
+     */
+    private static final int FILE_COUNT_BATCH_SIZE = 1000;
+    
     @Autowired
     private DirectoryMapper directoryMapper;
     
+    @Autowired
+    private DirectoryTreeIndex directoryTreeIndex;
+    
+    @Autowired
+    private FileInfoMapper fileInfoMapper;
+    
     @Override
     public List<DirectoryResponseDTO> getAllDirectories() {
         try {
             logger.info("开始查询所有目录");
-            List<Directory> directories = directoryMapper.selectAllDirectories();
+            List<Directory> directories = directoryTreeIndex.getAll();
             
             List<DirectoryResponseDTO> result = new ArrayList<>();
             for (Directory directory : directories) {
                 result.add(convertToResponseDTO(directory));
             }
+            // 全部目录只填充子目录数量，文件数量需要对所有目录做分组统计，按需通过分页或子树接口获取
+            fillCounts(result, false);
             
             logger.info("查询所有目录完成，共{}个目录", result.size());
             return result;
@@ -74,6 +97,7 @@ public class DirectoryServiceImpl implements DirectoryService {
             for (Directory directory : pageResult.getRecords()) {
                 directoryDTOs.add(convertToResponseDTO(directory));
             }
+            fillCounts(directoryDTOs, true);
             
             // 构建分页响应对象
             PageResponseDTO<DirectoryResponseDTO> result = new PageResponseDTO<>(
@@ -98,40 +122,14 @@ public class DirectoryServiceImpl implements DirectoryService {
     public List<DirectoryResponseDTO> getDirectoryTree() {
         try {
             logger.info("开始构建目录树");
-            List<Directory> allDirectories = directoryMapper.selectAllDirectories();
             
-            // 将所有目录转换为DTO
-            Map<Long, DirectoryResponseDTO> directoryMap = new HashMap<>();
+            // 从内存索引按父子关系构建，子目录已按名称排序
             List<DirectoryResponseDTO> rootDirectories = new ArrayList<>();
-            
-            // 先将所有目录转换为DTO并建立映射
-            for (Directory directory : allDirectories) {
-                DirectoryResponseDTO dto = convertToResponseDTO(directory);
-                dto.setChildren(new ArrayList<>());
-                directoryMap.put(directory.getId(), dto);
-            }
-            
-            // 构建树形结构
-            for (Directory directory : allDirectories) {
-                DirectoryResponseDTO currentDto = directoryMap.get(directory.getId());
-                
-                if (directory.getParentId() == null || directory.getParentId() == 0) {
-                    // 根目录
-                    rootDirectories.add(currentDto);
-                } else {
-                    // 子目录，添加到父目录的children中
-                    DirectoryResponseDTO parentDto = directoryMap.get(directory.getParentId());
-                    if (parentDto != null) {
-                        parentDto.getChildren().add(currentDto);
-                        parentDto.setHasChildren(true);
-                    }
-                }
-            }
-            
-            // 设置hasChildren标志
-            for (DirectoryResponseDTO dto : directoryMap.values()) {
-                dto.setHasChildren(dto.getChildren() != null && !dto.getChildren().isEmpty());
+            for (Directory root : directoryTreeIndex.getChildren(0L)) {
+                rootDirectories.add(buildTreeNode(root, Integer.MAX_VALUE));
             }
+            // 整棵目录树只填充子目录数量，不统计文件数量
+            fillCounts(rootDirectories, false);
             
             logger.info("构建目录树完成，根目录数量：{}", rootDirectories.size());
             return rootDirectories;
@@ -146,12 +144,13 @@ public class DirectoryServiceImpl implements DirectoryService {
     public List<DirectoryResponseDTO> getDirectoriesByParentId(Long parentId) {
         try {
             logger.info("查询父目录ID为{}的子目录", parentId);
-            List<Directory> directories = directoryMapper.selectByParentId(parentId);
+            List<Directory> directories = directoryTreeIndex.getChildren(parentId);
             
             List<DirectoryResponseDTO> result = new ArrayList<>();
             for (Directory directory : directories) {
                 result.add(convertToResponseDTO(directory));
             }
+            fillCounts(result, true);
             
             logger.info("查询子目录完成，共{}个子目录", result.size());
             return result;
@@ -166,14 +165,15 @@ public class DirectoryServiceImpl implements DirectoryService {
     public DirectoryResponseDTO getDirectoryById(Long id) {
         try {
             logger.info("查询目录详情，ID：{}", id);
-            Directory directory = directoryMapper.selectById(id);
+            Directory directory = directoryTreeIndex.getById(id);
             
-            if (directory == null || directory.getDeleted() == 1) {
+            if (directory == null) {
                 logger.warn("目录不存在，ID：{}", id);
                 throw new BusinessException(ResultCode.DIRECTORY_NOT_FOUND);
             }
             
             DirectoryResponseDTO result = convertToResponseDTO(directory);
+            fillCounts(Collections.singletonList(result), true);
             logger.info("查询目录详情完成，目录名称：{}", result.getName());
             return result;
             
@@ -186,42 +186,88 @@ public class DirectoryServiceImpl implements DirectoryService {
     }
     
     @Override
+    public DirectoryResponseDTO getDirectorySubtree(Long id, int depth) {
+        try {
+            logger.info("查询目录子树，ID：{}，层数：{}", id, depth);
+            Directory directory = directoryTreeIndex.getById(id);
+            
+            if (directory == null) {
+                logger.warn("目录不存在，ID：{}", id);
+                throw new BusinessException(ResultCode.DIRECTORY_NOT_FOUND);
+            }
+            
+            DirectoryResponseDTO result = buildTreeNode(directory, depth);
+            fillCounts(Collections.singletonList(result), true);
+            logger.info("查询目录子树完成，目录名称：{}", result.getName());
+            return result;
+            
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("查询目录子树失败，ID：{}", id, e);
+            throw new BusinessException(ResultCode.SYSTEM_ERROR);
+        }
+    }
+    
+    @Override
+    @Transactional
     public DirectoryResponseDTO updateDirectory(Long id, DirectoryUpdateDTO updateDTO) {
         try {
             logger.info("开始更新目录，ID：{}，请求数据：{}", id, updateDTO);
             
-            // 检查目录是否存在
-            Directory existingDirectory = directoryMapper.selectById(id);
-            if (existingDirectory == null || existingDirectory.getDeleted() == 1) {
+            // 在事务中从数据库读取并锁定目录，内存索引中的副本可能已被其他节点修改，只用于读取
+            Directory existingDirectory = directoryMapper.selectByIdForUpdate(id);
+            if (existingDirectory == null) {
                 logger.warn("目录不存在或已删除，ID：{}", id);
                 throw new BusinessException(ResultCode.DIRECTORY_NOT_FOUND);
             }
             
             // 检查名称是否重复（同一父目录下不能有重名目录）
-            if (!existingDirectory.getName().equals(updateDTO.getName())) {
-                // 查询同一父目录下是否已存在同名目录
-                List<Directory> siblings = directoryMapper.selectByParentId(existingDirectory.getParentId());
-                boolean nameExists = siblings.stream()
-                    .anyMatch(dir -> !dir.getId().equals(id) && dir.getName().equals(updateDTO.getName()));
-                
-                if (nameExists) {
+            boolean renamed = !existingDirectory.getName().equals(updateDTO.getName());
+            if (renamed) {
+                // 查询同一父目录下是否已存在同名目录，并发时由数据库唯一键兜底
+                if (isNameTaken(existingDirectory.getParentId(), updateDTO.getName(), id)) {
                     logger.warn("同一父目录下已存在同名目录，父目录ID：{}，目录名称：{}", 
                         existingDirectory.getParentId(), updateDTO.getName());
                     throw new BusinessException(ResultCode.DIRECTORY_NAME_DUPLICATE);
                 }
             }
             
-            // 更新字段
-            existingDirectory.setName(updateDTO.getName());
-            existingDirectory.setDescription(updateDTO.getDescription());
-            existingDirectory.setUpdatedAt(LocalDateTime.now());
+            // 重命名时同步更新路径（根目录路径固定为 /）。新路径由锁定行自身的路径推出：
+            // 父目录被并发移动时，移动方重写子孙路径需要等待本行的锁，本事务提交后再按新前缀重写
+            String oldPath = existingDirectory.getPath();
+            String newPath = oldPath;
+            if (renamed && !isRootDirectory(existingDirectory)) {
+                newPath = oldPath.substring(0, oldPath.lastIndexOf('/') + 1) + updateDTO.getName();
+            }
+            
+            // 只更新发生变化的列，未传描述时保留原描述
+            LocalDateTime now = LocalDateTime.now();
+            LambdaUpdateWrapper<Directory> updateWrapper = new LambdaUpdateWrapper<Directory>()
+                    .eq(Directory::getId, id)
+                    .set(Directory::getName, updateDTO.getName())
+                    .set(Directory::getPath, newPath)
+                    .set(updateDTO.getDescription() != null, Directory::getDescription, updateDTO.getDescription())
+                    .set(Directory::getUpdatedAt, now);
             
             // 执行更新
-            int updateResult = directoryMapper.updateById(existingDirectory);
+            int updateResult = directoryMapper.update(null, updateWrapper);
             if (updateResult <= 0) {
                 logger.error("更新目录失败，ID：{}", id);
                 throw new BusinessException(ResultCode.SYSTEM_ERROR);
             }
+            existingDirectory.setName(updateDTO.getName());
+            existingDirectory.setPath(newPath);
+            if (updateDTO.getDescription() != null) {
+                existingDirectory.setDescription(updateDTO.getDescription());
+            }
+            existingDirectory.setUpdatedAt(now);
+            directoryTreeIndex.put(existingDirectory);
+            
+            // 路径变化时一次性重写所有子孙目录的路径，与本目录的更新在同一事务中
+            if (!newPath.equals(oldPath)) {
+                rewriteSubtreePaths(id, oldPath, newPath, now);
+            }
             
             // 返回更新后的数据
             DirectoryResponseDTO result = convertToResponseDTO(existingDirectory);
@@ -230,6 +276,9 @@ public class DirectoryServiceImpl implements DirectoryService {
             
         } catch (BusinessException e) {
             throw e;
+        } catch (DuplicateKeyException e) {
+            logger.warn("同一父目录下已存在同名目录，目录ID：{}，目录名称：{}", id, updateDTO.getName());
+            throw new BusinessException(ResultCode.DIRECTORY_NAME_DUPLICATE);
         } catch (Exception e) {
             logger.error("更新目录失败，ID：{}", id, e);
             throw new BusinessException(ResultCode.SYSTEM_ERROR);
@@ -237,22 +286,23 @@ public class DirectoryServiceImpl implements DirectoryService {
     }
 
     @Override
+    @Transactional
     public DeleteResultDTO deleteDirectory(Long id) {
         try {
             logger.info("开始软删除目录，ID：{}", id);
             
-            // 检查目录是否存在
-            Directory existingDirectory = directoryMapper.selectById(id);
-            if (existingDirectory == null || existingDirectory.getDeleted() == 1) {
+            // 在事务中从数据库读取并锁定目录，在此目录下创建或移入子目录需要锁定同一行，会等待删除结束
+            Directory existingDirectory = directoryMapper.selectByIdForUpdate(id);
+            if (existingDirectory == null) {
                 logger.warn("目录不存在或已删除，ID：{}", id);
                 return DeleteResultDTO.error(ResultCode.DIRECTORY_NOT_FOUND.getCode(), 
                     ResultCode.DIRECTORY_NOT_FOUND.getMessage());
             }
             
-            // 检查是否有子目录
-            List<Directory> children = directoryMapper.selectByParentId(id);
-            if (!children.isEmpty()) {
-                logger.warn("目录下存在子目录，无法删除，ID：{}，子目录数量：{}", id, children.size());
+            // 检查是否有子目录，其他节点新建的子目录可能还不在本节点的内存索引中，从数据库统计
+            long childCount = directoryMapper.countByParentId(id);
+            if (childCount > 0) {
+                logger.warn("目录下存在子目录，无法删除，ID：{}，子目录数量：{}", id, childCount);
                 return DeleteResultDTO.error(ResultCode.DIRECTORY_HAS_CHILDREN.getCode(), 
                     ResultCode.DIRECTORY_HAS_CHILDREN.getMessage());
             }
@@ -264,6 +314,7 @@ public class DirectoryServiceImpl implements DirectoryService {
                 return DeleteResultDTO.error(ResultCode.SYSTEM_ERROR.getCode(), 
                     ResultCode.SYSTEM_ERROR.getMessage());
             }
+            directoryTreeIndex.remove(id);
             
             logger.info("软删除目录成功，ID：{}，目录名称：{}", id, existingDirectory.getName());
             return DeleteResultDTO.success("删除目录成功");
@@ -276,6 +327,7 @@ public class DirectoryServiceImpl implements DirectoryService {
     }
     
     @Override
+    @Transactional
     public DirectoryResponseDTO createDirectory(DirectoryCreateDTO createDTO) {
         try {
             logger.info("开始创建目录，请求数据：{}", createDTO);
@@ -295,26 +347,22 @@ public class DirectoryServiceImpl implements DirectoryService {
                 parentId = createDTO.getParentId();
             }
             
-            // 检查父目录是否存在
-            Directory parentDirectory = directoryMapper.selectById(parentId);
-            if (parentDirectory == null || parentDirectory.getDeleted() == 1) {
+            // 检查父目录是否存在：从数据库读取并加共享锁，创建期间父目录不会被移动或重命名，路径不会过期
+            Directory parentDirectory = directoryMapper.selectByIdForShare(parentId);
+            if (parentDirectory == null) {
                 logger.warn("父目录不存在，父目录ID：{}", parentId);
                 throw new BusinessException(ResultCode.DIRECTORY_NOT_FOUND);
             }
             
             // 检查同一父目录下是否已存在同名目录
-            List<Directory> siblings = directoryMapper.selectByParentId(parentId);
-            boolean nameExists = siblings.stream()
-                .anyMatch(dir -> dir.getName().equals(createDTO.getName()));
-            
-            if (nameExists) {
+            if (isNameTaken(parentId, createDTO.getName(), null)) {
                 logger.warn("同一父目录下已存在同名目录，父目录ID：{}，目录名称：{}", 
                     parentId, createDTO.getName());
                 throw new BusinessException(ResultCode.DIRECTORY_NAME_DUPLICATE);
             }
             
             // 生成目录路径
-            String path = generateDirectoryPath(parentId, createDTO.getName());
+            String path = generateDirectoryPath(parentDirectory, createDTO.getName());
             
             // 创建目录对象
             Directory newDirectory = new Directory();
@@ -332,6 +380,7 @@ public class DirectoryServiceImpl implements DirectoryService {
                 logger.error("创建目录失败，请求数据：{}", createDTO);
                 throw new BusinessException(ResultCode.SYSTEM_ERROR);
             }
+            directoryTreeIndex.put(newDirectory);
             
             // 返回创建后的目录信息
             DirectoryResponseDTO result = convertToResponseDTO(newDirectory);
@@ -340,6 +389,9 @@ public class DirectoryServiceImpl implements DirectoryService {
             
         } catch (BusinessException e) {
             throw e;
+        } catch (DuplicateKeyException e) {
+            logger.warn("同一父目录下已存在同名目录，目录名称：{}", createDTO.getName());
+            throw new BusinessException(ResultCode.DIRECTORY_NAME_DUPLICATE);
         } catch (Exception e) {
             logger.error("创建目录失败，请求数据：{}", createDTO, e);
             throw new BusinessException(ResultCode.SYSTEM_ERROR);
@@ -347,38 +399,44 @@ public class DirectoryServiceImpl implements DirectoryService {
     }
     
     @Override
+    @Transactional
     public DirectoryResponseDTO moveDirectory(Long id, DirectoryMoveDTO moveDTO) {
         try {
             logger.info("开始移动目录，目录ID：{}，移动请求：{}", id, moveDTO);
             
-            // 检查要移动的目录是否存在
-            Directory directoryToMove = directoryMapper.selectById(id);
-            if (directoryToMove == null || directoryToMove.getDeleted() == 1) {
-                logger.warn("要移动的目录不存在，目录ID：{}", id);
-                throw new BusinessException(ResultCode.DIRECTORY_NOT_FOUND);
-            }
-            
-            // 不能移动根目录
-            if (directoryToMove.getParentId() != null && directoryToMove.getParentId() == 0) {
-                logger.warn("不能移动根目录，目录ID：{}", id);
-                throw new BusinessException(ResultCode.DIRECTORY_NOT_FOUND); // 可以定义一个新的错误码
-            }
-            
             // 处理新的父目录ID
+            Directory rootDirectory = findRootDirectory();
+            if (rootDirectory == null) {
+                logger.error("系统根目录不存在");
+                throw new BusinessException(ResultCode.SYSTEM_ERROR);
+            }
             Long newParentId;
             if (moveDTO.getNewParentId() == null || moveDTO.getNewParentId() == 0) {
                 // 移动到根目录下
-                Directory rootDirectory = findRootDirectory();
-                if (rootDirectory == null) {
-                    logger.error("系统根目录不存在");
-                    throw new BusinessException(ResultCode.SYSTEM_ERROR);
-                }
                 newParentId = rootDirectory.getId();
                 logger.info("移动到根目录下，根目录ID：{}", newParentId);
             } else {
                 newParentId = moveDTO.getNewParentId();
             }
             
+            // 在事务中从数据库读取并锁定要移动的目录和新的父目录，内存索引中的副本可能已被其他节点修改。
+            // 同时锁定根目录，使所有移动操作串行执行：A 移入 B 的子孙、B 同时移入 A 的子孙时，两者锁定的行没有交集，
+            // 只锁这两行无法阻止它们都通过循环检查
+            Map<Long, Directory> lockedDirectories = lockDirectories(rootDirectory.getId(), id, newParentId);
+            
+            // 检查要移动的目录是否存在
+            Directory directoryToMove = lockedDirectories.get(id);
+            if (directoryToMove == null) {
+                logger.warn("要移动的目录不存在，目录ID：{}", id);
+                throw new BusinessException(ResultCode.DIRECTORY_NOT_FOUND);
+            }
+            
+            // 不能移动根目录
+            if (isRootDirectory(directoryToMove)) {
+                logger.warn("不能移动根目录，目录ID：{}", id);
+                throw new BusinessException(ResultCode.DIRECTORY_ROOT_NOT_MOVABLE);
+            }
+            
             // 如果新父目录和当前父目录相同，无需移动
             if (newParentId.equals(directoryToMove.getParentId())) {
                 logger.info("目录已在目标位置，无需移动，目录ID：{}", id);
@@ -386,47 +444,50 @@ public class DirectoryServiceImpl implements DirectoryService {
             }
             
             // 检查新的父目录是否存在
-            Directory newParentDirectory = directoryMapper.selectById(newParentId);
-            if (newParentDirectory == null || newParentDirectory.getDeleted() == 1) {
+            Directory newParentDirectory = lockedDirectories.get(newParentId);
+            if (newParentDirectory == null) {
                 logger.warn("新的父目录不存在，父目录ID：{}", newParentId);
                 throw new BusinessException(ResultCode.DIRECTORY_NOT_FOUND);
             }
             
-            // 检查是否移动到自己的子目录下（防止循环引用）
-            if (isChildDirectory(id, newParentId)) {
+            // 检查是否移动到自己的子目录下（防止循环引用），基于锁定的数据库记录判断
+            if (isSameOrDescendant(directoryToMove, newParentDirectory)) {
                 logger.warn("不能移动到自己的子目录下，目录ID：{}，目标父目录ID：{}", id, newParentId);
-                throw new BusinessException(ResultCode.SYSTEM_ERROR); // 可以定义一个新的错误码
+                throw new BusinessException(ResultCode.DIRECTORY_MOVE_INTO_SUBTREE);
             }
             
             // 检查新父目录下是否已存在同名目录
-            List<Directory> siblings = directoryMapper.selectByParentId(newParentId);
-            boolean nameExists = siblings.stream()
-                .anyMatch(dir -> !dir.getId().equals(id) && dir.getName().equals(directoryToMove.getName()));
-            
-            if (nameExists) {
+            if (isNameTaken(newParentId, directoryToMove.getName(), id)) {
                 logger.warn("目标父目录下已存在同名目录，父目录ID：{}，目录名称：{}", 
                     newParentId, directoryToMove.getName());
                 throw new BusinessException(ResultCode.DIRECTORY_NAME_DUPLICATE);
             }
             
             // 计算新的路径
-            String newPath = generateDirectoryPath(newParentId, directoryToMove.getName());
+            String newPath = generateDirectoryPath(newParentDirectory, directoryToMove.getName());
             String oldPath = directoryToMove.getPath();
             
-            // 更新目录信息
-            directoryToMove.setParentId(newParentId);
-            directoryToMove.setPath(newPath);
-            directoryToMove.setUpdatedAt(LocalDateTime.now());
+            // 只更新发生变化的列
+            LocalDateTime now = LocalDateTime.now();
+            LambdaUpdateWrapper<Directory> updateWrapper = new LambdaUpdateWrapper<Directory>()
+                    .eq(Directory::getId, id)
+                    .set(Directory::getParentId, newParentId)
+                    .set(Directory::getPath, newPath)
+                    .set(Directory::getUpdatedAt, now);
             
             // 执行更新
-            int updateResult = directoryMapper.updateById(directoryToMove);
+            int updateResult = directoryMapper.update(null, updateWrapper);
             if (updateResult <= 0) {
                 logger.error("移动目录失败，目录ID：{}", id);
                 throw new BusinessException(ResultCode.SYSTEM_ERROR);
             }
+            directoryToMove.setParentId(newParentId);
+            directoryToMove.setPath(newPath);
+            directoryToMove.setUpdatedAt(now);
+            directoryTreeIndex.put(directoryToMove);
             
-            // 递归更新所有子目录的路径
-            updateChildrenPaths(id, oldPath, newPath);
+            // 一次性重写所有子孙目录的路径，与本目录的更新在同一事务中
+            rewriteSubtreePaths(id, oldPath, newPath, now);
             
             // 返回移动后的目录信息
             DirectoryResponseDTO result = convertToResponseDTO(directoryToMove);
@@ -435,6 +496,9 @@ public class DirectoryServiceImpl implements DirectoryService {
             
         } catch (BusinessException e) {
             throw e;
+        } catch (DuplicateKeyException e) {
+            logger.warn("目标父目录下已存在同名目录，目录ID：{}，目标父目录ID：{}", id, moveDTO.getNewParentId());
+            throw new BusinessException(ResultCode.DIRECTORY_NAME_DUPLICATE);
         } catch (Exception e) {
             logger.error("移动目录失败，目录ID：{}", id, e);
             throw new BusinessException(ResultCode.SYSTEM_ERROR);
@@ -442,84 +506,55 @@ public class DirectoryServiceImpl implements DirectoryService {
     }
     
     /**
-     * 检查目标目录是否是当前目录的子目录（防止循环引用）
+     * 检查同一父目录下是否已存在同名的其他目录
+     * <p>
+     * 只做快速预检，按名称在内存索引的有序子目录中查找，耗时与同级目录数量无关；名称按列的排序规则
+     * （忽略大小写、重音和尾部空格）比较，与唯一键的判定近似一致。索引可能落后于数据库、
+     * Java 的排序规则与 MySQL 也不完全相同，最终由数据库唯一键 uk_parent_name_live 保证，冲突时转换为目录名称重复。
      * 
-     * @param currentDirectoryId 当前目录ID
-     * @param targetParentId 目标父目录ID
-     * @return 是否是子目录
+     * @param parentId 父目录ID
+     * @param name 目录名称
+     * @param excludeId 需排除的目录ID（重命名、移动的目录本身），可为null
+     * @return 是否已存在同名目录
      */
-    private boolean isChildDirectory(Long currentDirectoryId, Long targetParentId) {
-        try {
-            // 获取目标父目录的所有父级目录，看是否包含当前目录
-            Long checkId = targetParentId;
-            while (checkId != null && checkId > 0) {
-                if (checkId.equals(currentDirectoryId)) {
-                    return true; // 找到了循环引用
-                }
-                
-                Directory checkDirectory = directoryMapper.selectById(checkId);
-                if (checkDirectory == null || checkDirectory.getDeleted() == 1) {
-                    break;
-                }
-                
-                // 如果到达根目录，停止检查
-                if (checkDirectory.getParentId() != null && checkDirectory.getParentId() == 0) {
-                    break;
-                }
-                
-                checkId = checkDirectory.getParentId();
-            }
-            
-            return false;
-        } catch (Exception e) {
-            logger.error("检查循环引用失败", e);
-            return true; // 出错时保守处理，防止循环引用
-        }
+    private boolean isNameTaken(Long parentId, String name, Long excludeId) {
+        Directory sibling = directoryTreeIndex.getChildByName(parentId, name);
+        return sibling != null && !sibling.getId().equals(excludeId);
     }
     
     /**
-     * 递归更新所有子目录的路径
+     * 检查目标目录是否是指定目录本身或其子孙目录（防止循环引用）
+     * <p>
+     * 子孙目录的路径由祖先路径逐级拼接而成，逐字符以“祖先路径/”开头，因此按二进制比较路径，
+     * 与 updatePathPrefix 中 LIKE ... COLLATE utf8mb4_bin 判定的子树范围一致；
+     * 按列的排序规则（utf8mb4_unicode_ci）比较会把名称仅大小写或重音不同的目录误判为子孙。
      * 
-     * @param parentId 父目录ID
-     * @param oldParentPath 旧的父目录路径
-     * @param newParentPath 新的父目录路径
+     * @param directory 指定目录（事务中锁定的记录）
+     * @param target 目标目录（事务中锁定的记录）
+     * @return 是否是目录本身或其子孙目录
      */
-    private void updateChildrenPaths(Long parentId, String oldParentPath, String newParentPath) {
-        try {
-            // 获取所有子目录
-            List<Directory> children = directoryMapper.selectByParentId(parentId);
-            
-            for (Directory child : children) {
-                // 计算新的路径：将旧路径前缀替换为新路径前缀
-                String oldChildPath = child.getPath();
-                String newChildPath;
-                
-                if (oldChildPath.equals(oldParentPath)) {
-                    // 如果路径完全相同，直接使用新路径
-                    newChildPath = newParentPath;
-                } else if (oldChildPath.startsWith(oldParentPath + "/")) {
-                    // 替换路径前缀
-                    newChildPath = newParentPath + oldChildPath.substring(oldParentPath.length());
-                } else {
-                    // 异常情况，重新生成路径
-                    newChildPath = generateDirectoryPath(parentId, child.getName());
-                }
-                
-                // 更新子目录路径
-                child.setPath(newChildPath);
-                child.setUpdatedAt(LocalDateTime.now());
-                directoryMapper.updateById(child);
-                
-                logger.debug("更新子目录路径，目录ID：{}，旧路径：{}，新路径：{}", 
-                    child.getId(), oldChildPath, newChildPath);
-                
-                // 递归更新子目录的子目录
-                updateChildrenPaths(child.getId(), oldChildPath, newChildPath);
-            }
-        } catch (Exception e) {
-            logger.error("递归更新子目录路径失败，父目录ID：{}", parentId, e);
-            // 这里可以选择抛出异常或者继续处理，根据业务需求决定
+    private static boolean isSameOrDescendant(Directory directory, Directory target) {
+        if (directory.getId().equals(target.getId())) {
+            return true;
         }
+        String path = directory.getPath();
+        String prefix = path.endsWith("/") ? path : path + "/";
+        return target.getPath().startsWith(prefix);
+    }
+    
+    /**
+     * 将所有子孙目录路径中的旧前缀替换为新前缀：数据库中一条UPDATE完成，提交后同步到内存索引
+     * 
+     * @param id 目录ID
+     * @param oldPath 目录的旧路径
+     * @param newPath 目录的新路径
+     * @param updatedAt 更新时间
+     */
+    private void rewriteSubtreePaths(Long id, String oldPath, String newPath, LocalDateTime updatedAt) {
+        int updated = directoryMapper.rewriteSubtreePaths(oldPath, newPath, updatedAt);
+        directoryTreeIndex.rewriteSubtreePaths(id, oldPath, newPath, updatedAt);
+        logger.debug("重写子孙目录路径，目录ID：{}，旧路径：{}，新路径：{}，更新数量：{}", 
+            id, oldPath, newPath, updated);
     }
     
     /**
@@ -529,12 +564,8 @@ public class DirectoryServiceImpl implements DirectoryService {
      */
     private Directory findRootDirectory() {
         try {
-            // 使用 MyBatis-Plus 查询 parent_id = 0 且未删除的目录（根目录）
-            QueryWrapper<Directory> queryWrapper = new QueryWrapper<>();
-            queryWrapper.eq("parent_id", 0)
-                       .eq("deleted", 0);
-            
-            Directory rootDirectory = directoryMapper.selectOne(queryWrapper);
+            // parent_id = 0 且未删除的目录即根目录
+            Directory rootDirectory = directoryTreeIndex.getRoot();
             if (rootDirectory != null) {
                 logger.debug("找到根目录，ID：{}，名称：{}", rootDirectory.getId(), rootDirectory.getName());
             } else {
@@ -550,25 +581,108 @@ public class DirectoryServiceImpl implements DirectoryService {
     /**
      * 生成目录路径
      * 
-     * @param parentId 父目录ID
+     * @param parentDirectory 父目录（事务中从数据库读取并加锁的记录）
      * @param directoryName 目录名称
      * @return 目录路径
      */
-    private String generateDirectoryPath(Long parentId, String directoryName) {
-        // 获取父目录信息
-        Directory parentDirectory = directoryMapper.selectById(parentId);
-        if (parentDirectory != null) {
-            if (parentDirectory.getParentId() != null && parentDirectory.getParentId() == 0) {
-                // 父目录是根目录，子目录路径就是 /目录名
-                return "/" + directoryName;
-            } else {
-                // 子目录路径 = 父目录路径 + "/" + 当前目录名
-                return parentDirectory.getPath() + "/" + directoryName;
-            }
-        } else {
-            // 如果父目录不存在，默认处理
+    private String generateDirectoryPath(Directory parentDirectory, String directoryName) {
+        if (isRootDirectory(parentDirectory)) {
+            // 父目录是根目录，子目录路径就是 /目录名
             return "/" + directoryName;
         }
+        // 子目录路径 = 父目录路径 + "/" + 当前目录名
+        return parentDirectory.getPath() + "/" + directoryName;
+    }
+    
+    /**
+     * 按ID升序依次锁定多个目录：并发的移动请求以相同顺序加锁，互相等待而不会死锁
+     * 
+     * @param ids 目录ID
+     * @return 目录ID到目录的映射，不存在或已删除的目录不在其中
+     */
+    private Map<Long, Directory> lockDirectories(Long... ids) {
+        Map<Long, Directory> lockedDirectories = new HashMap<>();
+        for (Long lockId : new TreeSet<>(Arrays.asList(ids))) {
+            Directory directory = directoryMapper.selectByIdForUpdate(lockId);
+            if (directory != null) {
+                lockedDirectories.put(lockId, directory);
+            }
+        }
+        return lockedDirectories;
+    }
+    
+    /**
+     * 判断是否为系统根目录（parent_id = 0）
+     */
+    private static boolean isRootDirectory(Directory directory) {
+        return directory.getParentId() != null && directory.getParentId() == 0;
+    }
+    
+    /**
+     * 从内存索引递归构建目录树节点
+     * 
+     * @param directory 目录信息
+     * @param depth 向下展开的层数，为0时不包含children
+     * @return 目录树节点
+     */
+    private DirectoryResponseDTO buildTreeNode(Directory directory, int depth) {
+        DirectoryResponseDTO dto = convertToResponseDTO(directory);
+        if (depth > 0) {
+            List<DirectoryResponseDTO> children = new ArrayList<>();
+            for (Directory child : directoryTreeIndex.getChildren(directory.getId())) {
+                children.add(buildTreeNode(child, depth - 1));
+            }
+            dto.setChildren(children);
+        }
+        return dto;
+    }
+    
+    /**
+     * 填充目录（含树形结构中的所有子节点）的子目录数量，以及按需填充文件数量
+     * <p>
+     * 子目录数量来自内存索引；文件数量按 directory_id 分组查询，每批最多 {@link #FILE_COUNT_BATCH_SIZE} 个目录。
+     * 整棵目录树和全部目录列表不统计文件数量，避免每次请求都对所有目录做分组统计
+     * 
+     * @param directories 目录列表
+     * @param includeFileCounts 是否填充文件数量
+     */
+    private void fillCounts(List<DirectoryResponseDTO> directories, boolean includeFileCounts) {
+        List<DirectoryResponseDTO> nodes = new ArrayList<>();
+        Deque<DirectoryResponseDTO> pending = new ArrayDeque<>(directories);
+        while (!pending.isEmpty()) {
+            DirectoryResponseDTO dto = pending.pop();
+            nodes.add(dto);
+            if (dto.getChildren() != null) {
+                pending.addAll(dto.getChildren());
+            }
+        }
+        if (nodes.isEmpty()) {
+            return;
+        }
+        
+        for (DirectoryResponseDTO dto : nodes) {
+            int childCount = directoryTreeIndex.countChildren(dto.getId());
+            dto.setChildCount(childCount);
+            dto.setHasChildren(childCount > 0);
+        }
+        if (!includeFileCounts) {
+            return;
+        }
+        
+        // 子树层数较多时节点可能很多，分批查询，避免 IN 列表过长
+        Map<Long, Long> fileCounts = new HashMap<>();
+        for (int from = 0; from < nodes.size(); from += FILE_COUNT_BATCH_SIZE) {
+            List<Long> ids = new ArrayList<>();
+            for (DirectoryResponseDTO dto : nodes.subList(from, Math.min(from + FILE_COUNT_BATCH_SIZE, nodes.size()))) {
+                ids.add(dto.getId());
+            }
+            for (DirectoryFileCount row : fileInfoMapper.countByDirectoryIds(ids)) {
+                fileCounts.put(row.getDirectoryId(), row.getFileCount());
+            }
+        }
+        for (DirectoryResponseDTO dto : nodes) {
+            dto.setFileCount(fileCounts.getOrDefault(dto.getId(), 0L));
+        }
     }
     
     @Override
@@ -596,7 +710,7 @@ public class DirectoryServiceImpl implements DirectoryService {
     public Long countTotalDirectories() {
         try {
             logger.info("开始统计总目录数量");
-            Long count = directoryMapper.selectCount(new QueryWrapper<Directory>().eq("deleted", 0));
+            Long count = directoryTreeIndex.size();
             logger.info("统计总目录数量完成，总数：{}", count);
             return count;
         } catch (Exception e) {
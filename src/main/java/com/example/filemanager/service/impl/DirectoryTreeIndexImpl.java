@@ -0,0 +1,395 @@
+package com.example.filemanager.service.impl;
+
+import com.example.filemanager.entity.Directory;
+import com.example.filemanager.mapper.DirectoryMapper;
+import com.example.filemanager.service.DirectoryTreeIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * 目录树内存索引实现类
+ * <p>
+ * 首次访问时通过 selectAllDirectories 加载一次，之后由目录服务在创建、更新、移动、删除成功后写穿更新；
+ * 存在事务时在提交后才更新，回滚不会污染索引。
+ * 索引只在本进程内维护，多节点部署时其他节点的修改通过定时全量刷新同步。
+ *
+ * @author system
+ * @since 2024-01-01
+ */
+@Service
+public class DirectoryTreeIndexImpl implements DirectoryTreeIndex {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryTreeIndexImpl.class);
+    
+    /**
+     * 组合附加符号（重音等），去除后名称比较不区分重音
+     */
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    
+    /**
+     * 子目录排序规则：名称按列排序规则升序，名称相同时按ID
+     */
+    private static final Comparator<Directory> NAME_ORDER = Comparator
+            .comparing(Directory::getName, Comparator.nullsFirst(DirectoryTreeIndexImpl::compareNames))
+            .thenComparing(Directory::getId);
+    
+    @Autowired
+    private DirectoryMapper directoryMapper;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private Map<Long, Directory> nodes = new HashMap<>();
+    
+    private Map<Long, NavigableSet<Directory>> children = new HashMap<>();
+    
+    private volatile boolean loaded;
+    
+    /**
+     * 索引修改次数，定时刷新期间发生写穿时放弃本次刷新，避免用旧数据覆盖新写入
+     */
+    private long modifications;
+    
+    @Override
+    public Directory getById(Long id) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return copyOf(nodes.get(id));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public List<Directory> getChildren(Long parentId) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            NavigableSet<Directory> siblings = children.get(parentId);
+            if (siblings == null) {
+                return new ArrayList<>();
+            }
+            List<Directory> result = new ArrayList<>(siblings.size());
+            for (Directory directory : siblings) {
+                result.add(copyOf(directory));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public Directory getChildByName(Long parentId, String name) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            NavigableSet<Directory> siblings = children.get(parentId);
+            if (siblings == null) {
+                return null;
+            }
+            // 子目录按名称、ID排序，用同名且ID最小的探针定位第一个同名目录；
+            // 同名按列排序规则判断，与唯一键 uk_parent_name_live 的判定一致
+            Directory probe = new Directory();
+            probe.setName(name);
+            probe.setId(Long.MIN_VALUE);
+            Directory candidate = siblings.ceiling(probe);
+            return candidate != null && candidate.getName() != null && compareNames(name, candidate.getName()) == 0
+                    ? copyOf(candidate) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public int countChildren(Long id) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            NavigableSet<Directory> siblings = children.get(id);
+            return siblings == null ? 0 : siblings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public Directory getRoot() {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            NavigableSet<Directory> roots = children.get(0L);
+            return roots == null || roots.isEmpty() ? null : copyOf(roots.first());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public List<Directory> getAll() {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            List<Long> parentIds = new ArrayList<>(children.keySet());
+            Collections.sort(parentIds);
+            List<Directory> result = new ArrayList<>(nodes.size());
+            for (Long parentId : parentIds) {
+                for (Directory directory : children.get(parentId)) {
+                    result.add(copyOf(directory));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public long size() {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return nodes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public void put(Directory directory) {
+        Directory snapshot = copyOf(directory);
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                unlink(snapshot.getId());
+                nodes.put(snapshot.getId(), snapshot);
+                children.computeIfAbsent(parentKey(snapshot), key -> new TreeSet<>(NAME_ORDER)).add(snapshot);
+                modifications++;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+    
+    @Override
+    public void rewriteSubtreePaths(Long id, String oldPath, String newPath, LocalDateTime updatedAt) {
+        String oldPrefix = oldPath + "/";
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                // 路径不参与子目录排序，可以原地修改
+                Deque<Long> pending = new ArrayDeque<>();
+                pending.push(id);
+                while (!pending.isEmpty()) {
+                    NavigableSet<Directory> descendants = children.get(pending.pop());
+                    if (descendants == null) {
+                        continue;
+                    }
+                    for (Directory descendant : descendants) {
+                        if (descendant.getPath() != null && descendant.getPath().startsWith(oldPrefix)) {
+                            descendant.setPath(newPath + descendant.getPath().substring(oldPath.length()));
+                            descendant.setUpdatedAt(updatedAt);
+                        }
+                        pending.push(descendant.getId());
+                    }
+                }
+                modifications++;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+    
+    @Override
+    public void remove(Long id) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                unlink(id);
+                modifications++;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+    
+    @Override
+    public void reload() {
+        long startModifications;
+        lock.readLock().lock();
+        try {
+            startModifications = modifications;
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        List<Directory> directories = directoryMapper.selectAllDirectories();
+        
+        lock.writeLock().lock();
+        try {
+            if (loaded && modifications != startModifications) {
+                logger.debug("目录树索引刷新期间发生修改，跳过本次刷新");
+                return;
+            }
+            rebuild(directories);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * 定时全量刷新，同步其他节点对目录的修改；索引未加载时不刷新
+     */
+    @Scheduled(fixedDelayString = "${file.directory.index-refresh-interval:300000}",
+            initialDelayString = "${file.directory.index-refresh-interval:300000}")
+    public void scheduledReload() {
+        if (!loaded) {
+            return;
+        }
+        try {
+            reload();
+        } catch (Exception e) {
+            logger.error("刷新目录树索引失败", e);
+        }
+    }
+    
+    /**
+     * 首次访问时加载索引，加载期间的读取等待加载完成
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                rebuild(directoryMapper.selectAllDirectories());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * 用数据库查询结果替换整个索引，调用方需持有写锁
+     */
+    private void rebuild(List<Directory> directories) {
+        Map<Long, Directory> newNodes = new HashMap<>(directories.size() * 2);
+        Map<Long, NavigableSet<Directory>> newChildren = new HashMap<>();
+        for (Directory directory : directories) {
+            newNodes.put(directory.getId(), directory);
+            newChildren.computeIfAbsent(parentKey(directory), key -> new TreeSet<>(NAME_ORDER)).add(directory);
+        }
+        nodes = newNodes;
+        children = newChildren;
+        loaded = true;
+        logger.info("目录树索引加载完成，共{}个目录", newNodes.size());
+    }
+    
+    /**
+     * 从索引中移除目录节点，保留其子目录映射，调用方需持有写锁
+     */
+    private void unlink(Long id) {
+        Directory existing = nodes.remove(id);
+        if (existing == null) {
+            return;
+        }
+        NavigableSet<Directory> siblings = children.get(parentKey(existing));
+        if (siblings != null) {
+            siblings.remove(existing);
+            if (siblings.isEmpty()) {
+                children.remove(parentKey(existing));
+            }
+        }
+    }
+    
+    /**
+     * 存在事务时在提交后执行，否则立即执行；索引未加载时无需维护，下次访问会完整加载
+     */
+    private void afterCommit(Runnable action) {
+        Runnable guarded = () -> {
+            if (loaded) {
+                action.run();
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    guarded.run();
+                }
+            });
+        } else {
+            guarded.run();
+        }
+    }
+    
+    /**
+     * 按列排序规则比较目录名称
+     */
+    private static int compareNames(String left, String right) {
+        return collationKey(left).compareTo(collationKey(right));
+    }
+    
+    /**
+     * 生成与 utf8mb4_unicode_ci 近似一致的比较键：去掉尾部空格（PAD SPACE）、去掉重音、转为小写。
+     * 只合并数据库同样视为相等的字符，数据库认为不同的名称不会被误判为重名；
+     * 少数数据库视为相等的写法（如 ß 与 ss）不合并，由唯一键兜底
+     */
+    private static String collationKey(String name) {
+        int end = name.length();
+        while (end > 0 && name.charAt(end - 1) == ' ') {
+            end--;
+        }
+        String key = name.substring(0, end);
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) >= 0x80) {
+                key = COMBINING_MARKS.matcher(Normalizer.normalize(key, Normalizer.Form.NFD)).replaceAll("");
+                break;
+            }
+        }
+        return key.toLowerCase(Locale.ROOT);
+    }
+    
+    private static Long parentKey(Directory directory) {
+        return directory.getParentId() == null ? 0L : directory.getParentId();
+    }
+    
+    private static Directory copyOf(Directory directory) {
+        if (directory == null) {
+            return null;
+        }
+        Directory copy = new Directory();
+        copy.setId(directory.getId());
+        copy.setName(directory.getName());
+        copy.setParentId(directory.getParentId());
+        copy.setPath(directory.getPath());
+        copy.setDescription(directory.getDescription());
+        copy.setCreatedAt(directory.getCreatedAt());
+        copy.setUpdatedAt(directory.getUpdatedAt());
+        copy.setDeleted(directory.getDeleted());
+        return copy;
+    }
+}
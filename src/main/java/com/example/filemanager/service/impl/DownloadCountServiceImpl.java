@@ -0,0 +1,113 @@
+package com.example.filemanager.service.impl;
+
+import com.example.filemanager.mapper.FileInfoMapper;
+import com.example.filemanager.service.DownloadCountService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 下载次数统计服务实现类
+ * <p>
+ * 每个文件使用一个 {@link LongAdder} 计数，并发下载分散在不同的计数单元上；
+ * 定时任务按 file.download.count-flush-interval 把增量合并成一条 UPDATE 写入，
+ * 应用关闭时再写入一次，异常宕机最多丢失一个写入周期内的计数。
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+@Service
+public class DownloadCountServiceImpl implements DownloadCountService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DownloadCountServiceImpl.class);
+    
+    /**
+     * 每条UPDATE语句最多更新的文件数
+     */
+    private static final int FLUSH_BATCH_SIZE = 500;
+    
+    @Autowired
+    private FileInfoMapper fileInfoMapper;
+    
+    private final ConcurrentHashMap<Long, LongAdder> pendingCounts = new ConcurrentHashMap<>();
+    
+    @Override
+    public void increment(Long fileId) {
+        pendingCounts.computeIfAbsent(fileId, id -> new LongAdder()).increment();
+    }
+    
+    /**
+     * 定期写入累计的下载次数
+     */
+    @Scheduled(fixedDelayString = "${file.download.count-flush-interval:5000}")
+    public void scheduledFlush() {
+        flush();
+    }
+    
+    @Override
+    public synchronized int flush() {
+        Map<Long, Long> counts = new LinkedHashMap<>();
+        for (Map.Entry<Long, LongAdder> entry : pendingCounts.entrySet()) {
+            long count = entry.getValue().sumThenReset();
+            if (count > 0) {
+                counts.put(entry.getKey(), count);
+                continue;
+            }
+            // 一个周期内没有下载的文件移出，避免计数表无限增长；移出时恰好到达的计数重新放回
+            if (pendingCounts.remove(entry.getKey(), entry.getValue())) {
+                long lateCount = entry.getValue().sum();
+                if (lateCount > 0) {
+                    pendingCounts.computeIfAbsent(entry.getKey(), id -> new LongAdder()).add(lateCount);
+                }
+            }
+        }
+        if (counts.isEmpty()) {
+            return 0;
+        }
+        
+        Map<Long, Long> batch = new LinkedHashMap<>();
+        for (Map.Entry<Long, Long> entry : counts.entrySet()) {
+            batch.put(entry.getKey(), entry.getValue());
+            if (batch.size() == FLUSH_BATCH_SIZE) {
+                flushBatch(batch);
+                batch = new LinkedHashMap<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            flushBatch(batch);
+        }
+        
+        logger.debug("下载次数写入完成，文件数：{}", counts.size());
+        return counts.size();
+    }
+    
+    /**
+     * 写入一批下载次数，失败时把计数放回内存等待下次写入
+     */
+    private void flushBatch(Map<Long, Long> batch) {
+        try {
+            fileInfoMapper.addDownloadCounts(batch);
+        } catch (RuntimeException e) {
+            logger.error("写入下载次数失败，文件数：{}，将在下次重试", batch.size(), e);
+            batch.forEach((fileId, count) ->
+                    pendingCounts.computeIfAbsent(fileId, id -> new LongAdder()).add(count));
+        }
+    }
+    
+    /**
+     * 应用关闭前写入剩余的计数
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        int flushed = flush();
+        logger.info("应用关闭，已写入剩余的下载次数，文件数：{}", flushed);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.filemanager.service.impl;
+
+import com.example.filemanager.config.FileDownloadConfig;
+import com.example.filemanager.dto.FileDownloadDescriptor;
+import com.example.filemanager.mapper.FileInfoMapper;
+import com.example.filemanager.service.DownloadDescriptorService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+
+/**
+ * 文件下载描述信息服务实现类
+ * <p>
+ * 缓存命中时下载不访问数据库，未命中时只执行一次按主键的窄字段查询。
+ * 不存在的文件不缓存；文件删除时立即失效，并在事务提交后再失效一次，
+ * 防止提交前的并发下载把旧记录重新放入缓存。
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+@Service
+public class DownloadDescriptorServiceImpl implements DownloadDescriptorService {
+    
+    @Autowired
+    private FileInfoMapper fileInfoMapper;
+    
+    @Autowired
+    private FileDownloadConfig fileDownloadConfig;
+    
+    private Cache<Long, FileDownloadDescriptor> descriptorCache;
+    
+    @PostConstruct
+    public void init() {
+        descriptorCache = Caffeine.newBuilder()
+                .maximumSize(fileDownloadConfig.getDescriptorCacheSize())
+                .expireAfterWrite(Duration.ofSeconds(fileDownloadConfig.getDescriptorCacheTtl()))
+                .build();
+    }
+    
+    @Override
+    public FileDownloadDescriptor getDescriptor(Long fileId) {
+        return descriptorCache.get(fileId, fileInfoMapper::selectDownloadDescriptor);
+    }
+    
+    @Override
+    public void evict(Long fileId) {
+        descriptorCache.invalidate(fileId);
+        
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    descriptorCache.invalidate(fileId);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.filemanager.service.impl;
+
+import com.example.filemanager.common.exception.BusinessException;
+import com.example.filemanager.common.result.ResultCode;
+import com.example.filemanager.config.FileDownloadConfig;
+import com.example.filemanager.service.DownloadLimitService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 流式下载并发控制服务实现类
+ * <p>
+ * 全局并发数不超过下载线程池的线程数，慢速客户端不会让下载任务在队列中积压；
+ * 单个客户端的并发数单独限制，避免一个客户端占满全部下载线程。
+ * 获取许可不阻塞，达到上限时立即拒绝。
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+@Service
+public class DownloadLimitServiceImpl implements DownloadLimitService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DownloadLimitServiceImpl.class);
+    
+    @Autowired
+    private FileDownloadConfig fileDownloadConfig;
+    
+    private Semaphore globalPermits;
+    
+    /**
+     * 客户端标识 -> 进行中的流式下载数，归零时移除
+     */
+    private final ConcurrentHashMap<String, Integer> clientStreams = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    public void init() {
+        globalPermits = new Semaphore(fileDownloadConfig.getMaxConcurrentStreams());
+    }
+    
+    @Override
+    public DownloadPermit acquire(String clientKey) {
+        int perClientLimit = fileDownloadConfig.getMaxConcurrentStreamsPerClient();
+        boolean[] admitted = new boolean[1];
+        clientStreams.compute(clientKey, (key, count) -> {
+            int current = count == null ? 0 : count;
+            if (current >= perClientLimit) {
+                return count;
+            }
+            admitted[0] = true;
+            return current + 1;
+        });
+        if (!admitted[0]) {
+            logger.warn("客户端同时进行的下载已达上限，客户端：{}，上限：{}", clientKey, perClientLimit);
+            throw new BusinessException(ResultCode.DOWNLOAD_TOO_MANY_REQUESTS);
+        }
+        
+        if (!globalPermits.tryAcquire()) {
+            releaseClient(clientKey);
+            logger.warn("同时进行的下载已达全局上限：{}", fileDownloadConfig.getMaxConcurrentStreams());
+            throw new BusinessException(ResultCode.DOWNLOAD_SERVER_BUSY);
+        }
+        
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                globalPermits.release();
+                releaseClient(clientKey);
+            }
+        };
+    }
+    
+    private void releaseClient(String clientKey) {
+        clientStreams.computeIfPresent(clientKey, (key, count) -> count > 1 ? count - 1 : null);
+    }
+}
@@ -0,0 +1,430 @@
+package com.example.filemanager.service.impl;
+
+import com.example.filemanager.common.constant.FileConstant;
+import com.example.filemanager.common.exception.BusinessException;
+import com.example.filemanager.common.result.ResultCode;
+import com.example.filemanager.config.FileDownloadConfig;
+import com.example.filemanager.dto.FileDownloadDescriptor;
+import com.example.filemanager.service.DownloadDescriptorService;
+import com.example.filemanager.service.DownloadLimitService;
+import com.example.filemanager.service.DownloadLimitService.DownloadPermit;
+import com.example.filemanager.service.DownloadLimitService.LimitedStream;
+import com.example.filemanager.service.DownloadService;
+import com.example.filemanager.service.FileContentCacheService;
+import com.example.filemanager.service.FileService;
+import com.example.filemanager.service.GzipCompressionService;
+import com.example.filemanager.util.FileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 文件下载服务实现类
+ * <p>
+ * 直接写入 {@link HttpServletResponse}，按请求的区间只读取需要的部分：
+ * 单区间返回 {@code Content-Range}，多区间返回 {@code multipart/byteranges}，
+ * 区间全部不可满足时返回 416。较大的完整文件和单区间优先使用 Tomcat sendfile 零拷贝发送。
+ * 以MD5作为 ETag、创建时间作为 Last-Modified，条件请求命中时返回 304，不读取磁盘。
+ * 文件元数据来自 {@link DownloadDescriptorService}，缓存命中时不访问数据库；
+ * 热点小文件由 {@link FileContentCacheService} 直接从内存返回。
+ * 其余需要读取文件写出的下载返回 {@link StreamingResponseBody}，在下载线程池中写出，
+ * 慢速客户端不占用 Tomcat 工作线程，并发数由 {@link DownloadLimitService} 限制。
+ * 文本类文件在客户端支持时以 gzip 传输，优先使用上传时生成的预压缩文件。
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+@Service
+public class DownloadServiceImpl implements DownloadService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DownloadServiceImpl.class);
+    
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+    
+    private static final String CRLF = "\r\n";
+    
+    /**
+     * Tomcat sendfile 相关的请求属性
+     */
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+    
+    @Autowired
+    private DownloadDescriptorService downloadDescriptorService;
+    
+    @Autowired
+    private FileService fileService;
+    
+    @Autowired
+    private FileDownloadConfig fileDownloadConfig;
+    
+    @Autowired
+    private FileContentCacheService fileContentCacheService;
+    
+    @Autowired
+    private DownloadLimitService downloadLimitService;
+    
+    @Autowired
+    private GzipCompressionService gzipCompressionService;
+    
+    @Override
+    public LimitedStream download(Long fileId, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        FileDownloadDescriptor descriptor = downloadDescriptorService.getDescriptor(fileId);
+        if (descriptor == null) {
+            throw new BusinessException(ResultCode.FILE_NOT_FOUND);
+        }
+        return download(descriptor, request, response);
+    }
+    
+    @Override
+    public LimitedStream download(FileDownloadDescriptor descriptor, HttpServletRequest request,
+                                  HttpServletResponse response) throws IOException {
+        Long fileId = descriptor.getId();
+        
+        // 文本类文件按 Accept-Encoding 协商 gzip 压缩传输；Range 请求的区间针对原始内容，始终不压缩
+        boolean compressible = fileDownloadConfig.isGzipEnabled()
+                && gzipCompressionService.isCompressible(descriptor.getMimeType(), descriptor.getOriginalName());
+        boolean gzip = compressible
+                && descriptor.getFileSize() != null
+                && descriptor.getFileSize() >= fileDownloadConfig.getGzipMinSize()
+                && request.getHeader(HttpHeaders.RANGE) == null
+                && acceptsGzip(request);
+        if (compressible) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        
+        String etag = buildETag(descriptor, gzip);
+        long lastModified = resolveLastModified(descriptor);
+        
+        // 条件请求在读取磁盘之前处理，未变化时直接返回304，不计入下载次数
+        response.setHeader(HttpHeaders.CACHE_CONTROL, fileDownloadConfig.getCacheControl(descriptor.getFileType()));
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return null;
+        }
+        
+        // 小文件优先从内存缓存读取，命中时不访问磁盘
+        byte[] content = fileContentCacheService.getContent(descriptor);
+        File file = new File(descriptor.getFilePath());
+        if (content == null && !file.isFile()) {
+            logger.error("物理文件不存在，文件ID：{}，路径：{}", fileId, descriptor.getFilePath());
+            throw new BusinessException(ResultCode.FILE_NOT_FOUND);
+        }
+        
+        long fileLength = content != null ? content.length : file.length();
+        String contentType = resolveContentType(descriptor.getMimeType());
+        
+        // 设置文件名，只使用 filename*=UTF-8'' 格式，避免中文文件名的编码问题
+        String encodedFilename = URLEncoder.encode(descriptor.getOriginalName(), StandardCharsets.UTF_8)
+                .replaceAll("\\+", "%20");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename*=UTF-8''" + encodedFilename);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        
+        if (gzip) {
+            return writeGzip(fileId, file, content, contentType, request, response);
+        }
+        
+        List<long[]> ranges = resolveRanges(request, etag, lastModified, fileLength);
+        if (ranges != null && ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileLength);
+            return null;
+        }
+        
+        // 完整下载和从文件开头开始读取的请求才计入下载次数，断点续传和播放器拖动不重复计数
+        boolean countable = ranges == null || ranges.get(0)[0] == 0;
+        
+        if (ranges == null) {
+            // 完整下载
+            response.setContentType(contentType);
+            response.setContentLengthLong(fileLength);
+            return writeRange(fileId, file, content, 0, fileLength, countable, request, response);
+        }
+        
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (ranges.size() == 1) {
+            long[] range = ranges.get(0);
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(range, fileLength));
+            response.setContentLengthLong(range[1] - range[0] + 1);
+            return writeRange(fileId, file, content, range[0], range[1] - range[0] + 1, countable, request, response);
+        }
+        
+        DownloadPermit permit = downloadLimitService.acquire(request.getRemoteAddr());
+        if (countable) {
+            countDownload(fileId);
+        }
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        return streaming(fileId, permit, outputStream -> {
+            for (long[] range : ranges) {
+                outputStream.write((CRLF + "--" + boundary + CRLF
+                        + HttpHeaders.CONTENT_TYPE + ": " + contentType + CRLF
+                        + HttpHeaders.CONTENT_RANGE + ": " + contentRange(range, fileLength) + CRLF
+                        + CRLF).getBytes(StandardCharsets.ISO_8859_1));
+                if (content != null) {
+                    outputStream.write(content, (int) range[0], (int) (range[1] - range[0] + 1));
+                } else {
+                    FileUtil.copyRange(file.getPath(), range[0], range[1] - range[0] + 1, outputStream);
+                }
+            }
+            outputStream.write((CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.ISO_8859_1));
+        });
+    }
+    
+    /**
+     * 写出文件的一个区间：已缓存的内容直接在当前线程从内存写出；容器支持时交给 Tomcat sendfile
+     * 由内核直接从页缓存发送到套接字，不经过用户态缓冲区，也不占用线程；
+     * 否则获取下载许可，返回在下载线程池中写出的流式响应
+     * 
+     * @return 需要异步写出时为流式响应体，已处理完成时为null
+     */
+    private LimitedStream writeRange(Long fileId, File file, byte[] content, long start, long length,
+                                     boolean countable, HttpServletRequest request,
+                                     HttpServletResponse response) throws IOException {
+        if (content != null) {
+            if (countable) {
+                countDownload(fileId);
+            }
+            response.getOutputStream().write(content, (int) start, (int) length);
+            return null;
+        }
+        if (fileDownloadConfig.isSendfileEnabled()
+                && length >= fileDownloadConfig.getSendfileMinSize()
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+            if (countable) {
+                countDownload(fileId);
+            }
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.getAbsolutePath());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, start + length);
+            return null;
+        }
+        
+        DownloadPermit permit = downloadLimitService.acquire(request.getRemoteAddr());
+        if (countable) {
+            countDownload(fileId);
+        }
+        return streaming(fileId, permit,
+                outputStream -> FileUtil.copyRange(file.getPath(), start, length, outputStream));
+    }
+    
+    /**
+     * 以 gzip 压缩传输完整文件：存在预压缩文件时直接发送（同样可以走零拷贝），否则边读边压缩
+     */
+    private LimitedStream writeGzip(Long fileId, File file, byte[] content, String contentType,
+                                    HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        response.setContentType(contentType);
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        
+        File sidecar = new File(gzipCompressionService.getSidecarPath(file.getPath()));
+        if (content == null && sidecar.isFile()) {
+            long sidecarLength = sidecar.length();
+            response.setContentLengthLong(sidecarLength);
+            return writeRange(fileId, sidecar, null, 0, sidecarLength, true, request, response);
+        }
+        
+        if (content != null) {
+            // 内存中的小文件直接在当前线程压缩写出
+            countDownload(fileId);
+            GZIPOutputStream gzipOutputStream = new GZIPOutputStream(response.getOutputStream());
+            gzipOutputStream.write(content);
+            gzipOutputStream.finish();
+            return null;
+        }
+        
+        DownloadPermit permit = downloadLimitService.acquire(request.getRemoteAddr());
+        countDownload(fileId);
+        long fileLength = file.length();
+        return streaming(fileId, permit, outputStream -> {
+            GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream, FileConstant.STREAM_BUFFER_SIZE);
+            FileUtil.copyRange(file.getPath(), 0, fileLength, gzipOutputStream);
+            gzipOutputStream.finish();
+        });
+    }
+    
+    /**
+     * 判断客户端是否接受 gzip 编码：显式声明的 gzip 优先于通配符 *，q=0 表示拒绝
+     */
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+        Enumeration<String> headers = request.getHeaders(HttpHeaders.ACCEPT_ENCODING);
+        while (headers != null && headers.hasMoreElements()) {
+            for (String coding : headers.nextElement().split(",")) {
+                String[] parts = coding.split(";");
+                String name = parts[0].trim().toLowerCase();
+                if (!"gzip".equals(name) && !"*".equals(name)) {
+                    continue;
+                }
+                double quality = 1.0;
+                for (int i = 1; i < parts.length; i++) {
+                    String param = parts[i].trim();
+                    if (param.startsWith("q=")) {
+                        try {
+                            quality = Double.parseDouble(param.substring(2));
+                        } catch (NumberFormatException e) {
+                            quality = 0;
+                        }
+                    }
+                }
+                if ("gzip".equals(name)) {
+                    gzipQuality = quality;
+                } else {
+                    wildcardQuality = quality;
+                }
+            }
+        }
+        if (gzipQuality != null) {
+            return gzipQuality > 0;
+        }
+        return wildcardQuality != null && wildcardQuality > 0;
+    }
+    
+    /**
+     * 包装流式响应：写出结束后归还下载许可，客户端断开连接只记录日志
+     */
+    private LimitedStream streaming(Long fileId, DownloadPermit permit, StreamingResponseBody body) {
+        return new LimitedStream(permit, outputStream -> {
+            try {
+                body.writeTo(outputStream);
+            } catch (IOException e) {
+                // 客户端取消下载或拖动播放进度时连接会被中断
+                logger.info("文件下载中断，文件ID：{}，原因：{}", fileId, e.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * 解析请求的区间
+     * 
+     * @return 需要返回完整内容时为null；区间全部不可满足时为空列表；否则为按请求顺序排列的 [起始, 结束] 区间
+     */
+    private List<long[]> resolveRanges(HttpServletRequest request, String etag, long lastModified, long fileLength) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return null;
+        }
+        
+        // If-Range 与当前内容不一致时忽略 Range，返回完整的新内容
+        if (!ifRangeMatches(request, etag, lastModified)) {
+            return null;
+        }
+        
+        List<HttpRange> httpRanges;
+        try {
+            httpRanges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            logger.debug("Range请求头不合法：{}", rangeHeader);
+            return Collections.emptyList();
+        }
+        
+        List<long[]> ranges = new ArrayList<>(httpRanges.size());
+        long totalLength = 0;
+        for (HttpRange httpRange : httpRanges) {
+            long start;
+            long end;
+            try {
+                start = httpRange.getRangeStart(fileLength);
+                end = httpRange.getRangeEnd(fileLength);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            // 起始位置超出文件长度的区间不可满足，忽略
+            if (start >= fileLength || start > end) {
+                continue;
+            }
+            ranges.add(new long[]{start, end});
+            totalLength += end - start + 1;
+        }
+        
+        // 区间总长度超过文件本身时（重叠区间放大响应），按完整下载处理
+        if (totalLength > fileLength) {
+            return null;
+        }
+        return ranges;
+    }
+    
+    /**
+     * If-Range 可以是 ETag 或 HTTP 日期，日期按秒精度与 Last-Modified 比较
+     */
+    private boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            long ifRangeDate = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return lastModified >= 0 && lastModified / 1000 == ifRangeDate / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+    
+    private void countDownload(Long fileId) {
+        fileService.updateDownloadCount(fileId);
+    }
+    
+    private static String contentRange(long[] range, long fileLength) {
+        return "bytes " + range[0] + "-" + range[1] + "/" + fileLength;
+    }
+    
+    /**
+     * 以文件内容的MD5作为强校验ETag，gzip 编码的响应是不同的表示，使用不同的ETag
+     */
+    private static String buildETag(FileDownloadDescriptor descriptor, boolean gzip) {
+        if (descriptor.getMd5Hash() == null) {
+            return null;
+        }
+        return "\"" + descriptor.getMd5Hash() + (gzip ? "-gzip" : "") + "\"";
+    }
+    
+    /**
+     * 文件记录创建后内容不再变化，以创建时间作为 Last-Modified（updated_at 会随下载次数变化）
+     */
+    private static long resolveLastModified(FileDownloadDescriptor descriptor) {
+        if (descriptor.getCreatedAt() == null) {
+            return -1;
+        }
+        return descriptor.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+    
+    /**
+     * 确定响应的Content-Type，文本文件指定UTF-8编码
+     */
+    private static String resolveContentType(String mimeType) {
+        if (mimeType == null || mimeType.isEmpty()) {
+            return DEFAULT_CONTENT_TYPE;
+        }
+        if (mimeType.startsWith("text/") && !mimeType.contains("charset")) {
+            return mimeType + "; charset=UTF-8";
+        }
+        return mimeType;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.filemanager.service.impl;
+
+import com.example.filemanager.config.FileDownloadConfig;
+import com.example.filemanager.dto.response.CacheStatsResponseDTO;
+import com.example.filemanager.dto.FileDownloadDescriptor;
+import com.example.filemanager.service.FileContentCacheService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+
+/**
+ * 小文件内容缓存服务实现类
+ * <p>
+ * 以 MD5 和文件大小作为键缓存文件内容，内容按哈希寻址、不会变化，因此无需失效处理。
+ * 使用 Caffeine 的 W-TinyLFU 策略：偶尔访问一次的文件不会挤掉持续热门的小文件；
+ * 按字节数计算权重，总占用不超过 file.download.memory-cache-max-size。
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+@Service
+public class FileContentCacheServiceImpl implements FileContentCacheService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(FileContentCacheServiceImpl.class);
+    
+    @Autowired
+    private FileDownloadConfig fileDownloadConfig;
+    
+    private Cache<String, byte[]> contentCache;
+    
+    @PostConstruct
+    public void init() {
+        contentCache = Caffeine.newBuilder()
+                .maximumWeight(fileDownloadConfig.getMemoryCacheMaxSize())
+                .weigher((String key, byte[] content) -> content.length)
+                .recordStats()
+                .build();
+        logger.info("小文件内存缓存初始化完成，启用：{}，容量上限：{} 字节，单文件上限：{} 字节",
+                fileDownloadConfig.isMemoryCacheEnabled(), fileDownloadConfig.getMemoryCacheMaxSize(),
+                fileDownloadConfig.getMemoryCacheMaxFileSize());
+    }
+    
+    @Override
+    public byte[] getContent(FileDownloadDescriptor descriptor) {
+        if (!isCacheable(descriptor)) {
+            return null;
+        }
+        // 加载失败时返回null，不会写入缓存，由调用方走磁盘读取
+        return contentCache.get(cacheKey(descriptor), key -> loadContent(descriptor));
+    }
+    
+    @Override
+    public CacheStatsResponseDTO getStats() {
+        CacheStats stats = contentCache.stats();
+        CacheStatsResponseDTO statsDTO = new CacheStatsResponseDTO();
+        statsDTO.setEnabled(fileDownloadConfig.isMemoryCacheEnabled());
+        statsDTO.setEntryCount(contentCache.estimatedSize());
+        statsDTO.setWeightedSize(contentCache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L));
+        statsDTO.setMaxSize(contentCache.policy().eviction()
+                .map(Policy.Eviction::getMaximum)
+                .orElse(fileDownloadConfig.getMemoryCacheMaxSize()));
+        statsDTO.setHitCount(stats.hitCount());
+        statsDTO.setMissCount(stats.missCount());
+        statsDTO.setHitRate(stats.hitRate());
+        statsDTO.setEvictionCount(stats.evictionCount());
+        statsDTO.setLoadFailureCount(stats.loadFailureCount());
+        return statsDTO;
+    }
+    
+    private boolean isCacheable(FileDownloadDescriptor descriptor) {
+        return fileDownloadConfig.isMemoryCacheEnabled()
+                && descriptor.getMd5Hash() != null
+                && descriptor.getFileSize() != null
+                && descriptor.getFileSize() <= fileDownloadConfig.getMemoryCacheMaxFileSize();
+    }
+    
+    private byte[] loadContent(FileDownloadDescriptor descriptor) {
+        try {
+            byte[] content = Files.readAllBytes(Paths.get(descriptor.getFilePath()));
+            // 记录的大小与磁盘不一致时不缓存，避免返回错误的内容长度
+            if (content.length != descriptor.getFileSize()) {
+                logger.warn("文件大小与记录不一致，不进入缓存，文件ID：{}，记录大小：{}，实际大小：{}",
+                        descriptor.getId(), descriptor.getFileSize(), content.length);
+                return null;
+            }
+            return content;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("读取文件内容失败，不进入缓存，文件ID：{}，路径：{}", descriptor.getId(), descriptor.getFilePath(), e);
+            return null;
+        }
+    }
+    
+    private static String cacheKey(FileDownloadDescriptor descriptor) {
+        return descriptor.getMd5Hash() + "_" + descriptor.getFileSize();
+    }
+}
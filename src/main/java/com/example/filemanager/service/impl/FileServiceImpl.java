@@ -2,25 +2,57 @@ package com.example.filemanager.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.example.filemanager.common.constant.FileConstant;
 import com.example.filemanager.config.FileStorageConfig;
+import com.example.filemanager.dto.request.InstantUploadDTO;
+import com.example.filemanager.dto.response.BatchUploadResultDTO;
 import com.example.filemanager.dto.response.FileResponseDTO;
+import com.example.filemanager.dto.response.InstantUploadResultDTO;
 import com.example.filemanager.dto.response.PageResponseDTO;
 import com.example.filemanager.entity.Directory;
+import com.example.filemanager.entity.FileBlob;
 import com.example.filemanager.entity.FileInfo;
 import com.example.filemanager.mapper.DirectoryMapper;
+import com.example.filemanager.mapper.FileBlobMapper;
 import com.example.filemanager.mapper.FileInfoMapper;
+import com.example.filemanager.service.BlobReclaimService;
+import com.example.filemanager.service.DownloadCountService;
+import com.example.filemanager.service.DownloadDescriptorService;
 import com.example.filemanager.service.FileService;
+import com.example.filemanager.service.GzipCompressionService;
 import com.example.filemanager.util.FileUtil;
+import com.example.filemanager.util.JakartaUploadContext;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUpload;
+import org.apache.commons.fileupload.FileUploadBase;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.util.Streams;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import jakarta.servlet.http.HttpServletRequest;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -34,17 +66,43 @@ public class FileServiceImpl implements FileService {
     
     private static final Logger logger = LoggerFactory.getLogger(FileServiceImpl.class);
     
+    /**
+     * 批量插入时每条INSERT语句包含的最大行数
+     */
+    private static final int BATCH_INSERT_SIZE = 500;
+    
     @Autowired
     private FileInfoMapper fileInfoMapper;
     
+    @Autowired
+    private FileBlobMapper fileBlobMapper;
+    
     @Autowired
     private DirectoryMapper directoryMapper;
     
     @Autowired
     private FileStorageConfig fileStorageConfig;
     
+    @Autowired
+    private BlobReclaimService blobReclaimService;
+    
+    @Autowired
+    private DownloadCountService downloadCountService;
+    
+    @Autowired
+    private DownloadDescriptorService downloadDescriptorService;
+    
+    @Autowired
+    private GzipCompressionService gzipCompressionService;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    @Qualifier("uploadTaskExecutor")
+    private Executor uploadTaskExecutor;
+    
     @Override
-    @Transactional
     public FileResponseDTO uploadFile(MultipartFile file, Long directoryId, String description) {
         logger.info("开始上传文件，文件名：{}，目录ID：{}", file.getOriginalFilename(), directoryId);
         
@@ -65,55 +123,265 @@ public class FileServiceImpl implements FileService {
                 FileUtil.formatFileSize(fileStorageConfig.getMaxFileSize()));
         }
         
-        // 计算文件MD5
-        String md5Hash = FileUtil.calculateMD5(file);
+        // 边写入临时文件边计算MD5，只读取一次上传内容
+        String tempFilePath = createTempFilePath();
+        String md5Hash;
+        try (InputStream inputStream = file.getInputStream()) {
+            md5Hash = FileUtil.saveAndCalculateMD5(inputStream, tempFilePath);
+        } catch (IOException e) {
+            FileUtil.deleteFile(tempFilePath);
+            throw new RuntimeException("读取上传文件失败：" + e.getMessage(), e);
+        }
         if (md5Hash == null) {
-            throw new RuntimeException("计算文件MD5失败");
+            throw new RuntimeException("保存文件并计算MD5失败");
         }
         
-        // 检查是否已存在相同MD5的文件（秒传功能）
-        FileInfo existingFile = fileInfoMapper.selectByMd5Hash(md5Hash);
-        if (existingFile != null) {
-            logger.info("发现相同MD5的文件，执行秒传，文件ID：{}", existingFile.getId());
-            // 创建新的文件记录，指向相同的物理文件
-            FileInfo newFileInfo = createFileInfoFromExisting(existingFile, file, directoryId, description);
-            fileInfoMapper.insert(newFileInfo);
-            return convertToResponseDTO(newFileInfo);
+        return storeTempFile(tempFilePath, md5Hash, file.getSize(), file.getOriginalFilename(),
+                file.getContentType(), directory, description);
+    }
+    
+    @Override
+    public FileResponseDTO uploadFileStream(HttpServletRequest request, Long directoryId) {
+        logger.info("开始流式上传文件，目录ID：{}", directoryId);
+        
+        JakartaUploadContext uploadContext = new JakartaUploadContext(request);
+        // 不使用 FileUploadBase.isMultipartContent：其重载引用了 javax.servlet，Spring Boot 3 下无法编译
+        String contentType = uploadContext.getContentType();
+        if (contentType == null || !contentType.toLowerCase(Locale.ENGLISH).startsWith(FileUploadBase.MULTIPART)) {
+            throw new RuntimeException("请求不是multipart/form-data格式");
         }
         
-        // 生成存储文件名
-        String originalFilename = file.getOriginalFilename();
-        String storedFilename = FileUtil.generateStoredFilename(originalFilename);
-        String extension = FileUtil.getFileExtension(originalFilename);
-        String fileType = FileUtil.getFileType(extension);
+        // 查询目录信息
+        Directory directory = directoryMapper.selectById(directoryId);
+        if (directory == null) {
+            throw new RuntimeException("目录不存在，ID：" + directoryId);
+        }
         
-        // 构建存储路径
-        String directoryPath = directory.getPath();
-        // 确保路径分隔符正确，处理Windows和Linux的差异
-        String localDirectoryPath = fileStorageConfig.getUploadPath() + directoryPath.replace("/", File.separator);
-        String fullFilePath = localDirectoryPath + File.separator + storedFilename;
+        FileUpload fileUpload = new FileUpload();
+        fileUpload.setHeaderEncoding(StandardCharsets.UTF_8.name());
+        fileUpload.setFileSizeMax(fileStorageConfig.getMaxStreamFileSize());
         
-        logger.debug("构建存储路径 - 目录路径: {}, 本地目录: {}, 完整路径: {}", 
-            directoryPath, localDirectoryPath, fullFilePath);
+        String description = null;
+        try {
+            FileItemIterator iterator = fileUpload.getItemIterator(uploadContext);
+            while (iterator.hasNext()) {
+                FileItemStream item = iterator.next();
+                if (item.isFormField()) {
+                    if ("description".equals(item.getFieldName())) {
+                        try (InputStream inputStream = item.openStream()) {
+                            description = Streams.asString(inputStream, StandardCharsets.UTF_8.name());
+                        }
+                    }
+                    continue;
+                }
+                
+                String originalFilename = item.getName();
+                if (originalFilename == null || originalFilename.isEmpty()) {
+                    continue;
+                }
+                
+                // 边读取请求体边写入临时文件并计算MD5，整个上传只落盘一次
+                String tempFilePath = createTempFilePath();
+                String md5Hash;
+                try (InputStream inputStream = item.openStream()) {
+                    md5Hash = FileUtil.saveAndCalculateMD5(inputStream, tempFilePath);
+                }
+                if (md5Hash == null) {
+                    throw new RuntimeException("保存文件失败，文件可能超过大小限制："
+                        + FileUtil.formatFileSize(fileStorageConfig.getMaxStreamFileSize()));
+                }
+                
+                long fileSize = new File(tempFilePath).length();
+                if (fileSize == 0) {
+                    FileUtil.deleteFile(tempFilePath);
+                    throw new RuntimeException("上传文件不能为空");
+                }
+                
+                return storeTempFile(tempFilePath, md5Hash, fileSize, originalFilename,
+                        item.getContentType(), directory, description);
+            }
+        } catch (FileUploadException | IOException e) {
+            logger.error("解析上传请求失败，目录ID：{}", directoryId, e);
+            throw new RuntimeException("解析上传请求失败：" + e.getMessage(), e);
+        }
         
-        // 创建本地目录结构
-        if (!FileUtil.createDirectoryIfNotExists(localDirectoryPath)) {
-            throw new RuntimeException("创建本地目录失败：" + localDirectoryPath);
+        throw new RuntimeException("上传文件不能为空");
+    }
+    
+    @Override
+    public FileResponseDTO storeTempFile(String tempFilePath, String md5Hash, long fileSize, String originalFilename,
+                                         String contentType, Long directoryId, String description) {
+        Directory directory = directoryMapper.selectById(directoryId);
+        if (directory == null) {
+            FileUtil.deleteFile(tempFilePath);
+            throw new RuntimeException("目录不存在，ID：" + directoryId);
+        }
+        return storeTempFile(tempFilePath, md5Hash, fileSize, originalFilename, contentType, directory, description);
+    }
+    
+    /**
+     * 将已写入临时目录并算好MD5的文件登记入库：已有相同内容时执行秒传，否则移动到内容存储位置
+     * <p>
+     * 文件移动在事务外完成，事务内只登记内容引用并写入元数据；元数据提交失败时删除刚移动的文件。
+     */
+    private FileResponseDTO storeTempFile(String tempFilePath, String md5Hash, long fileSize, String originalFilename,
+                                          String contentType, Directory directory, String description) {
+        Long directoryId = directory.getId();
+        try {
+            String storedFilename = FileUtil.generateStoredFilename(originalFilename);
+            PendingBlob pendingBlob = new PendingBlob(md5Hash, fileSize, tempFilePath);
+            
+            // 检查是否已存在相同内容（秒传功能）
+            FileBlob existingBlob = fileBlobMapper.selectByHash(md5Hash, fileSize);
+            if (existingBlob != null) {
+                logger.info("发现相同内容的文件，执行秒传，内容ID：{}", existingBlob.getId());
+                pendingBlob.storagePath = existingBlob.getStoragePath();
+            } else {
+                // 移动到内容存储位置
+                pendingBlob.moved = moveToBlobStorage(pendingBlob);
+            }
+            
+            // 创建文件信息记录并保存到数据库
+            FileInfo fileInfo = createFileInfo(originalFilename, storedFilename, pendingBlob.storagePath, fileSize,
+                    contentType, md5Hash, directoryId, description);
+            pendingBlob.fileInfos.add(fileInfo);
+            commitBlobs(Collections.singletonList(pendingBlob));
+            
+            logger.info("文件上传成功，文件ID：{}，存储路径：{}", fileInfo.getId(), fileInfo.getFilePath());
+            return convertToResponseDTO(fileInfo, directory.getName());
+        } finally {
+            // 秒传或异常时清理残留的临时文件
+            if (new File(tempFilePath).exists()) {
+                FileUtil.deleteFile(tempFilePath);
+            }
+        }
+    }
+    
+    /**
+     * 在一个短事务内登记内容引用并写入文件记录
+     * <p>
+     * 提交失败时删除本次新移动到存储目录的文件；内容已由并发的上传存储时，提交后删除本次多余的文件。
+     * 
+     * @param pendingBlobs 待登记的内容，每个内容附带引用它的文件记录
+     */
+    private void commitBlobs(List<PendingBlob> pendingBlobs) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<FileInfo> fileInfos = new ArrayList<>();
+                for (PendingBlob pendingBlob : pendingBlobs) {
+                    FileBlob fileBlob = registerBlob(pendingBlob);
+                    for (FileInfo fileInfo : pendingBlob.fileInfos) {
+                        fileInfo.setBlobId(fileBlob.getId());
+                        fileInfo.setFilePath(fileBlob.getStoragePath());
+                        fileInfos.add(fileInfo);
+                    }
+                }
+                insertFileInfos(fileInfos);
+            });
+        } catch (RuntimeException e) {
+            logger.error("保存文件记录失败，清理本次写入的文件", e);
+            for (PendingBlob pendingBlob : pendingBlobs) {
+                // 存储路径由内容决定，并发上传已登记同一内容时文件归其所有，不能删除
+                if (pendingBlob.moved
+                        && fileBlobMapper.selectByHash(pendingBlob.md5Hash, pendingBlob.fileSize) == null) {
+                    FileUtil.deleteFile(pendingBlob.storagePath);
+                }
+            }
+            throw e;
         }
         
-        // 保存文件
-        if (!FileUtil.saveUploadedFile(file, fullFilePath)) {
-            throw new RuntimeException("保存文件失败：" + fullFilePath);
+        for (PendingBlob pendingBlob : pendingBlobs) {
+            FileInfo fileInfo = pendingBlob.fileInfos.get(0);
+            if (pendingBlob.moved && !pendingBlob.storagePath.equals(fileInfo.getFilePath())) {
+                FileUtil.deleteFile(pendingBlob.storagePath);
+            }
+            // 文本类文件在后台生成预压缩文件，供支持gzip的客户端下载
+            gzipCompressionService.precomputeAsync(fileInfo.getFilePath(), fileInfo.getMimeType(),
+                    fileInfo.getOriginalName(), fileInfo.getFileSize());
         }
+    }
+    
+    /**
+     * 登记内容引用，返回登记后的内容记录
+     * <p>
+     * 登记语句持有内容行锁，回收任务无法在本事务提交前删除该内容；
+     * 若物理文件已在登记前被回收，用本次上传的内容补回。
+     */
+    private FileBlob registerBlob(PendingBlob pendingBlob) {
+        FileBlob fileBlob = new FileBlob(pendingBlob.md5Hash, pendingBlob.fileSize, pendingBlob.storagePath,
+                pendingBlob.fileInfos.size());
+        fileBlobMapper.upsertReference(fileBlob);
+        FileBlob registeredBlob = fileBlobMapper.selectById(fileBlob.getId());
         
-        // 创建文件信息记录
+        String storagePath = registeredBlob.getStoragePath();
+        if (!new File(storagePath).exists()) {
+            String sourcePath = pendingBlob.moved ? pendingBlob.storagePath : pendingBlob.tempFilePath;
+            if (sourcePath == null || !FileUtil.moveFile(sourcePath, storagePath)) {
+                throw new RuntimeException("物理文件缺失：" + storagePath);
+            }
+            logger.info("物理文件已被回收，使用本次上传的内容补回：{}", storagePath);
+            // 文件已交给内容记录，提交失败时也不再删除
+            pendingBlob.moved = false;
+        }
+        return registeredBlob;
+    }
+    
+    /**
+     * 写入文件记录，多条时分批使用单条INSERT语句
+     */
+    private void insertFileInfos(List<FileInfo> fileInfos) {
+        if (fileInfos.size() == 1) {
+            fileInfoMapper.insert(fileInfos.get(0));
+            return;
+        }
+        // 分批写入元数据，避免单条SQL过长
+        for (int from = 0; from < fileInfos.size(); from += BATCH_INSERT_SIZE) {
+            fileInfoMapper.insertBatch(fileInfos.subList(from, Math.min(from + BATCH_INSERT_SIZE, fileInfos.size())));
+        }
+    }
+    
+    /**
+     * 构建内容的存储路径：{@code blobs/<md5前两位>/<md5第三四位>/<md5>_<大小>}
+     * <p>
+     * 物理位置只由内容决定，与逻辑目录无关；两级分桶使单个磁盘目录下的文件数保持有限。
+     */
+    private String buildBlobStoragePath(String md5Hash, long fileSize) {
+        return fileStorageConfig.getUploadPath() + File.separator + FileConstant.BLOB_STORAGE_DIR
+                + File.separator + md5Hash.substring(0, 2)
+                + File.separator + md5Hash.substring(2, 4)
+                + File.separator + md5Hash + "_" + fileSize;
+    }
+    
+    /**
+     * 将临时文件移动到内容存储位置（同一文件系统内为重命名，不再复制内容）
+     * <p>
+     * 相同内容的物理文件已存在时不移动，临时文件保留到提交完成。
+     * 
+     * @return 是否由本次上传移动到存储位置
+     */
+    private boolean moveToBlobStorage(PendingBlob pendingBlob) {
+        pendingBlob.storagePath = buildBlobStoragePath(pendingBlob.md5Hash, pendingBlob.fileSize);
+        if (new File(pendingBlob.storagePath).exists()) {
+            return false;
+        }
+        if (!FileUtil.moveFile(pendingBlob.tempFilePath, pendingBlob.storagePath)) {
+            throw new RuntimeException("保存文件失败：" + pendingBlob.storagePath);
+        }
+        return true;
+    }
+    
+    /**
+     * 创建新上传内容的文件信息记录
+     */
+    private FileInfo createFileInfo(String originalFilename, String storedFilename, String fullFilePath, long fileSize,
+                                    String contentType, String md5Hash, Long directoryId, String description) {
         FileInfo fileInfo = new FileInfo();
         fileInfo.setOriginalName(originalFilename);
         fileInfo.setStoredName(storedFilename);
         fileInfo.setFilePath(fullFilePath);
-        fileInfo.setFileSize(file.getSize());
-        fileInfo.setFileType(fileType);
-        fileInfo.setMimeType(file.getContentType());
+        fileInfo.setFileSize(fileSize);
+        fileInfo.setFileType(FileUtil.getFileType(FileUtil.getFileExtension(originalFilename)));
+        fileInfo.setMimeType(contentType);
         fileInfo.setMd5Hash(md5Hash);
         fileInfo.setDirectoryId(directoryId);
         fileInfo.setDescription(description);
@@ -121,34 +389,250 @@ public class FileServiceImpl implements FileService {
         fileInfo.setCreatedAt(LocalDateTime.now());
         fileInfo.setUpdatedAt(LocalDateTime.now());
         fileInfo.setDeleted(0);
+        return fileInfo;
+    }
+    
+    @Override
+    public String createTempFilePath() {
+        return fileStorageConfig.getUploadPath() + File.separator + FileConstant.TEMP_UPLOAD_DIR
+                + File.separator + UUID.randomUUID().toString().replace("-", "") + ".upload";
+    }
+    
+    @Override
+    @Transactional
+    public InstantUploadResultDTO instantUpload(InstantUploadDTO instantUploadDTO) {
+        return instantUploadBatch(Collections.singletonList(instantUploadDTO)).get(0);
+    }
+    
+    @Override
+    @Transactional
+    public List<InstantUploadResultDTO> instantUploadBatch(List<InstantUploadDTO> instantUploadDTOs) {
+        logger.info("开始秒传比对，文件数量：{}", instantUploadDTOs.size());
         
-        // 保存到数据库
-        fileInfoMapper.insert(fileInfo);
+        // 一次查询解析所有目标目录
+        Set<Long> directoryIds = instantUploadDTOs.stream()
+                .map(InstantUploadDTO::getDirectoryId)
+                .collect(Collectors.toSet());
+        Map<Long, Directory> directoryMap = directoryMapper.selectBatchIds(directoryIds).stream()
+                .collect(Collectors.toMap(Directory::getId, directory -> directory));
         
-        logger.info("文件上传成功，文件ID：{}，存储路径：{}", fileInfo.getId(), fullFilePath);
-        return convertToResponseDTO(fileInfo);
+        // 一次查询比对所有哈希
+        Set<String> md5Hashes = instantUploadDTOs.stream()
+                .map(dto -> dto.getMd5Hash().toLowerCase())
+                .collect(Collectors.toSet());
+        Map<String, FileBlob> existingBlobMap = selectBlobsByMd5Hashes(md5Hashes);
+        
+        List<InstantUploadResultDTO> results = new ArrayList<>(instantUploadDTOs.size());
+        int hitCount = 0;
+        for (InstantUploadDTO dto : instantUploadDTOs) {
+            String md5Hash = dto.getMd5Hash().toLowerCase();
+            
+            Directory directory = directoryMap.get(dto.getDirectoryId());
+            if (directory == null) {
+                results.add(new InstantUploadResultDTO(md5Hash, dto.getFileName(), false, null,
+                        "目录不存在，ID：" + dto.getDirectoryId()));
+                continue;
+            }
+            
+            // 哈希和大小都一致才视为相同内容
+            FileBlob existingBlob = existingBlobMap.get(blobKey(md5Hash, dto.getFileSize()));
+            if (existingBlob == null) {
+                results.add(new InstantUploadResultDTO(md5Hash, dto.getFileName(), false, null, null));
+                continue;
+            }
+            
+            // 登记引用后物理文件仍存在才算命中，已被回收的内容需要重新上传
+            FileBlob fileBlob = new FileBlob(md5Hash, dto.getFileSize(), existingBlob.getStoragePath(), 1);
+            fileBlobMapper.upsertReference(fileBlob);
+            FileBlob registeredBlob = fileBlobMapper.selectById(fileBlob.getId());
+            if (!new File(registeredBlob.getStoragePath()).exists()) {
+                fileBlobMapper.decrementRefCount(registeredBlob.getId(), 1);
+                blobReclaimService.enqueue(registeredBlob.getId(), registeredBlob.getStoragePath(), md5Hash);
+                results.add(new InstantUploadResultDTO(md5Hash, dto.getFileName(), false, null, null));
+                continue;
+            }
+            
+            FileInfo newFileInfo = createFileInfo(dto.getFileName(), FileUtil.generateStoredFilename(dto.getFileName()),
+                    registeredBlob.getStoragePath(), dto.getFileSize(), dto.getMimeType(), md5Hash,
+                    directory.getId(), dto.getDescription());
+            newFileInfo.setBlobId(registeredBlob.getId());
+            fileInfoMapper.insert(newFileInfo);
+            hitCount++;
+            
+            results.add(new InstantUploadResultDTO(md5Hash, dto.getFileName(), true,
+                    convertToResponseDTO(newFileInfo, directory.getName()), null));
+        }
+        
+        logger.info("秒传比对完成，文件数量：{}，命中数量：{}", instantUploadDTOs.size(), hitCount);
+        return results;
+    }
+    
+    @Override
+    public BatchUploadResultDTO uploadFiles(MultipartFile[] files, Long directoryId, String description) {
+        logger.info("开始批量上传文件，文件数量：{}，目录ID：{}", files.length, directoryId);
+        
+        // 目录只查询一次
+        Directory directory = directoryMapper.selectById(directoryId);
+        if (directory == null) {
+            throw new RuntimeException("目录不存在，ID：" + directoryId);
+        }
+        
+        BatchUploadResultDTO result = new BatchUploadResultDTO();
+        result.setTotal(files.length);
+        
+        // 并发写入临时文件并计算MD5
+        List<StagedFile> stagedFiles = new ArrayList<>(files.length);
+        List<CompletableFuture<String>> futures = new ArrayList<>(files.length);
+        for (MultipartFile file : files) {
+            StagedFile stagedFile = new StagedFile(file);
+            if (file.isEmpty()) {
+                result.getFailures().add(file.getOriginalFilename() + "：上传文件不能为空");
+                continue;
+            }
+            if (file.getSize() > fileStorageConfig.getMaxFileSize()) {
+                result.getFailures().add(file.getOriginalFilename() + "：文件大小超过限制，最大允许："
+                        + FileUtil.formatFileSize(fileStorageConfig.getMaxFileSize()));
+                continue;
+            }
+            stagedFile.tempFilePath = createTempFilePath();
+            stagedFiles.add(stagedFile);
+            futures.add(CompletableFuture.supplyAsync(() -> stageFile(stagedFile), uploadTaskExecutor));
+        }
+        
+        try {
+            List<StagedFile> readyFiles = new ArrayList<>(stagedFiles.size());
+            for (int i = 0; i < stagedFiles.size(); i++) {
+                StagedFile stagedFile = stagedFiles.get(i);
+                stagedFile.md5Hash = futures.get(i).join();
+                if (stagedFile.md5Hash == null) {
+                    result.getFailures().add(stagedFile.file.getOriginalFilename() + "：保存文件并计算MD5失败");
+                } else {
+                    readyFiles.add(stagedFile);
+                }
+            }
+            if (readyFiles.isEmpty()) {
+                return result;
+            }
+            
+            // 一次查询比对所有哈希
+            Set<String> md5Hashes = readyFiles.stream()
+                    .map(stagedFile -> stagedFile.md5Hash)
+                    .collect(Collectors.toSet());
+            Map<String, FileBlob> existingBlobMap = selectBlobsByMd5Hashes(md5Hashes);
+            
+            // 相同内容只保留一份：库中已有的直接引用，本批次内重复的只移动第一份；
+            // 按键排序登记内容，并发的批量上传以相同顺序获取内容行锁，避免死锁
+            Map<String, PendingBlob> pendingBlobMap = new TreeMap<>();
+            List<FileInfo> fileInfos = new ArrayList<>(readyFiles.size());
+            int instantCount = 0;
+            for (StagedFile stagedFile : readyFiles) {
+                MultipartFile file = stagedFile.file;
+                String key = blobKey(stagedFile.md5Hash, file.getSize());
+                String storedFilename = FileUtil.generateStoredFilename(file.getOriginalFilename());
+                PendingBlob pendingBlob = pendingBlobMap.get(key);
+                if (pendingBlob == null) {
+                    pendingBlob = new PendingBlob(stagedFile.md5Hash, file.getSize(), stagedFile.tempFilePath);
+                    FileBlob existingBlob = existingBlobMap.get(key);
+                    if (existingBlob != null) {
+                        pendingBlob.storagePath = existingBlob.getStoragePath();
+                        instantCount++;
+                    } else {
+                        pendingBlob.moved = moveToBlobStorage(pendingBlob);
+                    }
+                    pendingBlobMap.put(key, pendingBlob);
+                } else {
+                    instantCount++;
+                }
+                
+                FileInfo fileInfo = createFileInfo(file.getOriginalFilename(), storedFilename, pendingBlob.storagePath,
+                        file.getSize(), file.getContentType(), stagedFile.md5Hash, directoryId, description);
+                pendingBlob.fileInfos.add(fileInfo);
+                fileInfos.add(fileInfo);
+            }
+            
+            commitBlobs(new ArrayList<>(pendingBlobMap.values()));
+            
+            for (FileInfo fileInfo : fileInfos) {
+                result.getFiles().add(convertToResponseDTO(fileInfo, directory.getName()));
+            }
+            result.setSucceeded(fileInfos.size());
+            result.setInstantCount(instantCount);
+            
+            logger.info("批量上传完成，文件数量：{}，成功：{}，秒传：{}", files.length, fileInfos.size(), instantCount);
+            return result;
+        } finally {
+            // 等待未完成的写入后清理残留的临时文件（秒传、失败或异常时）
+            for (int i = 0; i < stagedFiles.size(); i++) {
+                futures.get(i).exceptionally(e -> null).join();
+                String tempFilePath = stagedFiles.get(i).tempFilePath;
+                if (new File(tempFilePath).exists()) {
+                    FileUtil.deleteFile(tempFilePath);
+                }
+            }
+        }
+    }
+    
+    /**
+     * 将单个上传文件写入临时文件并计算MD5，失败时返回null
+     */
+    private String stageFile(StagedFile stagedFile) {
+        try (InputStream inputStream = stagedFile.file.getInputStream()) {
+            return FileUtil.saveAndCalculateMD5(inputStream, stagedFile.tempFilePath);
+        } catch (IOException e) {
+            logger.error("读取上传文件失败：{}", stagedFile.file.getOriginalFilename(), e);
+            FileUtil.deleteFile(stagedFile.tempFilePath);
+            return null;
+        }
     }
     
     /**
-     * 基于已存在的文件创建新的文件信息记录（用于秒传）
+     * 按MD5批量查询内容，以MD5和大小组成的键索引
      */
-    private FileInfo createFileInfoFromExisting(FileInfo existingFile, MultipartFile file, 
-                                               Long directoryId, String description) {
-        FileInfo newFileInfo = new FileInfo();
-        newFileInfo.setOriginalName(file.getOriginalFilename());
-        newFileInfo.setStoredName(existingFile.getStoredName());
-        newFileInfo.setFilePath(existingFile.getFilePath());
-        newFileInfo.setFileSize(file.getSize());
-        newFileInfo.setFileType(existingFile.getFileType());
-        newFileInfo.setMimeType(file.getContentType());
-        newFileInfo.setMd5Hash(existingFile.getMd5Hash());
-        newFileInfo.setDirectoryId(directoryId);
-        newFileInfo.setDescription(description);
-        newFileInfo.setDownloadCount(0);
-        newFileInfo.setCreatedAt(LocalDateTime.now());
-        newFileInfo.setUpdatedAt(LocalDateTime.now());
-        newFileInfo.setDeleted(0);
-        return newFileInfo;
+    private Map<String, FileBlob> selectBlobsByMd5Hashes(Set<String> md5Hashes) {
+        return fileBlobMapper.selectByMd5Hashes(md5Hashes).stream()
+                .collect(Collectors.toMap(fileBlob -> blobKey(fileBlob.getMd5Hash(), fileBlob.getFileSize()),
+                        fileBlob -> fileBlob));
+    }
+    
+    private static String blobKey(String md5Hash, long fileSize) {
+        return md5Hash + ":" + fileSize;
+    }
+    
+    /**
+     * 批量上传中已写入临时文件的上传项
+     */
+    private static class StagedFile {
+        private final MultipartFile file;
+        private String tempFilePath;
+        private String md5Hash;
+        
+        StagedFile(MultipartFile file) {
+            this.file = file;
+        }
+    }
+    
+    /**
+     * 待登记的内容及引用它的文件记录
+     */
+    private static class PendingBlob {
+        private final String md5Hash;
+        private final long fileSize;
+        /**
+         * 本次上传的临时文件，提交完成前保留，用于补回已被回收的物理文件
+         */
+        private final String tempFilePath;
+        private final List<FileInfo> fileInfos = new ArrayList<>();
+        private String storagePath;
+        /**
+         * 是否由本次上传新移动到存储位置
+         */
+        private boolean moved;
+        
+        PendingBlob(String md5Hash, long fileSize, String tempFilePath) {
+            this.md5Hash = md5Hash;
+            this.fileSize = fileSize;
+            this.tempFilePath = tempFilePath;
+        }
     }
     
     @Override
@@ -205,21 +689,19 @@ public class FileServiceImpl implements FileService {
             return false;
         }
         
-        // 软删除文件记录
+        // 软删除文件记录并释放内容引用，引用归零的物理文件在事务提交后由回收任务异步处理
         int result = fileInfoMapper.deleteById(fileId);
-        
-        // 检查是否还有其他记录指向同一个物理文件
-        LambdaQueryWrapper<FileInfo> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(FileInfo::getMd5Hash, fileInfo.getMd5Hash())
-               .ne(FileInfo::getId, fileId);
-        long count = fileInfoMapper.selectCount(wrapper);
-        
-        // 如果没有其他记录指向该物理文件，则删除物理文件
-        if (count == 0) {
-            FileUtil.deleteFile(fileInfo.getFilePath());
-            logger.info("删除物理文件：{}", fileInfo.getFilePath());
-        } else {
-            logger.info("保留物理文件，还有{}个记录指向该文件", count);
+        if (result > 0) {
+            downloadDescriptorService.evict(fileId);
+            if (fileInfo.getBlobId() == null) {
+                blobReclaimService.enqueue(null, fileInfo.getFilePath(), fileInfo.getMd5Hash());
+            } else {
+                fileBlobMapper.decrementRefCount(fileInfo.getBlobId(), 1);
+                FileBlob fileBlob = fileBlobMapper.selectById(fileInfo.getBlobId());
+                if (fileBlob != null && fileBlob.getRefCount() <= 0) {
+                    blobReclaimService.enqueue(fileBlob.getId(), fileBlob.getStoragePath(), fileBlob.getMd5Hash());
+                }
+            }
         }
         
         return result > 0;
@@ -227,10 +709,11 @@ public class FileServiceImpl implements FileService {
     
     @Override
     public boolean updateDownloadCount(Long fileId) {
-        logger.info("更新文件下载次数，文件ID：{}", fileId);
+        logger.debug("记录文件下载，文件ID：{}", fileId);
         
-        int result = fileInfoMapper.updateDownloadCount(fileId);
-        return result > 0;
+        // 先在内存中累计，定期批量写入数据库
+        downloadCountService.increment(fileId);
+        return true;
     }
     
     @Override
@@ -251,6 +734,22 @@ public class FileServiceImpl implements FileService {
             return null;
         }
         
+        // 查询目录名称
+        String directoryName = null;
+        if (fileInfo.getDirectoryId() != null) {
+            Directory directory = directoryMapper.selectById(fileInfo.getDirectoryId());
+            if (directory != null) {
+                directoryName = directory.getName();
+            }
+        }
+        
+        return convertToResponseDTO(fileInfo, directoryName);
+    }
+    
+    /**
+     * 将FileInfo实体转换为响应DTO（目录名称已知时使用，避免重复查询目录）
+     */
+    private FileResponseDTO convertToResponseDTO(FileInfo fileInfo, String directoryName) {
         FileResponseDTO responseDTO = new FileResponseDTO();
         responseDTO.setId(fileInfo.getId());
         responseDTO.setOriginalName(fileInfo.getOriginalName());
@@ -261,20 +760,12 @@ public class FileServiceImpl implements FileService {
         responseDTO.setMimeType(fileInfo.getMimeType());
         responseDTO.setMd5Hash(fileInfo.getMd5Hash());
         responseDTO.setDirectoryId(fileInfo.getDirectoryId());
+        responseDTO.setDirectoryName(directoryName);
         responseDTO.setDescription(fileInfo.getDescription());
         responseDTO.setDownloadCount(fileInfo.getDownloadCount());
         responseDTO.setFileSizeFormatted(FileUtil.formatFileSize(fileInfo.getFileSize()));
         responseDTO.setCreatedAt(fileInfo.getCreatedAt());
         responseDTO.setUpdatedAt(fileInfo.getUpdatedAt());
-        
-        // 查询目录名称
-        if (fileInfo.getDirectoryId() != null) {
-            Directory directory = directoryMapper.selectById(fileInfo.getDirectoryId());
-            if (directory != null) {
-                responseDTO.setDirectoryName(directory.getName());
-            }
-        }
-        
         return responseDTO;
     }
     
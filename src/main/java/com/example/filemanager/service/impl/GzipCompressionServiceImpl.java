@@ -0,0 +1,128 @@
+package com.example.filemanager.service.impl;
+
+import com.example.filemanager.common.constant.FileConstant;
+import com.example.filemanager.config.FileDownloadConfig;
+import com.example.filemanager.service.GzipCompressionService;
+import com.example.filemanager.util.FileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * gzip 压缩传输服务实现类
+ * <p>
+ * 预压缩文件以 {@code <存储路径>.gz} 存放在原文件旁，先写入临时文件再原子移动，
+ * 下载时存在即可直接发送（同样可以走零拷贝）；内容按哈希寻址，同一内容只生成一次。
+ * 压缩后体积没有明显减小的文件不保留预压缩文件。
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+@Service
+public class GzipCompressionServiceImpl implements GzipCompressionService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(GzipCompressionServiceImpl.class);
+    
+    /**
+     * 除 text/* 以外适合压缩的MIME类型
+     */
+    private static final Set<String> COMPRESSIBLE_MIME_TYPES = Set.of(
+            "application/json", "application/xml", "application/javascript", "application/x-javascript",
+            "application/csv", "application/x-yaml", "application/yaml", "application/x-sh",
+            "application/sql", "image/svg+xml");
+    
+    /**
+     * 适合压缩的扩展名，浏览器上传的MIME类型不可靠（如CSV常被标记为 application/vnd.ms-excel）
+     */
+    private static final Set<String> COMPRESSIBLE_EXTENSIONS = Set.of(
+            "txt", "csv", "tsv", "log", "md", "json", "xml", "yaml", "yml", "html", "htm", "css", "js",
+            "svg", "sql", "ini", "conf", "properties", "rtf");
+    
+    /**
+     * 压缩后体积不小于原文件的该比例时不保留预压缩文件
+     */
+    private static final double MAX_COMPRESSION_RATIO = 0.9;
+    
+    @Autowired
+    private FileDownloadConfig fileDownloadConfig;
+    
+    @Autowired
+    @Qualifier("gzipPrecomputeExecutor")
+    private Executor gzipPrecomputeExecutor;
+    
+    @Override
+    public boolean isCompressible(String mimeType, String fileName) {
+        if (mimeType != null) {
+            String baseType = mimeType.split(";")[0].trim().toLowerCase();
+            if (baseType.startsWith("text/") || COMPRESSIBLE_MIME_TYPES.contains(baseType)) {
+                return true;
+            }
+        }
+        return COMPRESSIBLE_EXTENSIONS.contains(FileUtil.getFileExtension(fileName));
+    }
+    
+    @Override
+    public String getSidecarPath(String filePath) {
+        return filePath + FileConstant.GZIP_SIDECAR_SUFFIX;
+    }
+    
+    @Override
+    public void precomputeAsync(String filePath, String mimeType, String fileName, long fileSize) {
+        if (!fileDownloadConfig.isGzipEnabled()
+                || fileSize < fileDownloadConfig.getGzipPrecomputeMinSize()
+                || !isCompressible(mimeType, fileName)
+                || new File(getSidecarPath(filePath)).exists()) {
+            return;
+        }
+        // 线程池繁忙时任务被丢弃，下载时实时压缩
+        gzipPrecomputeExecutor.execute(() -> precompute(filePath, fileSize));
+    }
+    
+    private void precompute(String filePath, long fileSize) {
+        Path source = Paths.get(filePath);
+        Path sidecar = Paths.get(getSidecarPath(filePath));
+        Path tempFile = sidecar.resolveSibling(sidecar.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            try (OutputStream outputStream = Files.newOutputStream(tempFile);
+                 GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream, FileConstant.STREAM_BUFFER_SIZE)) {
+                FileUtil.copyRange(filePath, 0, fileSize, gzipOutputStream);
+            }
+            
+            long compressedSize = Files.size(tempFile);
+            if (compressedSize >= fileSize * MAX_COMPRESSION_RATIO) {
+                logger.debug("压缩收益不足，不保留预压缩文件：{}，原始大小：{}，压缩后：{}", filePath, fileSize, compressedSize);
+                return;
+            }
+            Files.move(tempFile, sidecar, StandardCopyOption.ATOMIC_MOVE);
+            
+            // 生成期间原文件已被回收时，删除刚生成的预压缩文件
+            if (!Files.exists(source)) {
+                Files.deleteIfExists(sidecar);
+                return;
+            }
+            logger.info("生成预压缩文件：{}，原始大小：{}，压缩后：{}", sidecar, fileSize, compressedSize);
+        } catch (IOException e) {
+            logger.warn("生成预压缩文件失败，下载时将实时压缩：{}", filePath, e);
+        } finally {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException e) {
+                logger.debug("删除预压缩临时文件失败：{}", tempFile, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.filemanager.service.impl;
+
+import com.example.filemanager.common.exception.BusinessException;
+import com.example.filemanager.common.result.ResultCode;
+import com.example.filemanager.config.FileDownloadConfig;
+import com.example.filemanager.config.FileStorageConfig;
+import com.example.filemanager.dto.FileDownloadDescriptor;
+import com.example.filemanager.dto.response.SignedDownloadUrlDTO;
+import com.example.filemanager.service.DownloadDescriptorService;
+import com.example.filemanager.service.SignedUrlService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import jakarta.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+
+/**
+ * 签名下载链接服务实现类
+ * <p>
+ * 令牌格式为 {@code base64url(文件信息JSON).base64url(HMAC-SHA256签名)}，文件信息包含存储路径
+ * （上传根目录下的相对路径）、大小、类型、MD5、文件名和过期时间。下载时只校验签名和有效期，
+ * 不查询数据库，下载节点可以独立于数据库扩容。
+ * <p>
+ * 链接签发后文件被删除，链接在有效期内仍可下载（物理文件已回收时返回404），因此有效期应保持较短。
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+@Service
+public class SignedUrlServiceImpl implements SignedUrlService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SignedUrlServiceImpl.class);
+    
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    
+    private static final String SIGNED_DOWNLOAD_PATH = "/files/download/signed";
+    
+    private static final Base64.Encoder BASE64_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    
+    private static final Base64.Decoder BASE64_DECODER = Base64.getUrlDecoder();
+    
+    @Autowired
+    private DownloadDescriptorService downloadDescriptorService;
+    
+    @Autowired
+    private FileDownloadConfig fileDownloadConfig;
+    
+    @Autowired
+    private FileStorageConfig fileStorageConfig;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private SecretKeySpec signingKey;
+    
+    @PostConstruct
+    public void init() {
+        byte[] secret;
+        if (fileDownloadConfig.getSigningSecret() == null || fileDownloadConfig.getSigningSecret().isBlank()) {
+            secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+            logger.warn("未配置签名下载链接密钥（file.download.signing-secret），已随机生成，重启后已签发的链接失效，多节点部署时需配置相同的密钥");
+        } else {
+            secret = fileDownloadConfig.getSigningSecret().getBytes(StandardCharsets.UTF_8);
+        }
+        signingKey = new SecretKeySpec(secret, HMAC_ALGORITHM);
+    }
+    
+    @Override
+    public SignedDownloadUrlDTO createDownloadUrl(Long fileId) {
+        FileDownloadDescriptor descriptor = downloadDescriptorService.getDescriptor(fileId);
+        if (descriptor == null) {
+            throw new BusinessException(ResultCode.FILE_NOT_FOUND);
+        }
+        
+        Instant expiresAt = Instant.now().plusSeconds(fileDownloadConfig.getSignedUrlTtl());
+        ObjectNode payload = objectMapper.createObjectNode();
+        payload.put("id", descriptor.getId());
+        payload.put("path", toStoredPath(descriptor.getFilePath()));
+        payload.put("size", descriptor.getFileSize());
+        payload.put("name", descriptor.getOriginalName());
+        payload.put("type", descriptor.getFileType());
+        payload.put("mime", descriptor.getMimeType());
+        payload.put("md5", descriptor.getMd5Hash());
+        if (descriptor.getCreatedAt() != null) {
+            payload.put("created", descriptor.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+        payload.put("exp", expiresAt.getEpochSecond());
+        
+        String encodedPayload;
+        try {
+            encodedPayload = BASE64_ENCODER.encodeToString(objectMapper.writeValueAsBytes(payload));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("生成下载令牌失败", e);
+        }
+        String token = encodedPayload + "." + BASE64_ENCODER.encodeToString(sign(encodedPayload));
+        
+        UriComponentsBuilder urlBuilder = fileDownloadConfig.getSignedUrlBase() == null
+                || fileDownloadConfig.getSignedUrlBase().isBlank()
+                ? ServletUriComponentsBuilder.fromCurrentContextPath()
+                : UriComponentsBuilder.fromHttpUrl(fileDownloadConfig.getSignedUrlBase());
+        String url = urlBuilder.path(SIGNED_DOWNLOAD_PATH).queryParam("token", token).build().toUriString();
+        
+        logger.info("签发下载链接，文件ID：{}，过期时间：{}", fileId, expiresAt);
+        return new SignedDownloadUrlDTO(fileId, url, LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault()));
+    }
+    
+    @Override
+    public FileDownloadDescriptor verify(String token) {
+        int separator = token == null ? -1 : token.indexOf('.');
+        if (separator <= 0) {
+            throw new BusinessException(ResultCode.DOWNLOAD_URL_INVALID);
+        }
+        String encodedPayload = token.substring(0, separator);
+        
+        JsonNode payload;
+        try {
+            byte[] signature = BASE64_DECODER.decode(token.substring(separator + 1));
+            if (!MessageDigest.isEqual(signature, sign(encodedPayload))) {
+                throw new BusinessException(ResultCode.DOWNLOAD_URL_INVALID);
+            }
+            payload = objectMapper.readTree(BASE64_DECODER.decode(encodedPayload));
+        } catch (IllegalArgumentException | IOException e) {
+            throw new BusinessException(ResultCode.DOWNLOAD_URL_INVALID);
+        }
+        
+        if (payload.path("exp").asLong() < Instant.now().getEpochSecond()) {
+            throw new BusinessException(ResultCode.DOWNLOAD_URL_EXPIRED);
+        }
+        
+        FileDownloadDescriptor descriptor = new FileDownloadDescriptor();
+        descriptor.setId(payload.path("id").asLong());
+        descriptor.setFilePath(toFilePath(payload.path("path").asText()));
+        descriptor.setFileSize(payload.path("size").asLong());
+        descriptor.setOriginalName(payload.path("name").asText());
+        descriptor.setFileType(payload.path("type").asText(null));
+        descriptor.setMimeType(payload.path("mime").asText(null));
+        descriptor.setMd5Hash(payload.path("md5").asText(null));
+        if (payload.hasNonNull("created")) {
+            descriptor.setCreatedAt(LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(payload.get("created").asLong()), ZoneId.systemDefault()));
+        }
+        return descriptor;
+    }
+    
+    private byte[] sign(String encodedPayload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(signingKey);
+            return mac.doFinal(encodedPayload.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("计算下载令牌签名失败", e);
+        }
+    }
+    
+    /**
+     * 上传根目录下的文件只写入相对路径，避免在链接中暴露服务器目录结构
+     */
+    private String toStoredPath(String filePath) {
+        Path root = Paths.get(fileStorageConfig.getUploadPath()).toAbsolutePath().normalize();
+        Path path = Paths.get(filePath).toAbsolutePath().normalize();
+        if (path.startsWith(root)) {
+            return root.relativize(path).toString().replace('\\', '/');
+        }
+        return filePath;
+    }
+    
+    private String toFilePath(String storedPath) {
+        Path path = Paths.get(storedPath);
+        if (path.isAbsolute()) {
+            return storedPath;
+        }
+        return Paths.get(fileStorageConfig.getUploadPath()).resolve(path).toAbsolutePath().normalize().toString();
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.filemanager.service.impl;
+
+import com.example.filemanager.common.constant.FileConstant;
+import com.example.filemanager.common.exception.BusinessException;
+import com.example.filemanager.common.result.ResultCode;
+import com.example.filemanager.config.FileDownloadConfig;
+import com.example.filemanager.entity.Directory;
+import com.example.filemanager.entity.FileInfo;
+import com.example.filemanager.mapper.DirectoryMapper;
+import com.example.filemanager.mapper.FileInfoMapper;
+import com.example.filemanager.service.DownloadLimitService;
+import com.example.filemanager.service.DownloadLimitService.DownloadPermit;
+import com.example.filemanager.service.DownloadLimitService.LimitedStream;
+import com.example.filemanager.service.FileService;
+import com.example.filemanager.service.ZipDownloadService;
+import com.example.filemanager.util.FileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 打包下载服务实现类
+ * <p>
+ * 先在请求线程中查询出所有文件记录并确定压缩包内的路径，再在下载线程池中逐个文件边读边压缩写入响应：
+ * 不生成临时文件，内存占用与文件大小无关。写出使用阻塞的输出流，
+ * 客户端接收慢时写入会等待套接字缓冲区腾出空间，磁盘读取随之放慢，不会在内存中堆积数据。
+ * 图片、视频、压缩包本身已压缩，以不压缩级别写入，避免浪费CPU。
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+@Service
+public class ZipDownloadServiceImpl implements ZipDownloadService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ZipDownloadServiceImpl.class);
+    
+    /**
+     * 已压缩的文件类型，打包时不再压缩
+     */
+    private static final Set<String> COMPRESSED_FILE_TYPES = Set.of("压缩包", "视频", "图片");
+    
+    /**
+     * 按目录查询文件时每批的目录数
+     */
+    private static final int DIRECTORY_QUERY_BATCH_SIZE = 1000;
+    
+    private static final String DEFAULT_ZIP_NAME = "打包下载";
+    
+    @Autowired
+    private DirectoryMapper directoryMapper;
+    
+    @Autowired
+    private FileInfoMapper fileInfoMapper;
+    
+    @Autowired
+    private FileService fileService;
+    
+    @Autowired
+    private FileDownloadConfig fileDownloadConfig;
+    
+    @Autowired
+    private DownloadLimitService downloadLimitService;
+    
+    @Override
+    public LimitedStream downloadDirectory(Long directoryId, HttpServletRequest request,
+                                           HttpServletResponse response) {
+        Directory root = directoryMapper.selectById(directoryId);
+        if (root == null) {
+            throw new BusinessException(ResultCode.DIRECTORY_NOT_FOUND);
+        }
+        
+        String rootName = sanitizeName(root.getName());
+        String rootEntry = rootName + "/";
+        List<Directory> directories = directoryMapper.selectSubtree(root.getPath());
+        
+        // 目录ID -> 压缩包内的目录路径（以 / 结尾）。按路径长度从短到长分配，父目录总在子目录之前；
+        // 清理后同名的同级目录（如 a\b 与 a_b）同样依次追加 (1)、(2)，避免压缩包内出现重复条目
+        Set<String> usedNames = new HashSet<>();
+        usedNames.add(entryKey(rootEntry));
+        Map<Long, String> assigned = new HashMap<>();
+        assigned.put(root.getId(), rootEntry);
+        List<Directory> parentsFirst = new ArrayList<>(directories);
+        parentsFirst.sort(Comparator.comparingInt(directory -> directory.getPath().length()));
+        for (Directory directory : parentsFirst) {
+            if (!assigned.containsKey(directory.getId())) {
+                String parentEntry = assigned.getOrDefault(directory.getParentId(), rootEntry);
+                assigned.put(directory.getId(), uniqueEntryName(parentEntry, sanitizeName(directory.getName()), "", usedNames) + "/");
+            }
+        }
+        Map<Long, String> entryDirectories = new LinkedHashMap<>();
+        for (Directory directory : directories) {
+            entryDirectories.put(directory.getId(), assigned.get(directory.getId()));
+        }
+        
+        List<FileInfo> files = new ArrayList<>();
+        List<Long> directoryIds = new ArrayList<>(entryDirectories.keySet());
+        for (int i = 0; i < directoryIds.size(); i += DIRECTORY_QUERY_BATCH_SIZE) {
+            List<Long> batch = directoryIds.subList(i, Math.min(i + DIRECTORY_QUERY_BATCH_SIZE, directoryIds.size()));
+            files.addAll(fileInfoMapper.selectByDirectoryIds(batch));
+            checkFileCount(files.size());
+        }
+        
+        Map<FileInfo, String> entries = new LinkedHashMap<>();
+        for (FileInfo fileInfo : files) {
+            String entryDirectory = entryDirectories.get(fileInfo.getDirectoryId());
+            entries.put(fileInfo, uniqueEntryName(entryDirectory, fileInfo.getOriginalName(), usedNames));
+        }
+        
+        logger.info("开始打包下载目录，目录ID：{}，路径：{}，子目录数：{}，文件数：{}",
+                directoryId, root.getPath(), entryDirectories.size(), entries.size());
+        return writeZip(rootName, new ArrayList<>(entryDirectories.values()), entries, request, response);
+    }
+    
+    @Override
+    public LimitedStream downloadFiles(List<Long> fileIds, String zipName, HttpServletRequest request,
+                                       HttpServletResponse response) {
+        checkFileCount(fileIds.size());
+        
+        // 按请求的顺序写入，重复的ID只写入一次
+        Map<Long, FileInfo> filesById = new HashMap<>();
+        for (FileInfo fileInfo : fileInfoMapper.selectBatchIds(fileIds)) {
+            filesById.put(fileInfo.getId(), fileInfo);
+        }
+        if (filesById.isEmpty()) {
+            throw new BusinessException(ResultCode.FILE_NOT_FOUND);
+        }
+        
+        Map<FileInfo, String> entries = new LinkedHashMap<>();
+        Set<String> usedNames = new HashSet<>();
+        for (Long fileId : fileIds) {
+            FileInfo fileInfo = filesById.remove(fileId);
+            if (fileInfo != null) {
+                entries.put(fileInfo, uniqueEntryName("", fileInfo.getOriginalName(), usedNames));
+            }
+        }
+        
+        String name = zipName == null || zipName.isBlank() ? DEFAULT_ZIP_NAME : sanitizeName(zipName.trim());
+        logger.info("开始打包下载文件，请求文件数：{}，有效文件数：{}", fileIds.size(), entries.size());
+        return writeZip(name, List.of(), entries, request, response);
+    }
+    
+    /**
+     * 获取下载许可并设置响应头，返回在下载线程池中逐个写入目录和文件条目的响应体
+     */
+    private LimitedStream writeZip(String zipName, List<String> directoryEntries, Map<FileInfo, String> entries,
+                                   HttpServletRequest request, HttpServletResponse response) {
+        DownloadPermit permit = downloadLimitService.acquire(request.getRemoteAddr());
+        
+        String encodedFilename = URLEncoder.encode(zipName + ".zip", StandardCharsets.UTF_8)
+                .replaceAll("\\+", "%20");
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename*=UTF-8''" + encodedFilename);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        
+        return new LimitedStream(permit, outputStream -> {
+            try {
+                writeEntries(zipName, directoryEntries, entries, outputStream);
+            } catch (IOException e) {
+                logger.info("打包下载中断，压缩包：{}.zip，原因：{}", zipName, e.getMessage());
+            }
+        });
+    }
+    
+    private void writeEntries(String zipName, List<String> directoryEntries, Map<FileInfo, String> entries,
+                              OutputStream outputStream) throws IOException {
+        int written = 0;
+        int skipped = 0;
+        long totalBytes = 0;
+        ZipOutputStream zipOutputStream = new ZipOutputStream(
+                new BufferedOutputStream(outputStream, FileConstant.STREAM_BUFFER_SIZE), StandardCharsets.UTF_8);
+        for (String directoryEntry : directoryEntries) {
+            zipOutputStream.putNextEntry(new ZipEntry(directoryEntry));
+            zipOutputStream.closeEntry();
+        }
+        for (Map.Entry<FileInfo, String> entry : entries.entrySet()) {
+            FileInfo fileInfo = entry.getKey();
+            File file = new File(fileInfo.getFilePath());
+            // 响应已开始写出，无法再返回错误，缺失的文件跳过
+            if (!file.isFile()) {
+                logger.warn("打包下载时物理文件不存在，已跳过，文件ID：{}，路径：{}", fileInfo.getId(), fileInfo.getFilePath());
+                skipped++;
+                continue;
+            }
+            
+            zipOutputStream.setLevel(COMPRESSED_FILE_TYPES.contains(fileInfo.getFileType())
+                    ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+            ZipEntry zipEntry = new ZipEntry(entry.getValue());
+            if (fileInfo.getCreatedAt() != null) {
+                zipEntry.setTimeLocal(fileInfo.getCreatedAt());
+            }
+            zipOutputStream.putNextEntry(zipEntry);
+            long length = file.length();
+            FileUtil.copyRange(file.getPath(), 0, length, zipOutputStream);
+            zipOutputStream.closeEntry();
+            
+            fileService.updateDownloadCount(fileInfo.getId());
+            written++;
+            totalBytes += length;
+        }
+        zipOutputStream.finish();
+        zipOutputStream.flush();
+        
+        logger.info("打包下载完成，压缩包：{}.zip，写入文件数：{}，跳过文件数：{}，原始大小：{}",
+                zipName, written, skipped, FileUtil.formatFileSize(totalBytes));
+    }
+    
+    private void checkFileCount(int fileCount) {
+        if (fileCount > fileDownloadConfig.getZipMaxFiles()) {
+            throw new BusinessException(ResultCode.DOWNLOAD_ZIP_TOO_LARGE.getCode(),
+                    "打包下载的文件数量超出限制，最多" + fileDownloadConfig.getZipMaxFiles() + "个");
+        }
+    }
+    
+    /**
+     * 生成压缩包内唯一的文件条目名称，同一目录下重名的文件依次追加 (1)、(2)；
+     * 与同名子目录、仅大小写不同的文件也视为重名，避免在不区分大小写的文件系统上解压时互相覆盖
+     */
+    private static String uniqueEntryName(String entryDirectory, String originalName, Set<String> usedNames) {
+        String name = sanitizeName(originalName);
+        int dotIndex = name.lastIndexOf('.');
+        return dotIndex > 0
+                ? uniqueEntryName(entryDirectory, name.substring(0, dotIndex), name.substring(dotIndex), usedNames)
+                : uniqueEntryName(entryDirectory, name, "", usedNames);
+    }
+    
+    /**
+     * 生成压缩包内唯一的条目名称（名称已清理），重名时在 baseName 和 extension 之间追加序号；
+     * 目录名称不拆分扩展名
+     */
+    private static String uniqueEntryName(String entryDirectory, String baseName, String extension,
+                                          Set<String> usedNames) {
+        String candidate = entryDirectory + baseName + extension;
+        if (usedNames.add(entryKey(candidate))) {
+            return candidate;
+        }
+        
+        for (int i = 1; ; i++) {
+            candidate = entryDirectory + baseName + " (" + i + ")" + extension;
+            if (usedNames.add(entryKey(candidate))) {
+                return candidate;
+            }
+        }
+    }
+    
+    /**
+     * 条目名称的查重键：去掉目录条目末尾的 / 并忽略大小写
+     */
+    private static String entryKey(String entryName) {
+        String name = entryName.endsWith("/") ? entryName.substring(0, entryName.length() - 1) : entryName;
+        return name.toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * 清理名称中的路径分隔符和相对路径，防止解压时写到目标目录之外
+     */
+    private static String sanitizeName(String name) {
+        if (name == null || name.isBlank()) {
+            return "未命名";
+        }
+        String sanitized = name.replace('/', '_').replace('\\', '_');
+        if (".".equals(sanitized) || "..".equals(sanitized)) {
+            return "_";
+        }
+        return sanitized;
+    }
+}
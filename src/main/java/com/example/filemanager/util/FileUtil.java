@@ -1,17 +1,32 @@
 package com.example.filemanager.util;
 
+import com.example.filemanager.common.constant.FileConstant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * 文件工具类
@@ -109,17 +124,9 @@ public class FileUtil {
      * @return MD5哈希值
      */
     public static String calculateMD5(MultipartFile file) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] bytes = file.getBytes();
-            byte[] digest = md.digest(bytes);
-            
-            StringBuilder sb = new StringBuilder();
-            for (byte b : digest) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
-        } catch (NoSuchAlgorithmException | IOException e) {
+        try (InputStream inputStream = file.getInputStream()) {
+            return calculateMD5(inputStream);
+        } catch (IOException e) {
             logger.error("计算文件MD5失败", e);
             return null;
         }
@@ -133,26 +140,173 @@ public class FileUtil {
      */
     public static String calculateMD5(String filePath) {
         try (FileInputStream fis = new FileInputStream(filePath)) {
+            return calculateMD5(fis);
+        } catch (IOException e) {
+            logger.error("计算文件MD5失败", e);
+            return null;
+        }
+    }
+    
+    /**
+     * 以固定大小缓冲区流式计算输入流的MD5哈希值
+     * 
+     * @param inputStream 输入流（由调用方负责关闭）
+     * @return MD5哈希值
+     */
+    private static String calculateMD5(InputStream inputStream) throws IOException {
+        try {
             MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] buffer = new byte[8192];
+            byte[] buffer = new byte[FileConstant.STREAM_BUFFER_SIZE];
             int bytesRead;
             
-            while ((bytesRead = fis.read(buffer)) != -1) {
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
                 md.update(buffer, 0, bytesRead);
             }
+            return toHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5算法不可用", e);
+        }
+    }
+    
+    /**
+     * 将输入流写入目标文件，并在同一次读取中计算MD5哈希值
+     * <p>
+     * 使用固定大小的缓冲区，内存占用与文件大小无关；写入失败时会删除不完整的目标文件。
+     * 
+     * @param inputStream 输入流（由调用方负责关闭）
+     * @param savePath 保存路径（包含文件名）
+     * @return MD5哈希值，失败时返回null
+     */
+    public static String saveAndCalculateMD5(InputStream inputStream, String savePath) {
+        File saveFile = new File(savePath);
+        File parentDir = saveFile.getParentFile();
+        if (parentDir != null && !parentDir.exists()) {
+            parentDir.mkdirs();
+        }
+        
+        try (OutputStream outputStream = new FileOutputStream(saveFile)) {
+            MessageDigest md = MessageDigest.getInstance("MD5");
+            byte[] buffer = new byte[FileConstant.STREAM_BUFFER_SIZE];
+            int bytesRead;
             
-            byte[] digest = md.digest();
-            StringBuilder sb = new StringBuilder();
-            for (byte b : digest) {
-                sb.append(String.format("%02x", b));
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                md.update(buffer, 0, bytesRead);
+                outputStream.write(buffer, 0, bytesRead);
             }
-            return sb.toString();
+            return toHex(md.digest());
         } catch (NoSuchAlgorithmException | IOException e) {
-            logger.error("计算文件MD5失败", e);
+            logger.error("保存文件并计算MD5失败：{}", savePath, e);
+            deleteFile(savePath);
+            return null;
+        }
+    }
+    
+    /**
+     * 按顺序将多个文件合并写入目标文件，并在同一次读取中计算合并结果的MD5哈希值
+     * <p>
+     * 使用固定大小的直接缓冲区在文件通道间搬运数据，不经过堆内存复制整个文件；
+     * 合并失败时会删除不完整的目标文件。
+     * 
+     * @param sourceFiles 按顺序排列的源文件
+     * @param targetPath 目标文件路径
+     * @return MD5哈希值，失败时返回null
+     */
+    public static String mergeAndCalculateMD5(List<File> sourceFiles, String targetPath) {
+        Path target = Paths.get(targetPath);
+        try {
+            Path parent = target.getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            MessageDigest md = MessageDigest.getInstance("MD5");
+            ByteBuffer buffer = ByteBuffer.allocateDirect(FileConstant.STREAM_BUFFER_SIZE);
+            
+            try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                for (File sourceFile : sourceFiles) {
+                    try (FileChannel in = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+                        while (in.read(buffer) != -1) {
+                            buffer.flip();
+                            md.update(buffer.duplicate());
+                            while (buffer.hasRemaining()) {
+                                out.write(buffer);
+                            }
+                            buffer.clear();
+                        }
+                    }
+                }
+            }
+            return toHex(md.digest());
+        } catch (NoSuchAlgorithmException | IOException e) {
+            logger.error("合并文件并计算MD5失败：{}", targetPath, e);
+            deleteFile(targetPath);
             return null;
         }
     }
     
+    /**
+     * 删除目录及其中的所有文件
+     * 
+     * @param directoryPath 目录路径
+     * @return 是否删除成功
+     */
+    public static boolean deleteDirectory(String directoryPath) {
+        File directory = new File(directoryPath);
+        if (!directory.exists()) {
+            return true;
+        }
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            logger.info("目录删除成功：{}", directoryPath);
+            return !directory.exists();
+        } catch (IOException e) {
+            logger.error("目录删除失败：{}", directoryPath, e);
+            return false;
+        }
+    }
+    
+    /**
+     * 将文件中指定区间的内容写入输出流
+     * 
+     * @param filePath 文件路径
+     * @param start 起始位置（包含）
+     * @param length 写入的字节数
+     * @param outputStream 输出流
+     * @throws IOException 读取文件或写出失败（包括客户端断开连接）
+     */
+    public static void copyRange(String filePath, long start, long length, OutputStream outputStream) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(FileConstant.STREAM_BUFFER_SIZE);
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                buffer.clear();
+                if (remaining < buffer.capacity()) {
+                    buffer.limit((int) remaining);
+                }
+                int bytesRead = channel.read(buffer, position);
+                if (bytesRead < 0) {
+                    throw new IOException("文件长度不足，路径：" + filePath);
+                }
+                outputStream.write(buffer.array(), 0, bytesRead);
+                position += bytesRead;
+                remaining -= bytesRead;
+            }
+        }
+    }
+    
+    /**
+     * 将摘要字节数组转换为小写十六进制字符串
+     */
+    private static String toHex(byte[] digest) {
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16))
+              .append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+    
     /**
      * 格式化文件大小
      * 
@@ -205,27 +359,30 @@ public class FileUtil {
     }
     
     /**
-     * 保存上传的文件
+     * 移动文件到目标位置
+     * <p>
+     * 源文件与目标文件位于同一文件系统时为原子重命名，不会复制文件内容。
      * 
-     * @param file 上传的文件
-     * @param savePath 保存路径（包含文件名）
-     * @return 是否保存成功
+     * @param sourcePath 源文件路径
+     * @param targetPath 目标文件路径
+     * @return 是否移动成功
      */
-    public static boolean saveUploadedFile(MultipartFile file, String savePath) {
+    public static boolean moveFile(String sourcePath, String targetPath) {
         try {
-            // 确保父目录存在
-            File saveFile = new File(savePath);
-            File parentDir = saveFile.getParentFile();
-            if (!parentDir.exists()) {
-                parentDir.mkdirs();
+            Path target = Paths.get(targetPath);
+            Path parent = target.getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
             }
-            
-            // 保存文件
-            file.transferTo(saveFile);
-            logger.info("文件保存成功：{}", savePath);
+            try {
+                Files.move(Paths.get(sourcePath), target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(Paths.get(sourcePath), target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            logger.info("文件移动成功：{} -> {}", sourcePath, targetPath);
             return true;
         } catch (IOException e) {
-            logger.error("文件保存失败：{}", savePath, e);
+            logger.error("文件移动失败：{} -> {}", sourcePath, targetPath, e);
             return false;
         }
     }
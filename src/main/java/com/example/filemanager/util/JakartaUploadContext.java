@@ -0,0 +1,59 @@
+package com.example.filemanager.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.apache.commons.fileupload.UploadContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 基于Jakarta Servlet请求的上传上下文
+ * <p>
+ * commons-fileupload 1.x 自带的 ServletRequestContext 依赖 javax.servlet，
+ * 这里直接适配 jakarta.servlet 请求，以便使用其流式解析API（{@code FileUpload#getItemIterator}）。
+ * 
+ * @author system
+ * @since 2024-01-01
+ */
+public class JakartaUploadContext implements UploadContext {
+    
+    private final HttpServletRequest request;
+    
+    public JakartaUploadContext(HttpServletRequest request) {
+        this.request = request;
+    }
+    
+    @Override
+    public String getCharacterEncoding() {
+        return request.getCharacterEncoding();
+    }
+    
+    @Override
+    public String getContentType() {
+        return request.getContentType();
+    }
+    
+    @Override
+    @Deprecated
+    public int getContentLength() {
+        return request.getContentLength();
+    }
+    
+    @Override
+    public long contentLength() {
+        return request.getContentLengthLong();
+    }
+    
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return request.getInputStream();
+    }
+    
+    @Override
+    public String toString() {
+        return "JakartaUploadContext{" +
+                "contentLength=" + contentLength() +
+                ", contentType='" + getContentType() + '\'' +
+                '}';
+    }
+}
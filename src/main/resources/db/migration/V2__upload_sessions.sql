@@ -0,0 +1,24 @@
+-- 分片上传会话表
+-- 创建时间: 2026-10-18
+
+USE file_manager;
+
+CREATE TABLE IF NOT EXISTS upload_sessions (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '会话ID',
+    upload_id VARCHAR(32) NOT NULL COMMENT '上传会话标识',
+    file_name VARCHAR(255) NOT NULL COMMENT '原始文件名',
+    file_size BIGINT NOT NULL COMMENT '文件大小（字节）',
+    mime_type VARCHAR(100) COMMENT 'MIME类型',
+    chunk_size BIGINT NOT NULL COMMENT '分片大小（字节）',
+    total_chunks INT NOT NULL COMMENT '分片总数',
+    directory_id BIGINT NOT NULL COMMENT '目标目录ID',
+    description TEXT COMMENT '文件描述',
+    status TINYINT NOT NULL DEFAULT 0 COMMENT '会话状态，0上传中，1合并中，2已完成',
+    file_id BIGINT COMMENT '合并完成后生成的文件ID',
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    deleted TINYINT DEFAULT 0 COMMENT '逻辑删除标志，0未删除，1已删除',
+    UNIQUE KEY uk_upload_id (upload_id),
+    INDEX idx_status_updated_at (status, updated_at),
+    INDEX idx_deleted (deleted)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='分片上传会话表';
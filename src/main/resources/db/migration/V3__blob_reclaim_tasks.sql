@@ -0,0 +1,16 @@
+-- 物理文件回收任务表
+-- 创建时间: 2026-10-18
+
+USE file_manager;
+
+CREATE TABLE IF NOT EXISTS blob_reclaim_tasks (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '任务ID',
+    file_path VARCHAR(1000) NOT NULL COMMENT '待回收的物理文件路径',
+    md5_hash VARCHAR(32) NOT NULL COMMENT '文件MD5哈希值',
+    attempts INT NOT NULL DEFAULT 0 COMMENT '已失败次数',
+    next_attempt_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '下次处理时间',
+    last_error VARCHAR(500) COMMENT '最近一次失败原因',
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    INDEX idx_next_attempt_at (next_attempt_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='物理文件回收任务表';
@@ -0,0 +1,47 @@
+-- 文件内容（物理文件）表，文件记录通过 blob_id 引用，引用计数归零后由回收任务删除物理文件
+-- 创建时间: 2026-10-18
+
+USE file_manager;
+
+CREATE TABLE IF NOT EXISTS file_blobs (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '内容ID',
+    md5_hash VARCHAR(32) NOT NULL COMMENT '内容MD5哈希值',
+    file_size BIGINT NOT NULL COMMENT '内容大小（字节）',
+    storage_path VARCHAR(1000) NOT NULL COMMENT '物理文件存储路径',
+    ref_count INT NOT NULL DEFAULT 0 COMMENT '引用该内容的未删除文件记录数',
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    UNIQUE KEY uk_md5_size (md5_hash, file_size)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='文件内容表';
+
+ALTER TABLE file_info
+    ADD COLUMN blob_id BIGINT COMMENT '文件内容ID' AFTER md5_hash,
+    ADD INDEX idx_blob_id (blob_id);
+
+ALTER TABLE blob_reclaim_tasks
+    ADD COLUMN blob_id BIGINT COMMENT '待回收的文件内容ID' AFTER id;
+
+-- 为已有文件生成内容记录，同一内容取最早的物理文件
+INSERT INTO file_blobs (md5_hash, file_size, storage_path, ref_count)
+SELECT f.md5_hash, f.file_size, f.file_path, c.ref_count
+FROM file_info f
+JOIN (
+    SELECT MIN(id) AS first_id, COUNT(*) AS ref_count
+    FROM file_info
+    WHERE deleted = 0 AND md5_hash IS NOT NULL
+    GROUP BY md5_hash, file_size
+) c ON f.id = c.first_id;
+
+-- 同一内容的其余物理副本改指向内容记录后不再被引用，登记按路径回收的任务（blob_id 为空），
+-- 回收时确认没有未删除的记录仍指向该路径才删除
+INSERT INTO blob_reclaim_tasks (blob_id, file_path, md5_hash)
+SELECT DISTINCT NULL, f.file_path, f.md5_hash
+FROM file_info f
+JOIN file_blobs b ON f.md5_hash = b.md5_hash AND f.file_size = b.file_size
+WHERE f.deleted = 0
+  AND f.file_path <> b.storage_path;
+
+UPDATE file_info f
+JOIN file_blobs b ON f.md5_hash = b.md5_hash AND f.file_size = b.file_size
+SET f.blob_id = b.id, f.file_path = b.storage_path, f.updated_at = f.updated_at
+WHERE f.deleted = 0;
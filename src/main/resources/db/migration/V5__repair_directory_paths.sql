@@ -0,0 +1,22 @@
+-- 按父子关系重新计算目录路径
+-- 创建时间: 2026-10-18
+-- 说明: 早期版本重命名目录时未更新自身及子孙目录的路径，导致 path 与父子关系不一致；
+--       目录移动的循环检测改为按路径前缀比较后，要求 path 与父子关系严格一致。
+
+USE file_manager;
+
+WITH RECURSIVE directory_paths (id, path) AS (
+    SELECT id, CAST('/' AS CHAR(1000))
+    FROM directories
+    WHERE parent_id = 0
+      AND deleted = 0
+    UNION ALL
+    SELECT c.id, CONCAT(IF(p.path = '/', '', p.path), '/', c.name)
+    FROM directories c
+    JOIN directory_paths p ON c.parent_id = p.id
+    WHERE c.deleted = 0
+)
+UPDATE directories d
+JOIN directory_paths dp ON dp.id = d.id
+SET d.path = dp.path, d.updated_at = d.updated_at
+WHERE d.path <> dp.path;
@@ -0,0 +1,86 @@
+-- 同一父目录下未删除目录的名称唯一约束
+-- 创建时间: 2026-10-18
+-- 说明: live_marker 对未删除的目录为1、已删除的目录为NULL，唯一键中包含NULL的行互不冲突，
+--       因此只约束未删除的同级目录，已删除的同名目录不影响新建。
+--       名称按列的排序规则 utf8mb4_unicode_ci 比较，仅大小写、重音或尾部空格不同的同级目录也视为重名。
+--
+-- 执行前可用以下查询预览需要处理的重名目录（与唯一键使用相同的排序规则）：
+--   SELECT parent_id, name, COUNT(*) AS duplicates, GROUP_CONCAT(id ORDER BY id) AS ids
+--   FROM directories
+--   WHERE deleted = 0
+--   GROUP BY parent_id, name
+--   HAVING COUNT(*) > 1;
+--
+-- 处理方式: 每组保留ID最小的一个，其余追加后缀 " (ID)"；追加后缀后与已有名称再次重名时，
+--           下一轮改为追加 " (ID-轮次)"，直到没有重名。名称超长时先截断原名称再追加后缀，保证不超过255个字符。
+
+USE file_manager;
+
+DROP PROCEDURE IF EXISTS dedupe_directory_sibling_names;
+
+DELIMITER //
+
+CREATE PROCEDURE dedupe_directory_sibling_names()
+BEGIN
+    DECLARE round_no INT DEFAULT 0;
+    DECLARE remaining INT DEFAULT 1;
+
+    WHILE remaining > 0 DO
+        SET round_no = round_no + 1;
+        IF round_no > 10 THEN
+            SIGNAL SQLSTATE '45000'
+                SET MESSAGE_TEXT = '同级目录重名处理10轮后仍有重名，请用说明中的预检查询排查后手工处理';
+        END IF;
+
+        -- 为重名的同级目录追加后缀，保留ID最小的一个
+        UPDATE directories d
+        JOIN (
+            SELECT id, IF(round_no = 1, CONCAT(' (', id, ')'), CONCAT(' (', id, '-', round_no, ')')) AS suffix
+            FROM (
+                SELECT id, ROW_NUMBER() OVER (PARTITION BY parent_id, name ORDER BY id) AS rn
+                FROM directories
+                WHERE deleted = 0
+            ) ranked
+            WHERE rn > 1
+        ) duplicated ON duplicated.id = d.id
+        SET d.name = CONCAT(LEFT(d.name, 255 - CHAR_LENGTH(duplicated.suffix)), duplicated.suffix),
+            d.updated_at = d.updated_at;
+
+        -- 追加的后缀可能与已有名称重名，检查后进入下一轮
+        SELECT COUNT(*) INTO remaining
+        FROM (
+            SELECT 1
+            FROM directories
+            WHERE deleted = 0
+            GROUP BY parent_id, name
+            HAVING COUNT(*) > 1
+        ) duplicates;
+    END WHILE;
+END //
+
+DELIMITER ;
+
+CALL dedupe_directory_sibling_names();
+
+DROP PROCEDURE dedupe_directory_sibling_names;
+
+-- 重命名后重新计算路径
+WITH RECURSIVE directory_paths (id, path) AS (
+    SELECT id, CAST('/' AS CHAR(1000))
+    FROM directories
+    WHERE parent_id = 0
+      AND deleted = 0
+    UNION ALL
+    SELECT c.id, CONCAT(IF(p.path = '/', '', p.path), '/', c.name)
+    FROM directories c
+    JOIN directory_paths p ON c.parent_id = p.id
+    WHERE c.deleted = 0
+)
+UPDATE directories d
+JOIN directory_paths dp ON dp.id = d.id
+SET d.path = dp.path, d.updated_at = d.updated_at
+WHERE d.path <> dp.path;
+
+ALTER TABLE directories
+    ADD COLUMN live_marker TINYINT GENERATED ALWAYS AS (IF(deleted = 0, 1, NULL)) STORED COMMENT '未删除标记，未删除为1，已删除为NULL',
+    ADD UNIQUE KEY uk_parent_name_live (parent_id, name, live_marker);
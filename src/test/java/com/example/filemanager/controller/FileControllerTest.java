@@ -0,0 +1,150 @@
+package com.example.filemanager.controller;
+
+import com.example.filemanager.common.exception.BusinessException;
+import com.example.filemanager.common.result.ResultCode;
+import com.example.filemanager.config.FileDownloadConfig;
+import com.example.filemanager.service.DownloadLimitService.DownloadPermit;
+import com.example.filemanager.service.DownloadLimitService.LimitedStream;
+import com.example.filemanager.service.DownloadService;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 文件下载接口测试：流式下载在下载线程池中写出并使用下载自己的超时时间，
+ * 已在请求线程中完成的下载不进入异步处理，下载并发已满时返回503，
+ * 异步任务未执行就超时结束时归还下载许可
+ *
+ * @author system
+ * @since 2024-01-01
+ */
+class FileControllerTest {
+
+    private final DownloadService downloadService = mock(DownloadService.class);
+
+    private final FileDownloadConfig fileDownloadConfig = new FileDownloadConfig();
+
+    private final ThreadPoolTaskExecutor downloadTaskExecutor = new ThreadPoolTaskExecutor();
+
+    private FileController controller;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        fileDownloadConfig.setStreamTimeout(1234L);
+        downloadTaskExecutor.setThreadNamePrefix("download-");
+        downloadTaskExecutor.initialize();
+
+        controller = new FileController();
+        ReflectionTestUtils.setField(controller, "downloadService", downloadService);
+        ReflectionTestUtils.setField(controller, "fileDownloadConfig", fileDownloadConfig);
+        ReflectionTestUtils.setField(controller, "downloadTaskExecutor", downloadTaskExecutor);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        downloadTaskExecutor.shutdown();
+    }
+
+    @Test
+    void streamsOnDownloadExecutorWithDownloadTimeout() throws Exception {
+        AtomicReference<String> writerThread = new AtomicReference<>();
+        StreamingResponseBody body = outputStream -> {
+            writerThread.set(Thread.currentThread().getName());
+            outputStream.write("文件内容".getBytes(StandardCharsets.UTF_8));
+        };
+        DownloadPermit permit = mock(DownloadPermit.class);
+        when(downloadService.download(eq(7L), any(), any())).thenReturn(new LimitedStream(permit, body));
+
+        MvcResult result = mockMvc.perform(get("/files/download/7"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(1234L, result.getRequest().getAsyncContext().getTimeout());
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes("文件内容".getBytes(StandardCharsets.UTF_8)));
+        assertTrue(writerThread.get().startsWith("download-"));
+        verify(permit, atLeastOnce()).close();
+    }
+
+    @Test
+    void timeoutBeforeTaskRunsReleasesPermit() throws Exception {
+        // 下载线程池繁忙，任务一直没有开始执行
+        List<Runnable> pendingTasks = new ArrayList<>();
+        AsyncTaskExecutor busyExecutor = pendingTasks::add;
+        ReflectionTestUtils.setField(controller, "downloadTaskExecutor", busyExecutor);
+        AtomicBoolean written = new AtomicBoolean();
+        DownloadPermit permit = mock(DownloadPermit.class);
+        when(downloadService.download(eq(7L), any(), any()))
+                .thenReturn(new LimitedStream(permit, outputStream -> written.set(true)));
+
+        MvcResult result = mockMvc.perform(get("/files/download/7"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(1, pendingTasks.size());
+
+        MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+        asyncContext.complete();
+
+        verify(permit).close();
+        assertFalse(written.get());
+    }
+
+    @Test
+    void completedDownloadDoesNotStartAsyncProcessing() throws Exception {
+        when(downloadService.download(eq(7L), any(), any())).thenReturn(null);
+
+        mockMvc.perform(get("/files/download/7"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void busyDownloadReturnsServiceUnavailable() throws Exception {
+        when(downloadService.download(eq(7L), any(), any()))
+                .thenThrow(new BusinessException(ResultCode.DOWNLOAD_SERVER_BUSY));
+
+        mockMvc.perform(get("/files/download/7"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "5"));
+    }
+}
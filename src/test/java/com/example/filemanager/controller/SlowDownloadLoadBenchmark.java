@@ -0,0 +1,336 @@
+package com.example.filemanager.controller;
+
+import com.example.filemanager.config.ExecutorConfig;
+import com.example.filemanager.config.FileDownloadConfig;
+import com.example.filemanager.dto.FileDownloadDescriptor;
+import com.example.filemanager.dto.response.DirectoryResponseDTO;
+import com.example.filemanager.service.ChunkUploadService;
+import com.example.filemanager.service.DirectoryDeleteService;
+import com.example.filemanager.service.DirectoryService;
+import com.example.filemanager.service.DownloadDescriptorService;
+import com.example.filemanager.service.FileContentCacheService;
+import com.example.filemanager.service.FileService;
+import com.example.filemanager.service.GzipCompressionService;
+import com.example.filemanager.service.SignedUrlService;
+import com.example.filemanager.service.ZipDownloadService;
+import com.example.filemanager.service.impl.DownloadLimitServiceImpl;
+import com.example.filemanager.service.impl.DownloadServiceImpl;
+import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.AnnotationConfigUtils;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.support.GenericWebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.config.annotation.DelegatingWebMvcConfiguration;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 大量慢速下载进行时元数据接口的延迟基准
+ * <p>
+ * 启动一个内嵌 Tomcat（NIO 连接器，默认200个工作线程，与生产环境相同），通过 {@link DispatcherServlet}
+ * 挂载 {@link FileController} 和 {@link DirectoryController}，下载由 {@link DownloadServiceImpl} 在下载线程池中写出。
+ * 先在没有下载时统计 {@code /directories/tree} 的延迟作为基线，再通过 {@code /files/download/{id}}
+ * 打开1000个限速读取的下载，在这些下载进行中再次统计，对比两次的 p99。
+ * 目录服务返回固定的目录树，测得的是请求线程和序列化的开销，不含数据库访问。
+ * 客户端与服务端在同一进程内，CPU 核数较少时下载写出与目录树请求争抢 CPU，应在多核机器上运行。
+ * <p>
+ * 所有慢速客户端都来自本机回环地址，基准中把单客户端上限调到与下载数相同。
+ * 类名不以 Test 结尾，不随 {@code mvn test} 执行，需要单独运行：
+ * <pre>
+ * mvn test -Dtest=SlowDownloadLoadBenchmark -Dsurefire.failIfNoSpecifiedTests=false \
+ *     -Dbenchmark.slow-downloads=1000 -Dbenchmark.tree-requests=5000 -Dbenchmark.tree-concurrency=16
+ * </pre>
+ *
+ * @author system
+ * @since 2024-01-01
+ */
+class SlowDownloadLoadBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowDownloadLoadBenchmark.class);
+
+    private static final int SLOW_DOWNLOADS = Integer.getInteger("benchmark.slow-downloads", 1000);
+
+    private static final int FILE_SIZE_MB = Integer.getInteger("benchmark.file-size-mb", 64);
+
+    private static final int TREE_REQUESTS = Integer.getInteger("benchmark.tree-requests", 5000);
+
+    private static final int TREE_CONCURRENCY = Integer.getInteger("benchmark.tree-concurrency", 16);
+
+    /**
+     * 慢速客户端每100毫秒读取的字节数，默认4KB，即每个下载约40KB/s
+     */
+    private static final int READ_BYTES_PER_TICK = Integer.getInteger("benchmark.read-bytes-per-tick", 4096);
+
+    @TempDir
+    Path workDir;
+
+    private final FileDownloadConfig fileDownloadConfig = new FileDownloadConfig();
+
+    private ThreadPoolTaskExecutor downloadTaskExecutor;
+
+    private Tomcat tomcat;
+
+    private int port;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path file = workDir.resolve("payload.bin");
+        byte[] block = new byte[1024 * 1024];
+        new Random(42).nextBytes(block);
+        try (OutputStream outputStream = Files.newOutputStream(file)) {
+            for (int i = 0; i < FILE_SIZE_MB; i++) {
+                outputStream.write(block);
+            }
+        }
+
+        FileDownloadDescriptor descriptor = new FileDownloadDescriptor();
+        descriptor.setId(1L);
+        descriptor.setOriginalName("payload.bin");
+        descriptor.setFilePath(file.toString());
+        descriptor.setFileSize(Files.size(file));
+        descriptor.setFileType("bin");
+        descriptor.setMimeType("application/octet-stream");
+
+        // 只测流式下载，零拷贝下载不占用下载线程
+        fileDownloadConfig.setGzipEnabled(false);
+        fileDownloadConfig.setSendfileEnabled(false);
+        fileDownloadConfig.setMaxConcurrentStreams(Math.max(SLOW_DOWNLOADS + 200, fileDownloadConfig.getMaxConcurrentStreams()));
+        fileDownloadConfig.setMaxConcurrentStreamsPerClient(SLOW_DOWNLOADS);
+        downloadTaskExecutor = new ExecutorConfig().downloadTaskExecutor(fileDownloadConfig);
+
+        DownloadDescriptorService downloadDescriptorService = mock(DownloadDescriptorService.class);
+        when(downloadDescriptorService.getDescriptor(anyLong())).thenReturn(descriptor);
+        DirectoryService directoryService = mock(DirectoryService.class);
+        List<DirectoryResponseDTO> tree = buildTree();
+        when(directoryService.getDirectoryTree()).thenReturn(tree);
+
+        GenericWebApplicationContext applicationContext = new GenericWebApplicationContext();
+        AnnotationConfigUtils.registerAnnotationConfigProcessors(applicationContext);
+        applicationContext.registerBean(DelegatingWebMvcConfiguration.class);
+        applicationContext.registerBean(FileController.class);
+        applicationContext.registerBean(DirectoryController.class);
+        applicationContext.registerBean(FileDownloadConfig.class, () -> fileDownloadConfig);
+        applicationContext.registerBean("downloadTaskExecutor", AsyncTaskExecutor.class, () -> downloadTaskExecutor);
+        applicationContext.registerBean(DownloadServiceImpl.class);
+        applicationContext.registerBean(DownloadLimitServiceImpl.class);
+        applicationContext.registerBean(DownloadDescriptorService.class, () -> downloadDescriptorService);
+        applicationContext.registerBean(FileContentCacheService.class, () -> mock(FileContentCacheService.class));
+        applicationContext.registerBean(GzipCompressionService.class, () -> mock(GzipCompressionService.class));
+        applicationContext.registerBean(DirectoryService.class, () -> directoryService);
+        applicationContext.registerBean(FileService.class, () -> mock(FileService.class));
+        applicationContext.registerBean(ChunkUploadService.class, () -> mock(ChunkUploadService.class));
+        applicationContext.registerBean(ZipDownloadService.class, () -> mock(ZipDownloadService.class));
+        applicationContext.registerBean(SignedUrlService.class, () -> mock(SignedUrlService.class));
+        applicationContext.registerBean(DirectoryDeleteService.class, () -> mock(DirectoryDeleteService.class));
+
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(workDir.resolve("tomcat").toString());
+        Connector connector = new Connector("org.apache.coyote.http11.Http11NioProtocol");
+        connector.setPort(0);
+        tomcat.setConnector(connector);
+        Context context = tomcat.addContext("", workDir.toString());
+        Wrapper dispatcher = Tomcat.addServlet(context, "dispatcher", new DispatcherServlet(applicationContext));
+        dispatcher.setAsyncSupported(true);
+        dispatcher.setLoadOnStartup(1);
+        context.addServletMappingDecoded("/", "dispatcher");
+        tomcat.start();
+        port = connector.getLocalPort();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        tomcat.stop();
+        tomcat.destroy();
+        downloadTaskExecutor.shutdown();
+    }
+
+    @Test
+    void treeLatencyWithSlowDownloadsInFlight() throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(TREE_CONCURRENCY);
+        ScheduledExecutorService slowReader = Executors.newSingleThreadScheduledExecutor();
+        List<Socket> downloads = new ArrayList<>(SLOW_DOWNLOADS);
+        try {
+            // 预热一轮，使 JIT 与连接池进入稳定状态
+            measureTree(clients);
+            long[] baseline = measureTree(clients);
+
+            List<InputStream> bodies = new ArrayList<>(SLOW_DOWNLOADS);
+            for (int i = 0; i < SLOW_DOWNLOADS; i++) {
+                Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                downloads.add(socket);
+                bodies.add(openDownload(socket));
+            }
+            slowReader.scheduleAtFixedRate(() -> readSlowly(bodies), 100, 100, TimeUnit.MILLISECONDS);
+            assertEquals(SLOW_DOWNLOADS, downloadTaskExecutor.getActiveCount(), "所有慢速下载都应在下载线程池中写出");
+
+            long[] loaded = measureTree(clients);
+            int activeDownloads = downloadTaskExecutor.getActiveCount();
+
+            logger.info("元数据延迟基准：慢速下载 {} 个（每个约 {}KB/s），目录树请求 {} 次，并发 {}，CPU 核数 {}",
+                    SLOW_DOWNLOADS, READ_BYTES_PER_TICK * 10 / 1024, TREE_REQUESTS, TREE_CONCURRENCY,
+                    Runtime.getRuntime().availableProcessors());
+            report("无下载", baseline);
+            report("下载进行中（结束时仍有 " + activeDownloads + " 个）", loaded);
+            logger.info("p99 变化：{} 倍", String.format("%.2f",
+                    (double) percentile(loaded, 0.99) / percentile(baseline, 0.99)));
+        } finally {
+            slowReader.shutdownNow();
+            for (Socket socket : downloads) {
+                socket.close();
+            }
+            clients.shutdownNow();
+        }
+    }
+
+    /**
+     * 并发请求目录树
+     * <p>
+     * 每轮使用新的客户端，打开慢速下载期间空闲超时被服务端关闭的连接不会被复用
+     *
+     * @return 按升序排列的每次请求耗时（纳秒）
+     */
+    private long[] measureTree(ExecutorService clients) throws Exception {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/directories/tree")).build();
+        int perClient = TREE_REQUESTS / TREE_CONCURRENCY;
+        List<Future<long[]>> workers = new ArrayList<>(TREE_CONCURRENCY);
+        for (int i = 0; i < TREE_CONCURRENCY; i++) {
+            workers.add(clients.submit(() -> {
+                long[] latencies = new long[perClient];
+                for (int j = 0; j < perClient; j++) {
+                    long start = System.nanoTime();
+                    HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                    latencies[j] = System.nanoTime() - start;
+                    assertEquals(200, response.statusCode());
+                }
+                return latencies;
+            }));
+        }
+        long[] latencies = new long[perClient * TREE_CONCURRENCY];
+        for (int i = 0; i < TREE_CONCURRENCY; i++) {
+            System.arraycopy(workers.get(i).get(), 0, latencies, i * perClient, perClient);
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    /**
+     * 发送下载请求并读完响应头，返回响应体输入流
+     */
+    private static InputStream openDownload(Socket socket) throws IOException {
+        OutputStream outputStream = socket.getOutputStream();
+        outputStream.write(("GET /files/download/1 HTTP/1.1\r\nHost: 127.0.0.1\r\nConnection: close\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        outputStream.flush();
+
+        InputStream inputStream = new BufferedInputStream(socket.getInputStream());
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        int matched = 0;
+        byte[] terminator = {'\r', '\n', '\r', '\n'};
+        while (matched < terminator.length) {
+            int b = inputStream.read();
+            if (b == -1) {
+                throw new IOException("下载响应头不完整：" + header.toString(StandardCharsets.US_ASCII));
+            }
+            header.write(b);
+            matched = b == terminator[matched] ? matched + 1 : (b == '\r' ? 1 : 0);
+        }
+        String statusLine = header.toString(StandardCharsets.US_ASCII).split("\r\n", 2)[0];
+        assertTrue(statusLine.startsWith("HTTP/1.1 200"), statusLine);
+        return inputStream;
+    }
+
+    /**
+     * 每个慢速客户端读取一小段，服务端写出在其余时间阻塞在发送缓冲区上
+     */
+    private static void readSlowly(List<InputStream> bodies) {
+        byte[] buffer = new byte[READ_BYTES_PER_TICK];
+        for (InputStream body : bodies) {
+            try {
+                body.read(buffer);
+            } catch (IOException e) {
+                // 基准结束时关闭连接
+            }
+        }
+    }
+
+    /**
+     * 10个根目录，每个根目录下20个子目录
+     */
+    private static List<DirectoryResponseDTO> buildTree() {
+        List<DirectoryResponseDTO> roots = new ArrayList<>();
+        long id = 1;
+        for (int i = 0; i < 10; i++) {
+            DirectoryResponseDTO root = directory(id++, 0L, "/目录" + i);
+            List<DirectoryResponseDTO> children = new ArrayList<>();
+            for (int j = 0; j < 20; j++) {
+                children.add(directory(id++, root.getId(), root.getPath() + "/子目录" + j));
+            }
+            root.setChildren(children);
+            root.setHasChildren(true);
+            root.setChildCount(children.size());
+            roots.add(root);
+        }
+        return roots;
+    }
+
+    private static DirectoryResponseDTO directory(long id, long parentId, String path) {
+        DirectoryResponseDTO directory = new DirectoryResponseDTO();
+        directory.setId(id);
+        directory.setParentId(parentId);
+        directory.setName(path.substring(path.lastIndexOf('/') + 1));
+        directory.setPath(path);
+        directory.setHasChildren(false);
+        directory.setChildCount(0);
+        return directory;
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted[(int) Math.ceil(quantile * sorted.length) - 1];
+    }
+
+    private static void report(String mode, long[] latencies) {
+        logger.info("{}：p50 {} 毫秒，p99 {} 毫秒，最大 {} 毫秒", mode,
+                String.format("%.2f", percentile(latencies, 0.5) / 1e6),
+                String.format("%.2f", percentile(latencies, 0.99) / 1e6),
+                String.format("%.2f", latencies[latencies.length - 1] / 1e6));
+    }
+}
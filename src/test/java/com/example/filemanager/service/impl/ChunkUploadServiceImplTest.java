@@ -0,0 +1,317 @@
+package com.example.filemanager.service.impl;
+
+import com.example.filemanager.common.constant.FileConstant;
+import com.example.filemanager.common.exception.BusinessException;
+import com.example.filemanager.common.result.ResultCode;
+import com.example.filemanager.config.FileStorageConfig;
+import com.example.filemanager.dto.request.ChunkUploadInitDTO;
+import com.example.filemanager.dto.response.ChunkUploadSessionDTO;
+import com.example.filemanager.dto.response.FileResponseDTO;
+import com.example.filemanager.entity.Directory;
+import com.example.filemanager.entity.UploadSession;
+import com.example.filemanager.mapper.DirectoryMapper;
+import com.example.filemanager.mapper.UploadSessionMapper;
+import com.example.filemanager.service.FileService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 分片上传测试：会话初始化、分片校验、断点续传以及并发完成请求只合并一次
+ *
+ * @author system
+ * @since 2024-01-01
+ */
+class ChunkUploadServiceImplTest {
+
+    private static final int CHUNK_SIZE = (int) FileConstant.MIN_CHUNK_SIZE;
+
+    private static final int FILE_SIZE = CHUNK_SIZE * 2 + 1000;
+
+    @TempDir
+    Path uploadRoot;
+
+    private final UploadSessionMapper uploadSessionMapper = mock(UploadSessionMapper.class);
+
+    private final DirectoryMapper directoryMapper = mock(DirectoryMapper.class);
+
+    private final FileService fileService = mock(FileService.class);
+
+    /**
+     * 以上传标识为键模拟 upload_sessions 表
+     */
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    private final AtomicLong tempFiles = new AtomicLong();
+
+    private final ExecutorService requestThreads = Executors.newFixedThreadPool(2);
+
+    private final byte[] content = new byte[FILE_SIZE];
+
+    private ChunkUploadServiceImpl chunkUploadService;
+
+    @BeforeEach
+    void setUp() {
+        FileStorageConfig fileStorageConfig = new FileStorageConfig();
+        fileStorageConfig.setUploadPath(uploadRoot.toString());
+        fileStorageConfig.setChunkSize(CHUNK_SIZE);
+        fileStorageConfig.setMaxChunkedFileSize(100 * 1024 * 1024L);
+
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31);
+        }
+
+        Directory directory = new Directory();
+        directory.setId(1L);
+        directory.setName("文档");
+        when(directoryMapper.selectById(1L)).thenReturn(directory);
+
+        when(uploadSessionMapper.insert(any(UploadSession.class))).thenAnswer(invocation -> {
+            UploadSession session = invocation.getArgument(0);
+            sessions.put(session.getUploadId(), session);
+            return 1;
+        });
+        when(uploadSessionMapper.selectByUploadId(anyString()))
+                .thenAnswer(invocation -> copyOf(sessions.get(invocation.<String>getArgument(0))));
+        when(uploadSessionMapper.updateStatus(anyString(), any(), any(), any())).thenAnswer(invocation -> {
+            synchronized (sessions) {
+                UploadSession session = sessions.get(invocation.<String>getArgument(0));
+                if (session == null || !invocation.getArgument(1).equals(session.getStatus())) {
+                    return 0;
+                }
+                session.setStatus(invocation.getArgument(2));
+                session.setFileId(invocation.getArgument(3));
+                return 1;
+            }
+        });
+
+        when(fileService.createTempFilePath()).thenAnswer(invocation ->
+                uploadRoot.resolve("merged-" + tempFiles.incrementAndGet()).toString());
+
+        chunkUploadService = new ChunkUploadServiceImpl();
+        ReflectionTestUtils.setField(chunkUploadService, "uploadSessionMapper", uploadSessionMapper);
+        ReflectionTestUtils.setField(chunkUploadService, "directoryMapper", directoryMapper);
+        ReflectionTestUtils.setField(chunkUploadService, "fileService", fileService);
+        ReflectionTestUtils.setField(chunkUploadService, "fileStorageConfig", fileStorageConfig);
+    }
+
+    @AfterEach
+    void tearDown() {
+        requestThreads.shutdownNow();
+    }
+
+    @Test
+    void initSplitsFileIntoChunks() {
+        ChunkUploadInitDTO initDTO = initDTO();
+        initDTO.setChunkSize(1024L);
+
+        ChunkUploadSessionDTO session = chunkUploadService.initSession(initDTO);
+
+        // 小于下限的分片大小按下限处理，最后一个分片为剩余字节数
+        assertEquals(CHUNK_SIZE, session.getChunkSize());
+        assertEquals(3, session.getTotalChunks());
+        assertEquals(List.of(), session.getUploadedChunks());
+        assertEquals(List.of(0, 1, 2), session.getMissingChunks());
+        assertTrue(Files.isDirectory(chunkDirectory(session.getUploadId())));
+    }
+
+    @Test
+    void resumedUploadOnlyNeedsMissingChunks() throws Exception {
+        String uploadId = chunkUploadService.initSession(initDTO()).getUploadId();
+        uploadChunk(uploadId, 0);
+        uploadChunk(uploadId, 2);
+
+        // 中断后重新查询会话，只需补传缺失的分片
+        ChunkUploadSessionDTO session = chunkUploadService.getSession(uploadId);
+        assertEquals(List.of(0, 2), session.getUploadedChunks());
+        assertEquals(List.of(1), session.getMissingChunks());
+
+        BusinessException incomplete = assertThrows(BusinessException.class,
+                () -> chunkUploadService.completeSession(uploadId));
+        assertEquals(ResultCode.UPLOAD_CHUNKS_INCOMPLETE.getCode(), incomplete.getCode());
+
+        uploadChunk(uploadId, 1);
+        FileResponseDTO stored = storedFile(42L);
+        byte[][] merged = new byte[1][];
+        when(fileService.storeTempFile(anyString(), anyString(), anyLong(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    merged[0] = Files.readAllBytes(Path.of(invocation.<String>getArgument(0)));
+                    assertEquals(DigestUtils.md5DigestAsHex(content), invocation.getArgument(1));
+                    return stored;
+                });
+
+        assertSame(stored, chunkUploadService.completeSession(uploadId));
+        assertArrayEquals(content, merged[0]);
+        assertEquals(UploadSession.STATUS_COMPLETED, sessions.get(uploadId).getStatus());
+        assertEquals(42L, sessions.get(uploadId).getFileId());
+        assertFalse(Files.exists(chunkDirectory(uploadId)));
+    }
+
+    @Test
+    void chunkWithWrongSizeIsRejected() throws Exception {
+        String uploadId = chunkUploadService.initSession(initDTO()).getUploadId();
+
+        BusinessException tooShort = assertThrows(BusinessException.class, () -> chunkUploadService
+                .uploadChunk(uploadId, 0, new ByteArrayInputStream(new byte[CHUNK_SIZE - 1])));
+        assertEquals(ResultCode.UPLOAD_CHUNK_INVALID.getCode(), tooShort.getCode());
+
+        BusinessException tooLong = assertThrows(BusinessException.class, () -> chunkUploadService
+                .uploadChunk(uploadId, 2, new ByteArrayInputStream(new byte[CHUNK_SIZE])));
+        assertEquals(ResultCode.UPLOAD_CHUNK_INVALID.getCode(), tooLong.getCode());
+
+        BusinessException outOfRange = assertThrows(BusinessException.class, () -> chunkUploadService
+                .uploadChunk(uploadId, 3, new ByteArrayInputStream(new byte[0])));
+        assertEquals(ResultCode.UPLOAD_CHUNK_INVALID.getCode(), outOfRange.getCode());
+
+        // 校验失败的临时分片文件不应残留
+        try (var files = Files.list(chunkDirectory(uploadId))) {
+            assertEquals(0, files.count());
+        }
+        assertEquals(List.of(0, 1, 2), chunkUploadService.getSession(uploadId).getMissingChunks());
+    }
+
+    @Test
+    void concurrentCompleteMergesOnce() throws Exception {
+        String uploadId = chunkUploadService.initSession(initDTO()).getUploadId();
+        for (int i = 0; i < 3; i++) {
+            uploadChunk(uploadId, i);
+        }
+
+        CountDownLatch merging = new CountDownLatch(1);
+        CountDownLatch finishMerge = new CountDownLatch(1);
+        FileResponseDTO stored = storedFile(42L);
+        when(fileService.storeTempFile(anyString(), anyString(), anyLong(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    merging.countDown();
+                    assertTrue(finishMerge.await(5, TimeUnit.SECONDS));
+                    return stored;
+                });
+        when(fileService.getFileById(42L)).thenReturn(stored);
+
+        Future<FileResponseDTO> first = requestThreads.submit(() -> chunkUploadService.completeSession(uploadId));
+        assertTrue(merging.await(5, TimeUnit.SECONDS));
+
+        // 合并进行中的重复请求抢不到合并权
+        BusinessException busy = assertThrows(BusinessException.class,
+                () -> chunkUploadService.completeSession(uploadId));
+        assertEquals(ResultCode.UPLOAD_SESSION_BUSY.getCode(), busy.getCode());
+
+        finishMerge.countDown();
+        assertSame(stored, first.get(5, TimeUnit.SECONDS));
+
+        // 完成后的重复请求直接返回已生成的文件
+        assertSame(stored, chunkUploadService.completeSession(uploadId));
+        verify(fileService, times(1)).storeTempFile(anyString(), anyString(), anyLong(), any(), any(), any(), any());
+        verify(fileService).getFileById(42L);
+    }
+
+    @Test
+    void failedMergeCanBeRetried() throws Exception {
+        String uploadId = chunkUploadService.initSession(initDTO()).getUploadId();
+        for (int i = 0; i < 3; i++) {
+            uploadChunk(uploadId, i);
+        }
+        when(fileService.storeTempFile(anyString(), anyString(), anyLong(), any(), any(), any(), any()))
+                .thenThrow(new IllegalStateException("insert failed"))
+                .thenReturn(storedFile(42L));
+
+        assertThrows(IllegalStateException.class, () -> chunkUploadService.completeSession(uploadId));
+        assertEquals(UploadSession.STATUS_UPLOADING, sessions.get(uploadId).getStatus());
+
+        // 分片仍在磁盘上，重试无需重新上传
+        assertEquals(42L, chunkUploadService.completeSession(uploadId).getId());
+        assertEquals(UploadSession.STATUS_COMPLETED, sessions.get(uploadId).getStatus());
+    }
+
+    @Test
+    void chunksAreRejectedOnceMergeStarted() {
+        String uploadId = chunkUploadService.initSession(initDTO()).getUploadId();
+        sessions.get(uploadId).setStatus(UploadSession.STATUS_MERGING);
+
+        BusinessException busy = assertThrows(BusinessException.class, () -> chunkUploadService
+                .uploadChunk(uploadId, 0, new ByteArrayInputStream(new byte[CHUNK_SIZE])));
+        assertEquals(ResultCode.UPLOAD_SESSION_BUSY.getCode(), busy.getCode());
+        verify(fileService, never()).createTempFilePath();
+    }
+
+    private ChunkUploadInitDTO initDTO() {
+        ChunkUploadInitDTO initDTO = new ChunkUploadInitDTO();
+        initDTO.setFileName("video.mp4");
+        initDTO.setFileSize((long) FILE_SIZE);
+        initDTO.setDirectoryId(1L);
+        initDTO.setMimeType("video/mp4");
+        return initDTO;
+    }
+
+    private void uploadChunk(String uploadId, int chunkIndex) {
+        int from = chunkIndex * CHUNK_SIZE;
+        int to = Math.min(from + CHUNK_SIZE, content.length);
+        chunkUploadService.uploadChunk(uploadId, chunkIndex,
+                new ByteArrayInputStream(Arrays.copyOfRange(content, from, to)));
+    }
+
+    private Path chunkDirectory(String uploadId) {
+        return uploadRoot.resolve(FileConstant.CHUNK_UPLOAD_DIR).resolve(uploadId);
+    }
+
+    private static FileResponseDTO storedFile(Long id) {
+        FileResponseDTO fileResponse = new FileResponseDTO();
+        fileResponse.setId(id);
+        return fileResponse;
+    }
+
+    /**
+     * 每次查询返回新对象，与从数据库读取一致
+     */
+    private static UploadSession copyOf(UploadSession session) {
+        if (session == null) {
+            return null;
+        }
+        UploadSession copy = new UploadSession();
+        copy.setId(session.getId());
+        copy.setUploadId(session.getUploadId());
+        copy.setFileName(session.getFileName());
+        copy.setFileSize(session.getFileSize());
+        copy.setMimeType(session.getMimeType());
+        copy.setChunkSize(session.getChunkSize());
+        copy.setTotalChunks(session.getTotalChunks());
+        copy.setDirectoryId(session.getDirectoryId());
+        copy.setDescription(session.getDescription());
+        copy.setStatus(session.getStatus());
+        copy.setFileId(session.getFileId());
+        return copy;
+    }
+}
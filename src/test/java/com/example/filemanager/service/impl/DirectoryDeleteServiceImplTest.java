@@ -0,0 +1,303 @@
+package com.example.filemanager.service.impl;
+
+import com.example.filemanager.common.exception.BusinessException;
+import com.example.filemanager.common.result.ResultCode;
+import com.example.filemanager.config.DirectoryConfig;
+import com.example.filemanager.dto.DirectoryFileCount;
+import com.example.filemanager.dto.response.DirectoryDeleteJobDTO;
+import com.example.filemanager.entity.Directory;
+import com.example.filemanager.entity.FileBlob;
+import com.example.filemanager.entity.FileInfo;
+import com.example.filemanager.mapper.DirectoryMapper;
+import com.example.filemanager.mapper.FileBlobMapper;
+import com.example.filemanager.mapper.FileInfoMapper;
+import com.example.filemanager.service.BlobReclaimService;
+import com.example.filemanager.service.DirectoryTreeIndex;
+import com.example.filemanager.service.DownloadDescriptorService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 目录递归删除测试：文件按批在多个事务中删除、引用计数归零的内容登记回收，
+ * 同一目录的并发删除只执行一次，后台任务开始时从数据库重新读取子树，读取子树后新增的子目录也被删除
+ *
+ * @author system
+ * @since 2024-01-01
+ */
+class DirectoryDeleteServiceImplTest {
+
+    private final DirectoryMapper directoryMapper = mock(DirectoryMapper.class);
+
+    private final FileInfoMapper fileInfoMapper = mock(FileInfoMapper.class);
+
+    private final FileBlobMapper fileBlobMapper = mock(FileBlobMapper.class);
+
+    private final DirectoryTreeIndex directoryTreeIndex = mock(DirectoryTreeIndex.class);
+
+    private final BlobReclaimService blobReclaimService = mock(BlobReclaimService.class);
+
+    private final DownloadDescriptorService downloadDescriptorService = mock(DownloadDescriptorService.class);
+
+    private final DirectoryConfig directoryConfig = new DirectoryConfig();
+
+    private final List<Runnable> submittedTasks = new ArrayList<>();
+
+    private final AtomicInteger transactions = new AtomicInteger();
+
+    private DirectoryDeleteServiceImpl directoryDeleteService;
+
+    @BeforeEach
+    void setUp() {
+        directoryConfig.setDeleteBatchSize(2);
+        directoryConfig.setDeleteSyncLimit(100);
+
+        Directory directory = directory(10L, 1L, "/资料");
+        when(directoryMapper.selectById(10L)).thenReturn(directory);
+        when(directoryMapper.selectSubtree("/资料"))
+                .thenReturn(List.of(directory, directory(11L, 10L, "/资料/报告")));
+        when(fileInfoMapper.countByDirectoryIds(anyCollection())).thenReturn(List.of(fileCount(11L, 3L)));
+
+        directoryDeleteService = new DirectoryDeleteServiceImpl();
+        ReflectionTestUtils.setField(directoryDeleteService, "directoryMapper", directoryMapper);
+        ReflectionTestUtils.setField(directoryDeleteService, "fileInfoMapper", fileInfoMapper);
+        ReflectionTestUtils.setField(directoryDeleteService, "fileBlobMapper", fileBlobMapper);
+        ReflectionTestUtils.setField(directoryDeleteService, "directoryTreeIndex", directoryTreeIndex);
+        ReflectionTestUtils.setField(directoryDeleteService, "blobReclaimService", blobReclaimService);
+        ReflectionTestUtils.setField(directoryDeleteService, "downloadDescriptorService", downloadDescriptorService);
+        ReflectionTestUtils.setField(directoryDeleteService, "transactionTemplate",
+                new TransactionTemplate(new CountingTransactionManager()));
+        ReflectionTestUtils.setField(directoryDeleteService, "directoryConfig", directoryConfig);
+        ReflectionTestUtils.setField(directoryDeleteService, "directoryDeleteExecutor",
+                (Executor) submittedTasks::add);
+    }
+
+    @Test
+    void fullFileBatchesKeepDirectoriesUntilFilesAreGone() {
+        // 每批最多2个文件：前两批正好取满，第三批为空时才删除目录
+        FileInfo first = file(1L, 100L);
+        FileInfo second = file(2L, 100L);
+        FileInfo third = file(3L, 101L);
+        FileInfo legacy = file(4L, null);
+        when(fileInfoMapper.selectForDeleteByDirectoryIds(List.of(11L, 10L), 2))
+                .thenReturn(List.of(first, second), List.of(third, legacy), List.of());
+        FileBlob released = blob(100L, 0);
+        FileBlob stillShared = blob(101L, 3);
+        when(fileBlobMapper.selectBatchIds(anyCollection())).thenReturn(List.of(released), List.of(stillShared));
+
+        DirectoryDeleteJobDTO result = directoryDeleteService.deleteRecursively(10L);
+
+        assertEquals(DirectoryDeleteJobDTO.STATUS_COMPLETED, result.getStatus());
+        assertEquals(4L, result.getDeletedFiles());
+        assertEquals(2, result.getDeletedDirectories());
+        assertEquals(3, transactions.get());
+        InOrder inOrder = inOrder(fileInfoMapper, directoryMapper);
+        inOrder.verify(fileInfoMapper).deleteBatchIds(List.of(1L, 2L));
+        inOrder.verify(fileInfoMapper).deleteBatchIds(List.of(3L, 4L));
+        inOrder.verify(directoryMapper).deleteBatchIds(List.of(11L, 10L));
+        verify(fileBlobMapper).decrementRefCounts(Map.of(100L, 2));
+        verify(fileBlobMapper).decrementRefCounts(Map.of(101L, 1));
+        verify(blobReclaimService).enqueue(100L, "/blobs/100", "md5-100");
+        verify(blobReclaimService, never()).enqueue(101L, "/blobs/101", "md5-101");
+        verify(blobReclaimService).enqueue(null, "/files/4", "md5-file-4");
+        verify(downloadDescriptorService, times(4)).evict(any());
+        verify(directoryTreeIndex).remove(11L);
+        verify(directoryTreeIndex).remove(10L);
+    }
+
+    @Test
+    void shortFileBatchDeletesDirectoriesInSameTransaction() {
+        when(fileInfoMapper.selectForDeleteByDirectoryIds(List.of(11L, 10L), 2)).thenReturn(List.of(file(1L, null)));
+
+        directoryDeleteService.deleteRecursively(10L);
+
+        assertEquals(1, transactions.get());
+        verify(directoryMapper).deleteBatchIds(List.of(11L, 10L));
+        verify(fileBlobMapper, never()).decrementRefCounts(any());
+    }
+
+    @Test
+    void childCreatedAfterSubtreeWasReadIsDeletedFirst() {
+        // 读取子树之后，其他请求在“报告”下新建了“2024”，其中有一个文件
+        Directory report = directory(11L, 10L, "/资料/报告");
+        Directory created = directory(12L, 11L, "/资料/报告/2024");
+        when(directoryMapper.selectByParentIds(List.of(11L, 10L)))
+                .thenReturn(List.of(report, created), List.of(report));
+        when(directoryMapper.selectSubtree("/资料/报告/2024")).thenReturn(List.of(created));
+        when(fileInfoMapper.countByDirectoryIds(List.of(12L))).thenReturn(List.of(fileCount(12L, 1L)));
+        when(fileInfoMapper.selectForDeleteByDirectoryIds(List.of(12L), 2)).thenReturn(List.of(file(5L, null)));
+
+        DirectoryDeleteJobDTO result = directoryDeleteService.deleteRecursively(10L);
+
+        assertEquals(DirectoryDeleteJobDTO.STATUS_COMPLETED, result.getStatus());
+        assertEquals(3, result.getTotalDirectories());
+        assertEquals(3, result.getDeletedDirectories());
+        assertEquals(1L, result.getDeletedFiles());
+        InOrder inOrder = inOrder(directoryMapper);
+        inOrder.verify(directoryMapper).selectByIdsForUpdate(List.of(11L, 10L));
+        inOrder.verify(directoryMapper).selectByParentIds(List.of(11L, 10L));
+        inOrder.verify(directoryMapper).deleteBatchIds(List.of(12L));
+        inOrder.verify(directoryMapper).deleteBatchIds(List.of(11L, 10L));
+        verify(directoryMapper, times(2)).deleteBatchIds(anyCollection());
+        verify(blobReclaimService).enqueue(null, "/files/5", "md5-file-5");
+    }
+
+    @Test
+    void concurrentSyncDeletesOfSameDirectoryRunOnce() throws Exception {
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(fileInfoMapper.selectForDeleteByDirectoryIds(anyCollection(), anyInt())).thenAnswer(invocation -> {
+            firstStarted.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return List.of();
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<DirectoryDeleteJobDTO> first = executor.submit(() -> directoryDeleteService.deleteRecursively(10L));
+            assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+
+            DirectoryDeleteJobDTO second = directoryDeleteService.deleteRecursively(10L);
+            assertEquals(DirectoryDeleteJobDTO.STATUS_RUNNING, second.getStatus());
+            assertEquals(second.getJobId(), directoryDeleteService.getJob(second.getJobId()).getJobId());
+
+            release.countDown();
+            DirectoryDeleteJobDTO firstResult = first.get(5, TimeUnit.SECONDS);
+            assertEquals(second.getJobId(), firstResult.getJobId());
+            assertEquals(DirectoryDeleteJobDTO.STATUS_COMPLETED, firstResult.getStatus());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+        verify(fileInfoMapper, times(1)).selectForDeleteByDirectoryIds(anyCollection(), anyInt());
+
+        // 执行结束后释放登记，可以再次发起删除
+        DirectoryDeleteJobDTO again = directoryDeleteService.deleteRecursively(10L);
+        assertEquals(DirectoryDeleteJobDTO.STATUS_COMPLETED, again.getStatus());
+        verify(fileInfoMapper, times(2)).selectForDeleteByDirectoryIds(anyCollection(), anyInt());
+    }
+
+    @Test
+    void backgroundJobReloadsSubtreeWhenItStarts() {
+        directoryConfig.setDeleteSyncLimit(0);
+        when(fileInfoMapper.selectForDeleteByDirectoryIds(anyCollection(), anyInt())).thenReturn(List.of());
+
+        DirectoryDeleteJobDTO submitted = directoryDeleteService.deleteRecursively(10L);
+        assertEquals(DirectoryDeleteJobDTO.STATUS_RUNNING, submitted.getStatus());
+        assertEquals(2, submitted.getTotalDirectories());
+        assertEquals(1, submittedTasks.size());
+
+        // 排队期间目录被移动到 /归档/资料，并新建了一个子目录
+        Directory moved = directory(10L, 20L, "/归档/资料");
+        when(directoryMapper.selectById(10L)).thenReturn(moved);
+        when(directoryMapper.selectSubtree("/归档/资料")).thenReturn(List.of(moved,
+                directory(11L, 10L, "/归档/资料/报告"), directory(12L, 11L, "/归档/资料/报告/2024")));
+        submittedTasks.get(0).run();
+
+        DirectoryDeleteJobDTO finished = directoryDeleteService.getJob(submitted.getJobId());
+        assertEquals(DirectoryDeleteJobDTO.STATUS_COMPLETED, finished.getStatus());
+        assertEquals(3, finished.getTotalDirectories());
+        assertEquals(3, finished.getDeletedDirectories());
+        verify(directoryMapper).deleteBatchIds(List.of(12L, 11L));
+        verify(directoryMapper).deleteBatchIds(List.of(10L));
+    }
+
+    @Test
+    void rootAndMissingDirectoriesAreRejected() {
+        when(directoryMapper.selectById(1L)).thenReturn(directory(1L, 0L, "/"));
+
+        BusinessException root = assertThrows(BusinessException.class,
+                () -> directoryDeleteService.deleteRecursively(1L));
+        BusinessException missing = assertThrows(BusinessException.class,
+                () -> directoryDeleteService.deleteRecursively(99L));
+
+        assertEquals(ResultCode.DIRECTORY_ROOT_NOT_DELETABLE.getCode(), root.getCode());
+        assertEquals(ResultCode.DIRECTORY_NOT_FOUND.getCode(), missing.getCode());
+        verify(directoryMapper, never()).selectSubtree(anyString());
+    }
+
+    private static Directory directory(Long id, Long parentId, String path) {
+        Directory directory = new Directory();
+        directory.setId(id);
+        directory.setParentId(parentId);
+        directory.setPath(path);
+        directory.setName(path.substring(path.lastIndexOf('/') + 1));
+        return directory;
+    }
+
+    private static FileInfo file(Long id, Long blobId) {
+        FileInfo fileInfo = new FileInfo();
+        fileInfo.setId(id);
+        fileInfo.setBlobId(blobId);
+        fileInfo.setFilePath("/files/" + id);
+        fileInfo.setMd5Hash("md5-file-" + id);
+        return fileInfo;
+    }
+
+    private static FileBlob blob(Long id, int refCount) {
+        FileBlob fileBlob = new FileBlob("md5-" + id, 10L, "/blobs/" + id, refCount);
+        fileBlob.setId(id);
+        return fileBlob;
+    }
+
+    private static DirectoryFileCount fileCount(Long directoryId, Long count) {
+        DirectoryFileCount fileCount = new DirectoryFileCount();
+        fileCount.setDirectoryId(directoryId);
+        fileCount.setFileCount(count);
+        return fileCount;
+    }
+
+    /**
+     * 统计提交次数的事务管理器
+     */
+    private class CountingTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            transactions.incrementAndGet();
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
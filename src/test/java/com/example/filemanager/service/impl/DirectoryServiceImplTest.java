@@ -0,0 +1,643 @@
+package com.example.filemanager.service.impl;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.example.filemanager.common.exception.BusinessException;
+import com.example.filemanager.common.result.ResultCode;
+import com.example.filemanager.dto.DirectoryFileCount;
+import com.example.filemanager.dto.request.DirectoryCreateDTO;
+import com.example.filemanager.dto.request.DirectoryMoveDTO;
+import com.example.filemanager.dto.request.DirectoryUpdateDTO;
+import com.example.filemanager.dto.response.DeleteResultDTO;
+import com.example.filemanager.dto.response.DirectoryResponseDTO;
+import com.example.filemanager.entity.Directory;
+import com.example.filemanager.mapper.DirectoryMapper;
+import com.example.filemanager.mapper.FileInfoMapper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 目录服务测试：重命名、移动、创建和删除以事务中锁定的数据库记录为准，只更新发生变化的列，并发移动不会形成循环引用；
+ * 列表和树形查询按需统计文件数量
+ * <p>
+ * directories 表由内存中的 {@link DirectoryTable} 模拟：行锁在事务结束时释放，
+ * 路径前缀按二进制比较匹配；内存索引使用真实实现，可以构造索引副本落后于数据库的场景。
+ *
+ * @author system
+ * @since 2024-01-01
+ */
+class DirectoryServiceImplTest {
+
+    private final DirectoryTable table = new DirectoryTable();
+
+    private final FileInfoMapper fileInfoMapper = mock(FileInfoMapper.class);
+
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(new NoopTransactionManager());
+
+    private DirectoryTreeIndexImpl index;
+
+    private DirectoryServiceImpl directoryService;
+
+    @BeforeAll
+    static void initTableInfo() {
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), Directory.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        table.insert(directory(1L, "根目录", 0L, "/"));
+        table.insert(directory(2L, "文档", 1L, "/文档"));
+        table.insert(directory(3L, "图片", 1L, "/图片"));
+        table.insert(directory(4L, "报告", 2L, "/文档/报告"));
+        table.insert(directory(5L, "2024", 4L, "/文档/报告/2024"));
+        table.insert(directory(6L, "文档备份", 1L, "/文档备份"));
+        table.insert(directory(7L, "a_b", 1L, "/a_b"));
+        table.insert(directory(8L, "x", 7L, "/a_b/x"));
+        table.insert(directory(9L, "aXb", 1L, "/aXb"));
+        table.insert(directory(10L, "y", 9L, "/aXb/y"));
+        table.insert(directory(11L, "旅行", 3L, "/图片/旅行"));
+
+        DirectoryMapper directoryMapper = table.mapper();
+        index = new DirectoryTreeIndexImpl();
+        ReflectionTestUtils.setField(index, "directoryMapper", directoryMapper);
+
+        directoryService = new DirectoryServiceImpl();
+        ReflectionTestUtils.setField(directoryService, "directoryMapper", directoryMapper);
+        ReflectionTestUtils.setField(directoryService, "directoryTreeIndex", index);
+        ReflectionTestUtils.setField(directoryService, "fileInfoMapper", fileInfoMapper);
+        index.size();
+    }
+
+    @Test
+    void renameDerivesPathFromLockedRowAndKeepsDescription() {
+        // 其他节点已把目录移到“图片”下并修改了描述，本节点索引中的副本仍是旧的
+        table.row(4L).setParentId(3L);
+        table.row(4L).setPath("/图片/报告");
+        table.row(4L).setDescription("年度汇总");
+
+        DirectoryResponseDTO result = inTransaction(() ->
+                directoryService.updateDirectory(4L, new DirectoryUpdateDTO("总结", null)));
+
+        assertEquals("/图片/总结", result.getPath());
+        assertEquals(List.of("name", "path", "updated_at"), table.lastUpdatedColumns);
+        Directory row = table.row(4L);
+        assertEquals("总结", row.getName());
+        assertEquals(3L, row.getParentId());
+        assertEquals("/图片/总结", row.getPath());
+        assertEquals("年度汇总", row.getDescription());
+        assertEquals(3L, index.getById(4L).getParentId());
+        assertEquals("/图片/总结", index.getById(4L).getPath());
+    }
+
+    @Test
+    void updateWithDescriptionOnlyKeepsPath() {
+        inTransaction(() -> directoryService.updateDirectory(4L, new DirectoryUpdateDTO("报告", "季度")));
+
+        assertEquals(List.of("name", "path", "description", "updated_at"), table.lastUpdatedColumns);
+        assertEquals("/文档/报告", table.row(4L).getPath());
+        assertEquals("季度", table.row(4L).getDescription());
+        assertEquals("/文档/报告/2024", table.row(5L).getPath());
+    }
+
+    @Test
+    void moveUsesParentPathFromDatabase() {
+        // 其他节点已把目标父目录重命名
+        table.row(3L).setName("相册");
+        table.row(3L).setPath("/相册");
+
+        DirectoryResponseDTO result = inTransaction(() ->
+                directoryService.moveDirectory(4L, new DirectoryMoveDTO(3L)));
+
+        assertEquals("/相册/报告", result.getPath());
+        assertEquals(List.of("parent_id", "path", "updated_at"), table.lastUpdatedColumns);
+        assertEquals(3L, table.row(4L).getParentId());
+        assertEquals("/相册/报告", table.row(4L).getPath());
+        assertEquals("报告", table.row(4L).getName());
+        assertEquals("/相册/报告", index.getById(4L).getPath());
+    }
+
+    @Test
+    void createUsesParentPathFromDatabase() {
+        table.row(3L).setName("相册");
+        table.row(3L).setPath("/相册");
+        DirectoryCreateDTO createDTO = new DirectoryCreateDTO("风景", 3L, null);
+
+        DirectoryResponseDTO result = inTransaction(() -> directoryService.createDirectory(createDTO));
+
+        assertEquals("/相册/风景", result.getPath());
+        assertEquals("/相册/风景", table.row(result.getId()).getPath());
+        assertEquals(result.getId(), index.getChildByName(3L, "风景").getId());
+    }
+
+    @Test
+    void directoryDeletedOnAnotherNodeCannotBeRenamedOrMoved() {
+        table.row(4L).setDeleted(1);
+
+        BusinessException renamed = assertThrows(BusinessException.class, () -> inTransaction(() ->
+                directoryService.updateDirectory(4L, new DirectoryUpdateDTO("总结", null))));
+        BusinessException moved = assertThrows(BusinessException.class, () -> inTransaction(() ->
+                directoryService.moveDirectory(4L, new DirectoryMoveDTO(3L))));
+
+        assertEquals(ResultCode.DIRECTORY_NOT_FOUND.getCode(), renamed.getCode());
+        assertEquals(ResultCode.DIRECTORY_NOT_FOUND.getCode(), moved.getCode());
+        assertEquals("报告", table.row(4L).getName());
+    }
+
+    @Test
+    void deleteChecksChildrenInDatabase() {
+        // 其他节点刚在“图片/旅行”下新建了子目录，本节点索引中还没有
+        table.insert(directory(12L, "日本", 11L, "/图片/旅行/日本"));
+        assertEquals(List.of(), index.getChildren(11L));
+
+        DeleteResultDTO blocked = inTransaction(() -> directoryService.deleteDirectory(11L));
+
+        assertEquals(ResultCode.DIRECTORY_HAS_CHILDREN.getCode(), blocked.getErrorCode());
+        assertEquals(0, table.row(11L).getDeleted());
+    }
+
+    @Test
+    void deleteUsesDatabaseRowWhenIndexIsStale() {
+        // 其他节点新建的空目录可以删除；其他节点已删除的目录返回不存在
+        table.insert(directory(12L, "日本", 11L, "/图片/旅行/日本"));
+        table.row(6L).setDeleted(1);
+
+        DeleteResultDTO deleted = inTransaction(() -> directoryService.deleteDirectory(12L));
+        DeleteResultDTO missing = inTransaction(() -> directoryService.deleteDirectory(6L));
+
+        assertTrue(deleted.isSuccess());
+        assertEquals(1, table.row(12L).getDeleted());
+        assertEquals(ResultCode.DIRECTORY_NOT_FOUND.getCode(), missing.getErrorCode());
+    }
+
+    @Test
+    void renameRewritesDescendantPaths() {
+        inTransaction(() -> directoryService.updateDirectory(2L, new DirectoryUpdateDTO("资料", null)));
+
+        assertEquals("/资料", table.row(2L).getPath());
+        assertEquals("/资料/报告", table.row(4L).getPath());
+        assertEquals("/资料/报告/2024", table.row(5L).getPath());
+        // 以旧路径开头但不在子树中的目录不受影响
+        assertEquals("/文档备份", table.row(6L).getPath());
+        assertEquals("/资料/报告/2024", index.getById(5L).getPath());
+        assertEquals(table.row(5L).getUpdatedAt(), table.row(2L).getUpdatedAt());
+        assertEquals("/文档备份", index.getById(6L).getPath());
+    }
+
+    @Test
+    void moveRewritesDescendantPaths() {
+        inTransaction(() -> directoryService.moveDirectory(4L, new DirectoryMoveDTO(3L)));
+
+        assertEquals("/图片/报告", table.row(4L).getPath());
+        assertEquals("/图片/报告/2024", table.row(5L).getPath());
+        assertEquals(List.of(4L, 5L), ids(table.mapper().selectSubtree("/图片/报告")));
+        assertEquals(List.of(2L), ids(table.mapper().selectSubtree("/文档")));
+        assertEquals("/图片/报告/2024", index.getById(5L).getPath());
+        assertEquals(List.of(4L, 11L), ids(index.getChildren(3L)));
+    }
+
+    @Test
+    void pathWildcardsAreMatchedLiterally() {
+        // 目录名中的 _ 不能匹配任意字符，否则会改写 /aXb 下的目录
+        inTransaction(() -> directoryService.updateDirectory(7L, new DirectoryUpdateDTO("a_c", null)));
+
+        assertEquals("/a_c/x", table.row(8L).getPath());
+        assertEquals("/aXb/y", table.row(10L).getPath());
+        assertEquals("/aXb/y", index.getById(10L).getPath());
+        assertEquals(List.of(9L, 10L), ids(table.mapper().selectSubtree("/aXb")));
+    }
+
+    @Test
+    void moveIntoOwnSubtreeIsRejected() {
+        assertMoveIntoSubtree(4L, 5L);
+        assertMoveIntoSubtree(4L, 4L);
+        assertMoveIntoSubtree(2L, 5L);
+
+        assertEquals("/文档/报告", table.row(4L).getPath());
+        assertEquals(2L, table.row(4L).getParentId());
+        // 路径以本目录路径开头的兄弟目录不是子孙
+        inTransaction(() -> directoryService.moveDirectory(2L, new DirectoryMoveDTO(6L)));
+        assertEquals("/文档备份/文档/报告/2024", table.row(5L).getPath());
+    }
+
+    @Test
+    void rootDirectoryCannotBeMoved() {
+        BusinessException exception = assertThrows(BusinessException.class, () -> inTransaction(() ->
+                directoryService.moveDirectory(1L, new DirectoryMoveDTO(3L))));
+
+        assertEquals(ResultCode.DIRECTORY_ROOT_NOT_MOVABLE.getCode(), exception.getCode());
+        assertEquals("/", table.row(1L).getPath());
+    }
+
+    @Test
+    void subtreeCheckUsesDatabaseRows() {
+        // 其他节点已把“图片”移到 /文档/报告/2024 下，本节点索引中“图片”仍在根目录下
+        table.row(3L).setParentId(5L);
+        table.row(3L).setPath("/文档/报告/2024/图片");
+        table.row(11L).setPath("/文档/报告/2024/图片/旅行");
+
+        assertMoveIntoSubtree(4L, 3L);
+        assertMoveIntoSubtree(2L, 11L);
+        assertEquals(2L, table.row(4L).getParentId());
+    }
+
+    @Test
+    void concurrentCrossMovesCannotFormCycle() throws Exception {
+        // “图片”移入“文档”的子孙、“文档”同时移入“图片”的子孙：两者都只看自己开始时的树会都通过检查。
+        // 更新前互相等待一会儿，没有串行化时两个事务都会走到更新
+        CyclicBarrier bothChecked = new CyclicBarrier(2);
+        table.beforeUpdate = () -> {
+            try {
+                bothChecked.await(500, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                // 另一个事务在等锁，按串行顺序继续
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> first = executor.submit(() -> moveResult(3L, 4L));
+            Future<Integer> second = executor.submit(() -> moveResult(2L, 11L));
+            List<Integer> results = List.of(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+
+            assertEquals(1, Collections.frequency(results, ResultCode.SUCCESS.getCode()), results.toString());
+            assertEquals(1, Collections.frequency(results, ResultCode.DIRECTORY_MOVE_INTO_SUBTREE.getCode()),
+                    results.toString());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // 每个目录沿父目录向上都能回到根目录，路径与父子关系一致
+        for (Directory row : table.liveRows()) {
+            Directory current = row;
+            for (int depth = 0; !current.getId().equals(1L); depth++) {
+                assertTrue(depth < 10, "存在循环引用：" + row.getId());
+                Directory parent = table.row(current.getParentId());
+                assertEquals(parent.getPath().equals("/") ? "/" + current.getName()
+                        : parent.getPath() + "/" + current.getName(), current.getPath());
+                current = parent;
+            }
+        }
+    }
+
+    @Test
+    void treeAndFullListOnlyCountChildren() {
+        List<DirectoryResponseDTO> tree = directoryService.getDirectoryTree();
+        List<DirectoryResponseDTO> all = directoryService.getAllDirectories();
+
+        verify(fileInfoMapper, never()).countByDirectoryIds(anyCollection());
+        assertEquals(5, tree.get(0).getChildCount());
+        assertNull(tree.get(0).getFileCount());
+        DirectoryResponseDTO documents = all.stream().filter(dto -> dto.getId().equals(2L)).findFirst().orElseThrow();
+        assertEquals(1, documents.getChildCount());
+        assertNull(documents.getFileCount());
+    }
+
+    @Test
+    void childrenAndSubtreeIncludeFileCounts() {
+        when(fileInfoMapper.countByDirectoryIds(anyCollection())).thenReturn(List.of(fileCount(4L, 3L)));
+
+        List<DirectoryResponseDTO> children = directoryService.getDirectoriesByParentId(2L);
+        DirectoryResponseDTO subtree = directoryService.getDirectorySubtree(2L, 2);
+
+        assertEquals(3L, children.get(0).getFileCount());
+        assertEquals(0L, subtree.getFileCount());
+        assertEquals(3L, subtree.getChildren().get(0).getFileCount());
+        assertEquals(0L, subtree.getChildren().get(0).getChildren().get(0).getFileCount());
+    }
+
+    @Test
+    void fileCountsAreQueriedInBatches() {
+        for (long id = 1000; id < 2500; id++) {
+            table.insert(directory(id, "子目录" + id, 3L, "/图片/子目录" + id));
+        }
+        index.reload();
+        List<Integer> batchSizes = new ArrayList<>();
+        when(fileInfoMapper.countByDirectoryIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            batchSizes.add(ids.size());
+            return ids.contains(2499L) ? List.of(fileCount(2499L, 7L)) : List.of();
+        });
+
+        DirectoryResponseDTO subtree = directoryService.getDirectorySubtree(3L, 1);
+
+        assertEquals(List.of(1000, 502), batchSizes);
+        assertEquals(1501, subtree.getChildCount());
+        assertEquals(7L, subtree.getChildren().stream()
+                .filter(dto -> dto.getId().equals(2499L)).findFirst().orElseThrow().getFileCount());
+    }
+
+    private static DirectoryFileCount fileCount(Long directoryId, Long count) {
+        DirectoryFileCount fileCount = new DirectoryFileCount();
+        fileCount.setDirectoryId(directoryId);
+        fileCount.setFileCount(count);
+        return fileCount;
+    }
+
+    private void assertMoveIntoSubtree(Long id, Long newParentId) {
+        BusinessException exception = assertThrows(BusinessException.class, () -> inTransaction(() ->
+                directoryService.moveDirectory(id, new DirectoryMoveDTO(newParentId))));
+        assertEquals(ResultCode.DIRECTORY_MOVE_INTO_SUBTREE.getCode(), exception.getCode());
+    }
+
+    private Integer moveResult(Long id, Long newParentId) {
+        try {
+            inTransaction(() -> directoryService.moveDirectory(id, new DirectoryMoveDTO(newParentId)));
+            return ResultCode.SUCCESS.getCode();
+        } catch (BusinessException e) {
+            return e.getCode();
+        }
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        return transactionTemplate.execute(status -> action.get());
+    }
+
+    private static Directory directory(Long id, String name, Long parentId, String path) {
+        Directory directory = new Directory();
+        directory.setId(id);
+        directory.setName(name);
+        directory.setParentId(parentId);
+        directory.setPath(path);
+        directory.setDeleted(0);
+        return directory;
+    }
+
+    private static List<Long> ids(List<Directory> directories) {
+        List<Long> result = new ArrayList<>();
+        for (Directory directory : directories) {
+            result.add(directory.getId());
+        }
+        return result;
+    }
+
+    private static Directory copy(Directory row) {
+        Directory directory = directory(row.getId(), row.getName(), row.getParentId(), row.getPath());
+        directory.setDescription(row.getDescription());
+        directory.setCreatedAt(row.getCreatedAt());
+        directory.setUpdatedAt(row.getUpdatedAt());
+        directory.setDeleted(row.getDeleted());
+        return directory;
+    }
+
+    /**
+     * 内存中的 directories 表
+     * <p>
+     * 加锁查询持有行锁直到事务结束；同一父目录下未删除目录的名称忽略大小写唯一，对应 uk_parent_name_live；
+     * 路径前缀按 LIKE ... COLLATE utf8mb4_bin 的语义逐字符比较。
+     */
+    private static class DirectoryTable {
+
+        private static final Pattern ASSIGNMENT = Pattern.compile("(\\w+)=#\\{ew\\.paramNameValuePairs\\.(\\w+)}");
+
+        private static final Pattern ID_CONDITION = Pattern.compile("id = #\\{ew\\.paramNameValuePairs\\.(\\w+)}");
+
+        private final Map<Long, Directory> rows = new ConcurrentHashMap<>();
+
+        private final Map<Long, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+        private final AtomicLong nextId = new AtomicLong(100);
+
+        private volatile List<String> lastUpdatedColumns;
+
+        private volatile Runnable beforeUpdate = () -> {
+        };
+
+        Directory row(Long id) {
+            return rows.get(id);
+        }
+
+        DirectoryMapper mapper() {
+            DirectoryMapper mapper = mock(DirectoryMapper.class);
+            when(mapper.selectAllDirectories()).thenAnswer(invocation -> liveRows());
+            when(mapper.selectByIdForUpdate(anyLong())).thenAnswer(invocation -> lockAndRead(invocation.getArgument(0)));
+            when(mapper.selectByIdForShare(anyLong())).thenAnswer(invocation -> lockAndRead(invocation.getArgument(0)));
+            when(mapper.insert(any(Directory.class))).thenAnswer(invocation -> insert(invocation.getArgument(0)));
+            when(mapper.countByParentId(anyLong())).thenAnswer(invocation -> countChildren(invocation.getArgument(0)));
+            when(mapper.deleteById(anyLong())).thenAnswer(invocation -> softDelete(invocation.getArgument(0)));
+            when(mapper.update(isNull(), any())).thenAnswer(invocation -> update(invocation.getArgument(1)));
+            when(mapper.selectSubtree(anyString())).thenCallRealMethod();
+            when(mapper.selectByPathPrefix(anyString(), anyString())).thenAnswer(invocation ->
+                    selectByPathPrefix(invocation.getArgument(0), invocation.getArgument(1)));
+            when(mapper.rewriteSubtreePaths(anyString(), anyString(), any())).thenCallRealMethod();
+            when(mapper.updatePathPrefix(anyString(), anyString(), anyString(), any())).thenAnswer(invocation ->
+                    updatePathPrefix(invocation.getArgument(0), invocation.getArgument(1),
+                            invocation.getArgument(2), invocation.getArgument(3)));
+            return mapper;
+        }
+
+        synchronized int insert(Directory directory) {
+            checkUnique(directory.getParentId(), directory.getName(), null);
+            if (directory.getId() == null) {
+                directory.setId(nextId.incrementAndGet());
+            }
+            rows.put(directory.getId(), copy(directory));
+            return 1;
+        }
+
+        synchronized long countChildren(Long parentId) {
+            return rows.values().stream()
+                    .filter(row -> row.getDeleted() == 0 && row.getParentId().equals(parentId))
+                    .count();
+        }
+
+        synchronized int softDelete(Long id) {
+            Directory row = rows.get(id);
+            if (row == null || row.getDeleted() != 0) {
+                return 0;
+            }
+            row.setDeleted(1);
+            return 1;
+        }
+
+        List<Directory> liveRows() {
+            List<Directory> result = new ArrayList<>();
+            for (Directory row : rows.values()) {
+                if (row.getDeleted() == 0) {
+                    result.add(copy(row));
+                }
+            }
+            return result;
+        }
+
+        private Directory lockAndRead(Long id) throws InterruptedException {
+            ReentrantLock lock = locks.computeIfAbsent(id, key -> new ReentrantLock());
+            if (!lock.isHeldByCurrentThread()) {
+                if (!lock.tryLock(5, TimeUnit.SECONDS)) {
+                    throw new CannotAcquireLockException("Lock wait timeout exceeded, id=" + id);
+                }
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        lock.unlock();
+                    }
+                });
+            }
+            Directory row = rows.get(id);
+            return row == null || row.getDeleted() != 0 ? null : copy(row);
+        }
+
+        private int update(Wrapper<Directory> wrapper) {
+            beforeUpdate.run();
+            return applyUpdate(wrapper);
+        }
+
+        private synchronized int applyUpdate(Wrapper<Directory> wrapper) {
+            // 条件参数在生成 SQL 片段时才写入参数表，先生成片段再读取参数
+            String sqlSet = wrapper.getSqlSet();
+            String sqlSegment = wrapper.getSqlSegment();
+            Map<String, Object> params = new HashMap<>(((AbstractWrapper<?, ?, ?>) wrapper).getParamNameValuePairs());
+            Matcher idMatcher = ID_CONDITION.matcher(sqlSegment);
+            if (!idMatcher.find()) {
+                throw new IllegalArgumentException("只支持按ID更新：" + sqlSegment);
+            }
+            Directory row = rows.get((Long) params.get(idMatcher.group(1)));
+            if (row == null || row.getDeleted() != 0) {
+                return 0;
+            }
+
+            Directory updated = copy(row);
+            List<String> columns = new ArrayList<>();
+            Matcher assignment = ASSIGNMENT.matcher(sqlSet);
+            while (assignment.find()) {
+                Object value = params.get(assignment.group(2));
+                columns.add(assignment.group(1));
+                switch (assignment.group(1)) {
+                    case "name" -> updated.setName((String) value);
+                    case "parent_id" -> updated.setParentId((Long) value);
+                    case "path" -> updated.setPath((String) value);
+                    case "description" -> updated.setDescription((String) value);
+                    case "updated_at" -> updated.setUpdatedAt((LocalDateTime) value);
+                    default -> throw new IllegalArgumentException("未知列：" + assignment.group(1));
+                }
+            }
+            checkUnique(updated.getParentId(), updated.getName(), updated.getId());
+            rows.put(updated.getId(), updated);
+            lastUpdatedColumns = columns;
+            return 1;
+        }
+
+        private synchronized List<Directory> selectByPathPrefix(String path, String pathPattern) {
+            String prefix = likePrefix(pathPattern);
+            List<Directory> result = new ArrayList<>();
+            for (Directory row : liveRows()) {
+                if (row.getPath().equals(path) || row.getPath().startsWith(prefix)) {
+                    result.add(row);
+                }
+            }
+            result.sort((a, b) -> a.getPath().compareTo(b.getPath()));
+            return result;
+        }
+
+        private synchronized int updatePathPrefix(String oldPath, String newPath, String pathPattern,
+                                                  LocalDateTime updatedAt) {
+            String prefix = likePrefix(pathPattern);
+            int updated = 0;
+            for (Directory row : rows.values()) {
+                if (row.getDeleted() == 0 && row.getPath().startsWith(prefix)) {
+                    row.setPath(newPath + row.getPath().substring(oldPath.length()));
+                    row.setUpdatedAt(updatedAt);
+                    updated++;
+                }
+            }
+            return updated;
+        }
+
+        /**
+         * 把“转义后的前缀 + %”形式的 LIKE 模式还原为前缀，模式中间出现未转义的通配符时拒绝
+         */
+        private static String likePrefix(String pathPattern) {
+            if (!pathPattern.endsWith("%")) {
+                throw new IllegalArgumentException("只支持前缀匹配：" + pathPattern);
+            }
+            StringBuilder prefix = new StringBuilder();
+            for (int i = 0; i < pathPattern.length() - 1; i++) {
+                char c = pathPattern.charAt(i);
+                if (c == '\\') {
+                    c = pathPattern.charAt(++i);
+                } else if (c == '%' || c == '_') {
+                    throw new IllegalArgumentException("路径中的通配符未转义：" + pathPattern);
+                }
+                prefix.append(c);
+            }
+            return prefix.toString();
+        }
+
+        private void checkUnique(Long parentId, String name, Long excludeId) {
+            for (Directory row : rows.values()) {
+                if (row.getDeleted() == 0 && row.getParentId().equals(parentId)
+                        && row.getName().equalsIgnoreCase(name) && !row.getId().equals(excludeId)) {
+                    throw new DuplicateKeyException("Duplicate entry for key 'uk_parent_name_live'");
+                }
+            }
+        }
+    }
+
+    /**
+     * 只驱动事务同步回调的事务管理器，@Transactional 在单元测试中没有代理，由测试显式开启事务
+     */
+    private static class NoopTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
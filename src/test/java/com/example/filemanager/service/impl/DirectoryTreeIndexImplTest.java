@@ -0,0 +1,234 @@
+package com.example.filemanager.service.impl;
+
+import com.example.filemanager.entity.Directory;
+import com.example.filemanager.mapper.DirectoryMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 目录树内存索引测试：查询、名称按列排序规则比较、写穿在事务提交后生效、路径前缀重写以及定时刷新不覆盖新写入
+ *
+ * @author system
+ * @since 2024-01-01
+ */
+class DirectoryTreeIndexImplTest {
+
+    private final DirectoryMapper directoryMapper = mock(DirectoryMapper.class);
+
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(new NoopTransactionManager());
+
+    private final List<Directory> rows = new ArrayList<>();
+
+    private DirectoryTreeIndexImpl index;
+
+    @BeforeEach
+    void setUp() {
+        rows.add(directory(1L, "根目录", 0L, "/"));
+        rows.add(directory(2L, "文档", 1L, "/文档"));
+        rows.add(directory(3L, "图片", 1L, "/图片"));
+        rows.add(directory(4L, "报告", 2L, "/文档/报告"));
+        rows.add(directory(5L, "2024", 4L, "/文档/报告/2024"));
+        rows.add(directory(6L, "文档备份", 1L, "/文档备份"));
+        rows.add(directory(7L, "合同", 2L, "/文档/合同"));
+        rows.add(directory(11L, "Résumé", 6L, "/文档备份/Résumé"));
+        rows.add(directory(12L, "archive", 6L, "/文档备份/archive"));
+        rows.add(directory(13L, "Beta", 6L, "/文档备份/Beta"));
+        when(directoryMapper.selectAllDirectories()).thenAnswer(invocation -> copies(rows));
+
+        index = new DirectoryTreeIndexImpl();
+        ReflectionTestUtils.setField(index, "directoryMapper", directoryMapper);
+    }
+
+    @Test
+    void loadsLazilyOnFirstRead() {
+        index.scheduledReload();
+        verify(directoryMapper, never()).selectAllDirectories();
+
+        assertEquals(10, index.size());
+        index.getById(2L);
+        verify(directoryMapper, times(1)).selectAllDirectories();
+    }
+
+    @Test
+    void answersTreeQueriesFromMemory() {
+        assertEquals(1L, index.getRoot().getId());
+        assertEquals(List.of(7L, 4L), ids(index.getChildren(2L)));
+        assertEquals(List.of(), index.getChildren(5L));
+        assertEquals(2, index.countChildren(2L));
+        assertEquals(0, index.countChildren(99L));
+        assertEquals(4L, index.getChildByName(2L, "报告").getId());
+        assertNull(index.getChildByName(2L, "不存在"));
+        assertNull(index.getById(99L));
+
+        assertEquals(List.of(1L, 3L, 2L, 6L, 7L, 4L, 5L, 12L, 13L, 11L), ids(index.getAll()));
+    }
+
+    @Test
+    void namesCompareLikeColumnCollation() {
+        // 与 utf8mb4_unicode_ci 一致：忽略大小写、重音和尾部空格，排序不区分大小写
+        assertEquals(List.of(12L, 13L, 11L), ids(index.getChildren(6L)));
+        assertEquals(11L, index.getChildByName(6L, "resume").getId());
+        assertEquals(11L, index.getChildByName(6L, "RÉSUMÉ ").getId());
+        assertEquals(12L, index.getChildByName(6L, "ARCHIVE").getId());
+        assertNull(index.getChildByName(6L, "archives"));
+        assertNull(index.getChildByName(6L, " archive"));
+        assertNull(index.getChildByName(6L, "arch-ive"));
+    }
+
+    @Test
+    void returnedDirectoriesAreCopies() {
+        index.getById(2L).setName("被修改");
+        index.getChildren(1L).get(0).setPath("/被修改");
+
+        assertEquals("文档", index.getById(2L).getName());
+        assertEquals("/图片", index.getById(3L).getPath());
+    }
+
+    @Test
+    void writesApplyOnlyAfterCommit() {
+        index.size();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            index.put(directory(8L, "新目录", 3L, "/图片/新目录"));
+            assertNull(index.getById(8L), "提交前不应出现在索引中");
+        });
+        assertEquals("/图片/新目录", index.getById(8L).getPath());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            index.remove(3L);
+            status.setRollbackOnly();
+        });
+        assertEquals("图片", index.getById(3L).getName());
+    }
+
+    @Test
+    void putMovesDirectoryBetweenParents() {
+        index.size();
+
+        index.put(directory(4L, "报告", 3L, "/图片/报告"));
+
+        assertEquals(List.of(7L), ids(index.getChildren(2L)));
+        assertEquals(List.of(4L), ids(index.getChildren(3L)));
+        // 子目录映射保留，移动后的子树仍可遍历
+        assertEquals(List.of(5L), ids(index.getChildren(4L)));
+    }
+
+    @Test
+    void rewriteSubtreePathsOnlyTouchesDescendants() {
+        index.size();
+        LocalDateTime now = LocalDateTime.now();
+
+        index.put(directory(2L, "资料", 1L, "/资料"));
+        index.rewriteSubtreePaths(2L, "/文档", "/资料", now);
+
+        assertEquals("/资料/报告", index.getById(4L).getPath());
+        assertEquals("/资料/报告/2024", index.getById(5L).getPath());
+        assertEquals(now, index.getById(5L).getUpdatedAt());
+        assertEquals("/文档备份", index.getById(6L).getPath());
+        assertEquals(4L, index.getChildByName(2L, "报告").getId());
+    }
+
+    @Test
+    void removeUnlinksDirectory() {
+        index.size();
+
+        index.remove(7L);
+
+        assertNull(index.getById(7L));
+        assertEquals(List.of(4L), ids(index.getChildren(2L)));
+        assertEquals(9, index.size());
+    }
+
+    @Test
+    void reloadPicksUpChangesFromOtherNodes() {
+        index.size();
+        rows.removeIf(row -> row.getId().equals(7L));
+        rows.add(directory(9L, "音乐", 1L, "/音乐"));
+
+        index.scheduledReload();
+
+        assertNull(index.getById(7L));
+        assertEquals("/音乐", index.getById(9L).getPath());
+    }
+
+    @Test
+    void reloadIsSkippedWhenIndexChangesMeanwhile() {
+        index.size();
+        // 全量查询期间发生写穿，查询结果已过期，不能覆盖新写入
+        when(directoryMapper.selectAllDirectories()).thenAnswer(invocation -> {
+            List<Directory> snapshot = copies(rows);
+            index.put(directory(8L, "新目录", 1L, "/新目录"));
+            return snapshot;
+        });
+
+        index.reload();
+
+        assertEquals("/新目录", index.getById(8L).getPath());
+    }
+
+    private static Directory directory(Long id, String name, Long parentId, String path) {
+        Directory directory = new Directory();
+        directory.setId(id);
+        directory.setName(name);
+        directory.setParentId(parentId);
+        directory.setPath(path);
+        directory.setDeleted(0);
+        return directory;
+    }
+
+    private static List<Directory> copies(List<Directory> directories) {
+        List<Directory> result = new ArrayList<>();
+        for (Directory row : directories) {
+            result.add(directory(row.getId(), row.getName(), row.getParentId(), row.getPath()));
+        }
+        return result;
+    }
+
+    private static List<Long> ids(List<Directory> directories) {
+        List<Long> result = new ArrayList<>();
+        for (Directory directory : directories) {
+            result.add(directory.getId());
+        }
+        return result;
+    }
+
+    /**
+     * 只驱动事务同步回调的事务管理器
+     */
+    private static class NoopTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
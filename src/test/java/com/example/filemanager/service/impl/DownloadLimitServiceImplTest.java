@@ -0,0 +1,119 @@
+package com.example.filemanager.service.impl;
+
+import com.example.filemanager.common.exception.BusinessException;
+import com.example.filemanager.common.result.ResultCode;
+import com.example.filemanager.config.ExecutorConfig;
+import com.example.filemanager.config.FileDownloadConfig;
+import com.example.filemanager.service.DownloadLimitService.DownloadPermit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 流式下载并发控制测试：默认配置下1000个慢速下载同时在下载线程池中写出且不排队，
+ * 超过客户端或全局上限时拒绝，许可在下载结束后归还
+ *
+ * @author system
+ * @since 2024-01-01
+ */
+class DownloadLimitServiceImplTest {
+
+    private static final int SLOW_DOWNLOADS = 1000;
+
+    private final FileDownloadConfig fileDownloadConfig = new FileDownloadConfig();
+
+    private DownloadLimitServiceImpl downloadLimitService;
+
+    private ThreadPoolTaskExecutor downloadTaskExecutor;
+
+    @BeforeEach
+    void setUp() {
+        downloadLimitService = new DownloadLimitServiceImpl();
+        ReflectionTestUtils.setField(downloadLimitService, "fileDownloadConfig", fileDownloadConfig);
+        downloadLimitService.init();
+        downloadTaskExecutor = new ExecutorConfig().downloadTaskExecutor(fileDownloadConfig);
+    }
+
+    @AfterEach
+    void tearDown() {
+        downloadTaskExecutor.shutdown();
+    }
+
+    @Test
+    void thousandSlowDownloadsStreamConcurrently() throws Exception {
+        CountDownLatch writing = new CountDownLatch(SLOW_DOWNLOADS);
+        CountDownLatch clientsDone = new CountDownLatch(1);
+        List<Future<?>> downloads = new ArrayList<>();
+        try {
+            for (int i = 0; i < SLOW_DOWNLOADS; i++) {
+                // 每个慢速客户端来自不同地址，写出阻塞到客户端读完为止
+                DownloadPermit permit = downloadLimitService.acquire(clientKey(i));
+                downloads.add(downloadTaskExecutor.submit(() -> {
+                    try (permit) {
+                        writing.countDown();
+                        clientsDone.await();
+                    }
+                    return null;
+                }));
+            }
+
+            assertTrue(writing.await(30, TimeUnit.SECONDS), "所有慢速下载都应同时开始写出，不在队列中等待");
+            assertEquals(SLOW_DOWNLOADS, downloadTaskExecutor.getActiveCount());
+
+            // 剩余容量仍可接纳新的下载
+            downloadLimitService.acquire("10.9.9.9").close();
+        } finally {
+            clientsDone.countDown();
+        }
+        for (Future<?> download : downloads) {
+            download.get(30, TimeUnit.SECONDS);
+        }
+
+        // 许可全部归还后可再次占满全局上限
+        List<DownloadPermit> permits = new ArrayList<>();
+        for (int i = 0; i < fileDownloadConfig.getMaxConcurrentStreams(); i++) {
+            permits.add(downloadLimitService.acquire(clientKey(i)));
+        }
+        permits.forEach(DownloadPermit::close);
+    }
+
+    @Test
+    void rejectsBeyondGlobalAndPerClientLimits() {
+        fileDownloadConfig.setMaxConcurrentStreams(3);
+        fileDownloadConfig.setMaxConcurrentStreamsPerClient(2);
+        downloadLimitService.init();
+
+        DownloadPermit first = downloadLimitService.acquire("10.0.0.1");
+        downloadLimitService.acquire("10.0.0.1");
+        BusinessException perClient = assertThrows(BusinessException.class,
+                () -> downloadLimitService.acquire("10.0.0.1"));
+        assertEquals(ResultCode.DOWNLOAD_TOO_MANY_REQUESTS.getCode(), perClient.getCode());
+
+        downloadLimitService.acquire("10.0.0.2");
+        BusinessException global = assertThrows(BusinessException.class,
+                () -> downloadLimitService.acquire("10.0.0.3"));
+        assertEquals(ResultCode.DOWNLOAD_SERVER_BUSY.getCode(), global.getCode());
+
+        // 重复关闭只归还一次
+        first.close();
+        first.close();
+        downloadLimitService.acquire("10.0.0.3");
+        assertThrows(BusinessException.class, () -> downloadLimitService.acquire("10.0.0.4"));
+    }
+
+    private static String clientKey(int i) {
+        return "10.0." + (i / 250) + "." + (i % 250);
+    }
+}
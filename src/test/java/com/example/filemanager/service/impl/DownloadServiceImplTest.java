@@ -0,0 +1,273 @@
+package com.example.filemanager.service.impl;
+
+import com.example.filemanager.config.FileDownloadConfig;
+import com.example.filemanager.dto.FileDownloadDescriptor;
+import com.example.filemanager.service.DownloadDescriptorService;
+import com.example.filemanager.service.DownloadLimitService;
+import com.example.filemanager.service.FileContentCacheService;
+import com.example.filemanager.service.FileService;
+import com.example.filemanager.service.GzipCompressionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 文件下载测试：Range 解析、416、If-Range（ETag 与日期）以及条件请求返回 304
+ *
+ * @author system
+ * @since 2024-01-01
+ */
+class DownloadServiceImplTest {
+
+    private static final String CONTENT = "0123456789abcdefghij";
+
+    private static final String MD5 = "0123456789abcdef0123456789abcdef";
+
+    private static final String ETAG = "\"" + MD5 + "\"";
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 1, 1, 12, 0, 0);
+
+    @TempDir
+    Path storageRoot;
+
+    private final FileService fileService = mock(FileService.class);
+
+    private final FileContentCacheService fileContentCacheService = mock(FileContentCacheService.class);
+
+    private final DownloadLimitService downloadLimitService = mock(DownloadLimitService.class);
+
+    private final FileDownloadConfig fileDownloadConfig = new FileDownloadConfig();
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/1/download");
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    private FileDownloadDescriptor descriptor;
+
+    private DownloadServiceImpl downloadService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path file = storageRoot.resolve("stored.txt");
+        Files.write(file, CONTENT.getBytes(StandardCharsets.UTF_8));
+
+        descriptor = new FileDownloadDescriptor();
+        descriptor.setId(1L);
+        descriptor.setOriginalName("报告.bin");
+        descriptor.setFilePath(file.toString());
+        descriptor.setFileSize((long) CONTENT.length());
+        descriptor.setFileType("bin");
+        descriptor.setMimeType("application/octet-stream");
+        descriptor.setMd5Hash(MD5);
+        descriptor.setCreatedAt(CREATED_AT);
+
+        fileDownloadConfig.setGzipEnabled(false);
+        when(downloadLimitService.acquire(anyString())).thenReturn(mock(DownloadLimitService.DownloadPermit.class));
+
+        downloadService = new DownloadServiceImpl();
+        ReflectionTestUtils.setField(downloadService, "downloadDescriptorService", mock(DownloadDescriptorService.class));
+        ReflectionTestUtils.setField(downloadService, "fileService", fileService);
+        ReflectionTestUtils.setField(downloadService, "fileDownloadConfig", fileDownloadConfig);
+        ReflectionTestUtils.setField(downloadService, "fileContentCacheService", fileContentCacheService);
+        ReflectionTestUtils.setField(downloadService, "downloadLimitService", downloadLimitService);
+        ReflectionTestUtils.setField(downloadService, "gzipCompressionService", mock(GzipCompressionService.class));
+    }
+
+    @Test
+    void fullDownloadWithoutRange() throws Exception {
+        assertEquals(CONTENT, download());
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT.length(), response.getContentLengthLong());
+        assertEquals(ETAG, response.getHeader(HttpHeaders.ETAG));
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        verify(fileService).updateDownloadCount(1L);
+    }
+
+    @Test
+    void singleRangeReturnsPartialContent() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+
+        assertEquals("2345", download());
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-5/20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(4, response.getContentLengthLong());
+        // 不从开头读取的区间不计入下载次数
+        verify(fileService, never()).updateDownloadCount(any());
+    }
+
+    @Test
+    void openAndSuffixRangesAreClampedToFileLength() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=-3");
+        assertEquals("hij", download());
+        assertEquals("bytes 17-19/20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+
+        MockHttpServletRequest openRequest = new MockHttpServletRequest("GET", "/files/1/download");
+        openRequest.addHeader(HttpHeaders.RANGE, "bytes=0-999");
+        MockHttpServletResponse openResponse = new MockHttpServletResponse();
+        assertEquals(CONTENT, write(downloadService.download(descriptor, openRequest, openResponse)));
+        assertEquals(206, openResponse.getStatus());
+        assertEquals("bytes 0-19/20", openResponse.getHeader(HttpHeaders.CONTENT_RANGE));
+        verify(fileService).updateDownloadCount(1L);
+    }
+
+    @Test
+    void multipleRangesReturnMultipartByteranges() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1,10-12");
+
+        String body = download();
+        assertEquals(206, response.getStatus());
+        String contentType = response.getContentType();
+        assertTrue(contentType.startsWith("multipart/byteranges; boundary="));
+        String boundary = contentType.substring(contentType.indexOf('=') + 1);
+        assertTrue(body.contains("Content-Range: bytes 0-1/20\r\n\r\n01\r\n--" + boundary));
+        assertTrue(body.contains("Content-Range: bytes 10-12/20\r\n\r\nabc\r\n--" + boundary + "--"));
+    }
+
+    @Test
+    void unsatisfiableRangeReturns416() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=20-");
+
+        assertNull(downloadService.download(descriptor, request, response));
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        verify(fileService, never()).updateDownloadCount(any());
+    }
+
+    @Test
+    void malformedRangeReturns416() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=abc");
+
+        assertNull(downloadService.download(descriptor, request, response));
+        assertEquals(416, response.getStatus());
+    }
+
+    @Test
+    void overlappingRangesLargerThanFileFallBackToFullContent() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-15,5-19");
+
+        assertEquals(CONTENT, download());
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void ifRangeWithCurrentETagHonoursRange() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, ETAG);
+
+        assertEquals("2345", download());
+        assertEquals(206, response.getStatus());
+    }
+
+    @Test
+    void ifRangeWithStaleOrWeakETagReturnsFullContent() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"another-version\"");
+        assertEquals(CONTENT, download());
+        assertEquals(200, response.getStatus());
+
+        // If-Range 只接受强校验，弱 ETag 即使值相同也返回完整内容
+        MockHttpServletRequest weakRequest = new MockHttpServletRequest("GET", "/files/1/download");
+        weakRequest.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        weakRequest.addHeader(HttpHeaders.IF_RANGE, "W/" + ETAG);
+        MockHttpServletResponse weakResponse = new MockHttpServletResponse();
+        assertEquals(CONTENT, write(downloadService.download(descriptor, weakRequest, weakResponse)));
+        assertEquals(200, weakResponse.getStatus());
+    }
+
+    @Test
+    void ifRangeWithDateComparesLastModifiedInSeconds() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, httpDate(CREATED_AT));
+        assertEquals("2345", download());
+        assertEquals(206, response.getStatus());
+
+        MockHttpServletRequest staleRequest = new MockHttpServletRequest("GET", "/files/1/download");
+        staleRequest.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        staleRequest.addHeader(HttpHeaders.IF_RANGE, httpDate(CREATED_AT.minusSeconds(1)));
+        MockHttpServletResponse staleResponse = new MockHttpServletResponse();
+        assertEquals(CONTENT, write(downloadService.download(descriptor, staleRequest, staleResponse)));
+        assertEquals(200, staleResponse.getStatus());
+    }
+
+    @Test
+    void matchingIfNoneMatchReturns304WithoutReadingFile() throws Exception {
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, ETAG);
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+
+        assertNull(downloadService.download(descriptor, request, response));
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        verify(fileContentCacheService, never()).getContent(any());
+        verify(fileService, never()).updateDownloadCount(any());
+    }
+
+    @Test
+    void ifModifiedSinceReturns304OnlyWhenUnchanged() throws Exception {
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, httpDate(CREATED_AT));
+        assertNull(downloadService.download(descriptor, request, response));
+        assertEquals(304, response.getStatus());
+
+        MockHttpServletRequest staleRequest = new MockHttpServletRequest("GET", "/files/1/download");
+        staleRequest.addHeader(HttpHeaders.IF_MODIFIED_SINCE, httpDate(CREATED_AT.minusHours(1)));
+        MockHttpServletResponse staleResponse = new MockHttpServletResponse();
+        assertEquals(CONTENT, write(downloadService.download(descriptor, staleRequest, staleResponse)));
+        assertEquals(200, staleResponse.getStatus());
+    }
+
+    @Test
+    void largeRangeIsHandedToSendfile() throws Exception {
+        fileDownloadConfig.setSendfileMinSize(4);
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=4-11");
+
+        assertNull(downloadService.download(descriptor, request, response));
+        assertEquals(206, response.getStatus());
+        assertEquals(descriptor.getFilePath(),
+                Path.of((String) request.getAttribute("org.apache.tomcat.sendfile.filename")).toString());
+        assertEquals(4L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(12L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        verify(downloadLimitService, never()).acquire(anyString());
+    }
+
+    private String download() throws Exception {
+        return write(downloadService.download(descriptor, request, response));
+    }
+
+    private static String write(StreamingResponseBody body) throws Exception {
+        assertNotNull(body);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        body.writeTo(outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String httpDate(LocalDateTime time) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME
+                .format(time.atZone(ZoneId.systemDefault()).withZoneSameInstant(ZoneOffset.UTC));
+    }
+}
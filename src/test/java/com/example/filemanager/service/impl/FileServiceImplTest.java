@@ -0,0 +1,255 @@
+package com.example.filemanager.service.impl;
+
+import com.example.filemanager.config.FileStorageConfig;
+import com.example.filemanager.dto.response.FileResponseDTO;
+import com.example.filemanager.entity.Directory;
+import com.example.filemanager.entity.FileBlob;
+import com.example.filemanager.entity.FileInfo;
+import com.example.filemanager.mapper.DirectoryMapper;
+import com.example.filemanager.mapper.FileBlobMapper;
+import com.example.filemanager.mapper.FileInfoMapper;
+import com.example.filemanager.service.GzipCompressionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 文件上传分阶段处理测试：写盘阶段不占用数据库连接，元数据提交失败时清理已写入的文件
+ *
+ * @author system
+ * @since 2024-01-01
+ */
+class FileServiceImplTest {
+
+    private static final int POOL_SIZE = 1;
+
+    private static final int SLOW_UPLOADS = 4;
+
+    @TempDir
+    Path uploadRoot;
+
+    private final FileInfoMapper fileInfoMapper = mock(FileInfoMapper.class);
+
+    private final DirectoryMapper directoryMapper = mock(DirectoryMapper.class);
+
+    private final FileBlobMapper fileBlobMapper = mock(FileBlobMapper.class);
+
+    private final Map<Long, FileBlob> blobs = new ConcurrentHashMap<>();
+
+    private final AtomicLong blobIds = new AtomicLong();
+
+    private final PooledTransactionManager transactionManager = new PooledTransactionManager(POOL_SIZE);
+
+    private final ExecutorService requestThreads = Executors.newFixedThreadPool(SLOW_UPLOADS);
+
+    private final ExecutorService metadataThread = Executors.newSingleThreadExecutor();
+
+    private FileServiceImpl fileService;
+
+    @BeforeEach
+    void setUp() {
+        FileStorageConfig fileStorageConfig = new FileStorageConfig();
+        fileStorageConfig.setUploadPath(uploadRoot.toString());
+        fileStorageConfig.setMaxFileSize(100 * 1024 * 1024L);
+
+        Directory directory = new Directory();
+        directory.setId(1L);
+        directory.setName("文档");
+        directory.setPath("/文档");
+        when(directoryMapper.selectById(1L)).thenReturn(directory);
+
+        when(fileBlobMapper.upsertReference(any(FileBlob.class))).thenAnswer(invocation -> {
+            FileBlob fileBlob = invocation.getArgument(0);
+            fileBlob.setId(blobIds.incrementAndGet());
+            blobs.put(fileBlob.getId(), fileBlob);
+            return 1;
+        });
+        when(fileBlobMapper.selectById(anyLong())).thenAnswer(invocation -> blobs.get(invocation.<Long>getArgument(0)));
+
+        fileService = new FileServiceImpl();
+        ReflectionTestUtils.setField(fileService, "fileInfoMapper", fileInfoMapper);
+        ReflectionTestUtils.setField(fileService, "directoryMapper", directoryMapper);
+        ReflectionTestUtils.setField(fileService, "fileBlobMapper", fileBlobMapper);
+        ReflectionTestUtils.setField(fileService, "fileStorageConfig", fileStorageConfig);
+        ReflectionTestUtils.setField(fileService, "transactionTemplate", new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(fileService, "gzipCompressionService", mock(GzipCompressionService.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        requestThreads.shutdownNow();
+        metadataThread.shutdownNow();
+    }
+
+    @Test
+    void slowUploadsDoNotHoldConnections() throws Exception {
+        CountDownLatch streaming = new CountDownLatch(SLOW_UPLOADS);
+        CountDownLatch clientsFinish = new CountDownLatch(1);
+
+        List<Future<FileResponseDTO>> uploads = new ArrayList<>();
+        for (int i = 0; i < SLOW_UPLOADS; i++) {
+            MultipartFile file = mockFile("slow-" + i + ".bin",
+                    new SlowInputStream(("content-" + i).getBytes(), streaming, clientsFinish));
+            uploads.add(requestThreads.submit(() -> fileService.uploadFile(file, 1L, null)));
+        }
+
+        // 所有上传都卡在读取请求体时，连接池仍可服务元数据读取（如 /directories/tree）
+        assertTrue(streaming.await(5, TimeUnit.SECONDS));
+        assertEquals(0, transactionManager.inUse());
+        FileInfo stored = new FileInfo();
+        stored.setId(7L);
+        when(fileInfoMapper.selectById(7L)).thenReturn(stored);
+        Future<FileInfo> metadataRead = metadataThread.submit(() -> new TransactionTemplate(transactionManager)
+                .execute(status -> fileInfoMapper.selectById(7L)));
+        assertEquals(7L, metadataRead.get(2, TimeUnit.SECONDS).getId());
+        for (Future<FileResponseDTO> upload : uploads) {
+            assertFalse(upload.isDone(), "元数据读取完成时上传仍应阻塞在读取请求体");
+        }
+
+        clientsFinish.countDown();
+        for (Future<FileResponseDTO> upload : uploads) {
+            assertNotNull(upload.get(5, TimeUnit.SECONDS));
+        }
+        verify(fileInfoMapper, times(SLOW_UPLOADS)).insert(any(FileInfo.class));
+        assertEquals(0, transactionManager.inUse());
+    }
+
+    @Test
+    void commitFailureRemovesMovedFile() throws Exception {
+        when(fileInfoMapper.insert(any(FileInfo.class))).thenThrow(new IllegalStateException("insert failed"));
+
+        MultipartFile file = mockFile("report.pdf", new ByteArrayInputStream("report".getBytes()));
+        assertThrows(IllegalStateException.class, () -> fileService.uploadFile(file, 1L, null));
+
+        try (Stream<Path> paths = Files.walk(uploadRoot)) {
+            assertTrue(paths.noneMatch(Files::isRegularFile), "存储目录和临时目录中不应残留文件");
+        }
+    }
+
+    private MultipartFile mockFile(String name, InputStream inputStream) throws IOException {
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.isEmpty()).thenReturn(false);
+        when(file.getSize()).thenReturn(1024L);
+        when(file.getOriginalFilename()).thenReturn(name);
+        when(file.getContentType()).thenReturn("application/octet-stream");
+        when(file.getInputStream()).thenReturn(inputStream);
+        return file;
+    }
+
+    /**
+     * 模拟慢速客户端：读到第一个字节前阻塞，直到测试放行
+     */
+    private static class SlowInputStream extends InputStream {
+        private final byte[] content;
+        private final CountDownLatch streaming;
+        private final CountDownLatch clientsFinish;
+        private int position;
+
+        SlowInputStream(byte[] content, CountDownLatch streaming, CountDownLatch clientsFinish) {
+            this.content = content;
+            this.streaming = streaming;
+            this.clientsFinish = clientsFinish;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position == 0) {
+                streaming.countDown();
+                try {
+                    if (!clientsFinish.await(10, TimeUnit.SECONDS)) {
+                        throw new IOException("client timed out");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            return position < content.length ? content[position++] & 0xFF : -1;
+        }
+    }
+
+    /**
+     * 以信号量模拟固定大小连接池的事务管理器，连接耗尽时开启事务失败
+     */
+    private static class PooledTransactionManager extends AbstractPlatformTransactionManager {
+        private final int poolSize;
+        private final Semaphore connections;
+
+        PooledTransactionManager(int poolSize) {
+            this.poolSize = poolSize;
+            this.connections = new Semaphore(poolSize);
+        }
+
+        int inUse() {
+            return poolSize - connections.availablePermits();
+        }
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            try {
+                if (!connections.tryAcquire(1, TimeUnit.SECONDS)) {
+                    throw new CannotCreateTransactionException("connection pool exhausted");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CannotCreateTransactionException("interrupted", e);
+            }
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doCleanupAfterCompletion(Object transaction) {
+            connections.release();
+        }
+    }
+}
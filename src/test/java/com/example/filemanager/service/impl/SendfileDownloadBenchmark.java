@@ -0,0 +1,218 @@
+package com.example.filemanager.service.impl;
+
+import com.example.filemanager.config.FileDownloadConfig;
+import com.example.filemanager.dto.FileDownloadDescriptor;
+import com.example.filemanager.service.DownloadDescriptorService;
+import com.example.filemanager.service.DownloadLimitService;
+import com.example.filemanager.service.FileContentCacheService;
+import com.example.filemanager.service.FileService;
+import com.example.filemanager.service.GzipCompressionService;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * sendfile 零拷贝下载与缓冲流式下载的吞吐量、CPU 对比基准
+ * <p>
+ * 启动一个内嵌 Tomcat（NIO 连接器，与生产环境相同），由 {@link DownloadServiceImpl} 处理下载请求，
+ * 分别在开启、关闭 sendfile 时用本地 HTTP 客户端并发下载同一个大文件，统计吞吐量和进程 CPU 时间。
+ * 客户端与服务端在同一进程内，CPU 时间包含客户端读取的开销，两种模式的差值即服务端节省的部分。
+ * <p>
+ * 类名不以 Test 结尾，不随 {@code mvn test} 执行，需要单独运行：
+ * <pre>
+ * mvn test -Dtest=SendfileDownloadBenchmark -Dsurefire.failIfNoSpecifiedTests=false \
+ *     -Dbenchmark.file-size-mb=256 -Dbenchmark.concurrency=4 -Dbenchmark.rounds=5
+ * </pre>
+ *
+ * @author system
+ * @since 2024-01-01
+ */
+class SendfileDownloadBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(SendfileDownloadBenchmark.class);
+
+    private static final int FILE_SIZE_MB = Integer.getInteger("benchmark.file-size-mb", 256);
+
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 4);
+
+    private static final int ROUNDS = Integer.getInteger("benchmark.rounds", 5);
+
+    @TempDir
+    Path workDir;
+
+    private final FileDownloadConfig fileDownloadConfig = new FileDownloadConfig();
+
+    private FileDownloadDescriptor descriptor;
+
+    private Tomcat tomcat;
+
+    private int port;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path file = workDir.resolve("payload.bin");
+        byte[] block = new byte[1024 * 1024];
+        new Random(42).nextBytes(block);
+        try (OutputStream outputStream = Files.newOutputStream(file)) {
+            for (int i = 0; i < FILE_SIZE_MB; i++) {
+                outputStream.write(block);
+            }
+        }
+
+        descriptor = new FileDownloadDescriptor();
+        descriptor.setId(1L);
+        descriptor.setOriginalName("payload.bin");
+        descriptor.setFilePath(file.toString());
+        descriptor.setFileSize(Files.size(file));
+        descriptor.setFileType("bin");
+        descriptor.setMimeType("application/octet-stream");
+
+        fileDownloadConfig.setGzipEnabled(false);
+        DownloadLimitService downloadLimitService = mock(DownloadLimitService.class);
+        when(downloadLimitService.acquire(anyString())).thenReturn(mock(DownloadLimitService.DownloadPermit.class));
+
+        DownloadServiceImpl downloadService = new DownloadServiceImpl();
+        ReflectionTestUtils.setField(downloadService, "downloadDescriptorService", mock(DownloadDescriptorService.class));
+        ReflectionTestUtils.setField(downloadService, "fileService", mock(FileService.class));
+        ReflectionTestUtils.setField(downloadService, "fileDownloadConfig", fileDownloadConfig);
+        ReflectionTestUtils.setField(downloadService, "fileContentCacheService", mock(FileContentCacheService.class));
+        ReflectionTestUtils.setField(downloadService, "downloadLimitService", downloadLimitService);
+        ReflectionTestUtils.setField(downloadService, "gzipCompressionService", mock(GzipCompressionService.class));
+
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(workDir.resolve("tomcat").toString());
+        Connector connector = new Connector("org.apache.coyote.http11.Http11NioProtocol");
+        connector.setPort(0);
+        tomcat.setConnector(connector);
+        Context context = tomcat.addContext("", workDir.toString());
+        Tomcat.addServlet(context, "download", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                // 流式响应体在当前线程同步写出，与下载线程池中的写出逻辑相同
+                StreamingResponseBody body = downloadService.download(descriptor, request, response);
+                if (body != null) {
+                    body.writeTo(response.getOutputStream());
+                }
+            }
+        });
+        context.addServletMappingDecoded("/download", "download");
+        tomcat.start();
+        port = connector.getLocalPort();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        tomcat.stop();
+        tomcat.destroy();
+    }
+
+    @Test
+    void compareSendfileWithBufferedStreaming() throws Exception {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        ExecutorService clients = Executors.newFixedThreadPool(CONCURRENCY);
+        try {
+            // 预热一轮，使页缓存、JIT 与连接池进入稳定状态
+            runRound(client, clients, true);
+            runRound(client, clients, false);
+
+            long[] sendfile = new long[2];
+            long[] streaming = new long[2];
+            for (int i = 0; i < ROUNDS; i++) {
+                accumulate(sendfile, runRound(client, clients, true));
+                accumulate(streaming, runRound(client, clients, false));
+            }
+
+            long totalMb = (long) FILE_SIZE_MB * CONCURRENCY * ROUNDS;
+            logger.info("下载基准：文件 {}MB，并发 {}，轮数 {}，CPU 核数 {}", FILE_SIZE_MB, CONCURRENCY, ROUNDS,
+                    Runtime.getRuntime().availableProcessors());
+            report("sendfile", sendfile, totalMb);
+            report("缓冲流式", streaming, totalMb);
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    /**
+     * 并发下载一轮
+     *
+     * @return [耗时纳秒, 进程CPU纳秒]
+     */
+    private long[] runRound(HttpClient client, ExecutorService clients, boolean sendfileEnabled) throws Exception {
+        fileDownloadConfig.setSendfileEnabled(sendfileEnabled);
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/download")).build();
+
+        long cpuStart = processCpuTime();
+        long start = System.nanoTime();
+        List<Future<Long>> downloads = new ArrayList<>(CONCURRENCY);
+        for (int i = 0; i < CONCURRENCY; i++) {
+            downloads.add(clients.submit(() -> {
+                HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                long received = 0;
+                byte[] buffer = new byte[64 * 1024];
+                try (InputStream inputStream = response.body()) {
+                    int bytesRead;
+                    while ((bytesRead = inputStream.read(buffer)) != -1) {
+                        received += bytesRead;
+                    }
+                }
+                return received;
+            }));
+        }
+        for (Future<Long> download : downloads) {
+            assertEquals((long) descriptor.getFileSize(), download.get());
+        }
+        return new long[]{System.nanoTime() - start, processCpuTime() - cpuStart};
+    }
+
+    private static void accumulate(long[] total, long[] round) {
+        total[0] += round[0];
+        total[1] += round[1];
+    }
+
+    private static void report(String mode, long[] total, long totalMb) {
+        double seconds = total[0] / 1e9;
+        double cpuSeconds = total[1] / 1e9;
+        logger.info("{}：吞吐量 {} MB/s，进程CPU {} 秒，每GB CPU {} 毫秒", mode,
+                String.format("%.1f", totalMb / seconds),
+                String.format("%.2f", cpuSeconds),
+                String.format("%.0f", cpuSeconds * 1000 * 1024 / totalMb));
+    }
+
+    private static long processCpuTime() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+                .getProcessCpuTime();
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.filemanager.service.impl;
+
+import com.example.filemanager.common.exception.BusinessException;
+import com.example.filemanager.common.result.ResultCode;
+import com.example.filemanager.config.FileDownloadConfig;
+import com.example.filemanager.config.FileStorageConfig;
+import com.example.filemanager.dto.FileDownloadDescriptor;
+import com.example.filemanager.dto.response.SignedDownloadUrlDTO;
+import com.example.filemanager.service.DownloadDescriptorService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 签名下载链接测试：签发后可校验还原文件信息，篡改、换密钥签发、过期和格式错误的令牌均被拒绝
+ *
+ * @author system
+ * @since 2024-01-01
+ */
+class SignedUrlServiceImplTest {
+
+    private static final String SECRET = "test-signing-secret";
+
+    @TempDir
+    Path uploadRoot;
+
+    private final DownloadDescriptorService downloadDescriptorService = mock(DownloadDescriptorService.class);
+
+    private final FileDownloadConfig fileDownloadConfig = new FileDownloadConfig();
+
+    private FileDownloadDescriptor descriptor;
+
+    private SignedUrlServiceImpl signedUrlService;
+
+    @BeforeEach
+    void setUp() {
+        descriptor = new FileDownloadDescriptor();
+        descriptor.setId(7L);
+        descriptor.setOriginalName("季度报告.pdf");
+        descriptor.setFilePath(uploadRoot.resolve("2024/01/01/abc.pdf").toString());
+        descriptor.setFileSize(1024L);
+        descriptor.setFileType("文档");
+        descriptor.setMimeType("application/pdf");
+        descriptor.setMd5Hash("0123456789abcdef0123456789abcdef");
+        descriptor.setCreatedAt(LocalDateTime.of(2024, 1, 1, 12, 0, 0));
+        when(downloadDescriptorService.getDescriptor(7L)).thenReturn(descriptor);
+
+        fileDownloadConfig.setSigningSecret(SECRET);
+        fileDownloadConfig.setSignedUrlBase("https://files.example.com/api/v1");
+        signedUrlService = newService(fileDownloadConfig);
+    }
+
+    @Test
+    void issuedTokenVerifiesWithoutDatabase() {
+        SignedDownloadUrlDTO signedUrl = signedUrlService.createDownloadUrl(7L);
+        assertTrue(signedUrl.getUrl().startsWith("https://files.example.com/api/v1/files/download/signed?token="));
+
+        FileDownloadDescriptor verified = signedUrlService.verify(tokenOf(signedUrl));
+
+        assertEquals(7L, verified.getId());
+        assertEquals(descriptor.getFilePath(), verified.getFilePath());
+        assertEquals(1024L, verified.getFileSize());
+        assertEquals("季度报告.pdf", verified.getOriginalName());
+        assertEquals("application/pdf", verified.getMimeType());
+        assertEquals(descriptor.getMd5Hash(), verified.getMd5Hash());
+        assertEquals(descriptor.getCreatedAt(), verified.getCreatedAt());
+    }
+
+    @Test
+    void tokenDoesNotExposeServerDirectories() {
+        String token = tokenOf(signedUrlService.createDownloadUrl(7L));
+        String payload = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))),
+                StandardCharsets.UTF_8);
+
+        assertTrue(payload.contains("\"path\":\"2024/01/01/abc.pdf\""));
+        assertFalse(payload.contains(uploadRoot.toString()));
+    }
+
+    @Test
+    void tamperedPayloadIsRejected() {
+        String token = tokenOf(signedUrlService.createDownloadUrl(7L));
+        String payload = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))),
+                StandardCharsets.UTF_8);
+        String forgedPayload = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                payload.replace("2024/01/01/abc.pdf", "../../etc/passwd").getBytes(StandardCharsets.UTF_8));
+
+        assertInvalid(forgedPayload + token.substring(token.indexOf('.')));
+    }
+
+    @Test
+    void tamperedSignatureIsRejected() {
+        String token = tokenOf(signedUrlService.createDownloadUrl(7L));
+        // 修改签名的第一个字符：最后一个字符含有不参与解码的填充位，修改后可能解码出相同的签名
+        int first = token.indexOf('.') + 1;
+        char replacement = token.charAt(first) == 'A' ? 'B' : 'A';
+
+        assertInvalid(token.substring(0, first) + replacement + token.substring(first + 1));
+        assertInvalid(token.substring(0, token.indexOf('.') + 1));
+    }
+
+    @Test
+    void tokenSignedWithAnotherSecretIsRejected() {
+        FileDownloadConfig otherConfig = new FileDownloadConfig();
+        otherConfig.setSigningSecret("another-secret");
+        otherConfig.setSignedUrlBase(fileDownloadConfig.getSignedUrlBase());
+        String token = tokenOf(newService(otherConfig).createDownloadUrl(7L));
+
+        assertInvalid(token);
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        fileDownloadConfig.setSignedUrlTtl(-1);
+        String token = tokenOf(signedUrlService.createDownloadUrl(7L));
+
+        BusinessException expired = assertThrows(BusinessException.class, () -> signedUrlService.verify(token));
+        assertEquals(ResultCode.DOWNLOAD_URL_EXPIRED.getCode(), expired.getCode());
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        assertInvalid(null);
+        assertInvalid("");
+        assertInvalid("no-separator");
+        assertInvalid(".signature-only");
+        assertInvalid("payload.not*base64");
+        // 签名正确但内容不是 JSON
+        String notJson = Base64.getUrlEncoder().withoutPadding().encodeToString("not json".getBytes());
+        String token = tokenOf(signedUrlService.createDownloadUrl(7L));
+        assertInvalid(notJson + token.substring(token.indexOf('.')));
+    }
+
+    private SignedUrlServiceImpl newService(FileDownloadConfig config) {
+        FileStorageConfig fileStorageConfig = new FileStorageConfig();
+        fileStorageConfig.setUploadPath(uploadRoot.toString());
+
+        SignedUrlServiceImpl service = new SignedUrlServiceImpl();
+        ReflectionTestUtils.setField(service, "downloadDescriptorService", downloadDescriptorService);
+        ReflectionTestUtils.setField(service, "fileDownloadConfig", config);
+        ReflectionTestUtils.setField(service, "fileStorageConfig", fileStorageConfig);
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+        service.init();
+        return service;
+    }
+
+    private void assertInvalid(String token) {
+        BusinessException invalid = assertThrows(BusinessException.class, () -> signedUrlService.verify(token));
+        assertEquals(ResultCode.DOWNLOAD_URL_INVALID.getCode(), invalid.getCode());
+    }
+
+    private static String tokenOf(SignedDownloadUrlDTO signedUrl) {
+        return UriComponentsBuilder.fromUriString(signedUrl.getUrl()).build().getQueryParams().getFirst("token");
+    }
+}
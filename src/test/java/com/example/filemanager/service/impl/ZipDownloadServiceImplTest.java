@@ -0,0 +1,204 @@
+package com.example.filemanager.service.impl;
+
+import com.example.filemanager.config.FileDownloadConfig;
+import com.example.filemanager.entity.Directory;
+import com.example.filemanager.entity.FileInfo;
+import com.example.filemanager.mapper.DirectoryMapper;
+import com.example.filemanager.mapper.FileInfoMapper;
+import com.example.filemanager.service.DownloadLimitService;
+import com.example.filemanager.service.FileService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 打包下载测试：压缩包内条目名称去重与清理
+ *
+ * @author system
+ * @since 2024-01-01
+ */
+class ZipDownloadServiceImplTest {
+
+    @TempDir
+    Path storageRoot;
+
+    private final DirectoryMapper directoryMapper = mock(DirectoryMapper.class);
+
+    private final FileInfoMapper fileInfoMapper = mock(FileInfoMapper.class);
+
+    private final FileService fileService = mock(FileService.class);
+
+    private final DownloadLimitService downloadLimitService = mock(DownloadLimitService.class);
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/zip");
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    private ZipDownloadServiceImpl zipDownloadService;
+
+    @BeforeEach
+    void setUp() {
+        when(downloadLimitService.acquire(anyString())).thenReturn(mock(DownloadLimitService.DownloadPermit.class));
+
+        zipDownloadService = new ZipDownloadServiceImpl();
+        ReflectionTestUtils.setField(zipDownloadService, "directoryMapper", directoryMapper);
+        ReflectionTestUtils.setField(zipDownloadService, "fileInfoMapper", fileInfoMapper);
+        ReflectionTestUtils.setField(zipDownloadService, "fileService", fileService);
+        ReflectionTestUtils.setField(zipDownloadService, "fileDownloadConfig", new FileDownloadConfig());
+        ReflectionTestUtils.setField(zipDownloadService, "downloadLimitService", downloadLimitService);
+    }
+
+    @Test
+    void duplicateNamesInSelectionGetNumberedSuffixes() throws Exception {
+        FileInfo first = file(1L, "报告.pdf", 10L);
+        FileInfo second = file(2L, "报告.pdf", 10L);
+        FileInfo numbered = file(3L, "报告 (1).pdf", 10L);
+        FileInfo upperCase = file(4L, "报告.PDF", 10L);
+        FileInfo noExtension = file(5L, "README", 10L);
+        FileInfo noExtensionCopy = file(6L, "readme", 10L);
+        when(fileInfoMapper.selectBatchIds(anyList()))
+                .thenReturn(List.of(first, second, numbered, upperCase, noExtension, noExtensionCopy));
+
+        Map<String, String> entries = unzip(zipDownloadService.downloadFiles(
+                List.of(1L, 2L, 3L, 4L, 5L, 6L, 1L), "资料", request, response));
+
+        // 按请求顺序写入，重复的ID只写入一次；仅大小写不同的名称也视为重名
+        assertEquals(List.of("报告.pdf", "报告 (1).pdf", "报告 (1) (1).pdf", "报告 (2).PDF", "README", "readme (1)"),
+                List.copyOf(entries.keySet()));
+        assertEquals("content-2", entries.get("报告 (1).pdf"));
+        assertEquals("content-3", entries.get("报告 (1) (1).pdf"));
+        assertEquals("attachment; filename*=UTF-8''%E8%B5%84%E6%96%99.zip",
+                response.getHeader("Content-Disposition"));
+        verify(fileService, times(6)).updateDownloadCount(anyLong());
+    }
+
+    @Test
+    void directoryEntriesFollowSubtreeAndAvoidClashes() throws Exception {
+        Directory root = directory(10L, 1L, "文档", "/文档");
+        Directory child = directory(11L, 10L, "报告", "/文档/报告");
+        Directory grandChild = directory(12L, 11L, "2024", "/文档/报告/2024");
+        when(directoryMapper.selectById(10L)).thenReturn(root);
+        when(directoryMapper.selectSubtree("/文档")).thenReturn(List.of(root, child, grandChild));
+
+        // 与子目录同名的文件、包含路径分隔符和相对路径的名称
+        FileInfo clashesWithDirectory = file(1L, "报告", 10L);
+        FileInfo withSeparator = file(2L, "../../etc/passwd", 11L);
+        FileInfo dotDot = file(3L, "..", 12L);
+        FileInfo nested = file(4L, "summary.txt", 12L);
+        FileInfo nestedCopy = file(5L, "Summary.txt", 12L);
+        when(fileInfoMapper.selectByDirectoryIds(anyList()))
+                .thenReturn(List.of(clashesWithDirectory, withSeparator, dotDot, nested, nestedCopy));
+
+        Map<String, String> entries = unzip(zipDownloadService.downloadDirectory(10L, request, response));
+
+        assertEquals(List.of(
+                "文档/", "文档/报告/", "文档/报告/2024/",
+                "文档/报告 (1)",
+                "文档/报告/.._.._etc_passwd",
+                "文档/报告/2024/_",
+                "文档/报告/2024/summary.txt",
+                "文档/报告/2024/Summary (1).txt"), List.copyOf(entries.keySet()));
+        assertEquals("content-1", entries.get("文档/报告 (1)"));
+    }
+
+    @Test
+    void siblingDirectoriesWithSameSanitizedNameGetNumberedSuffixes() throws Exception {
+        Directory root = directory(10L, 1L, "文档", "/文档");
+        Directory backslash = directory(11L, 10L, "a\\b", "/文档/a\\b");
+        Directory underscore = directory(12L, 10L, "a_b", "/文档/a_b");
+        Directory upperCase = directory(13L, 10L, "A_B", "/文档/A_B");
+        Directory nested = directory(14L, 12L, "2024", "/文档/a_b/2024");
+        when(directoryMapper.selectById(10L)).thenReturn(root);
+        when(directoryMapper.selectSubtree("/文档")).thenReturn(List.of(root, upperCase, backslash, underscore, nested));
+
+        FileInfo inBackslash = file(1L, "x.txt", 11L);
+        FileInfo inUnderscore = file(2L, "x.txt", 12L);
+        FileInfo inNested = file(3L, "y.txt", 14L);
+        when(fileInfoMapper.selectByDirectoryIds(anyList())).thenReturn(List.of(inBackslash, inUnderscore, inNested));
+
+        Map<String, String> entries = unzip(zipDownloadService.downloadDirectory(10L, request, response));
+
+        // 条目按子树顺序写出，清理后同名或仅大小写不同的同级目录追加序号，子目录跟随父目录的条目名称
+        assertEquals(List.of(
+                "文档/", "文档/A_B/", "文档/a_b (1)/", "文档/a_b (2)/", "文档/a_b (2)/2024/",
+                "文档/a_b (1)/x.txt",
+                "文档/a_b (2)/x.txt",
+                "文档/a_b (2)/2024/y.txt"), List.copyOf(entries.keySet()));
+        assertEquals("content-2", entries.get("文档/a_b (2)/x.txt"));
+    }
+
+    @Test
+    void missingPhysicalFileIsSkipped() throws Exception {
+        FileInfo present = file(1L, "a.txt", 10L);
+        FileInfo missing = file(2L, "b.txt", 10L);
+        Files.delete(Path.of(missing.getFilePath()));
+        when(fileInfoMapper.selectBatchIds(anyList())).thenReturn(List.of(present, missing));
+
+        Map<String, String> entries = unzip(zipDownloadService.downloadFiles(List.of(1L, 2L), null, request, response));
+
+        assertEquals(List.of("a.txt"), List.copyOf(entries.keySet()));
+        verify(fileService, times(1)).updateDownloadCount(1L);
+    }
+
+    private FileInfo file(Long id, String originalName, Long directoryId) throws Exception {
+        Path path = storageRoot.resolve("stored-" + id);
+        Files.write(path, ("content-" + id).getBytes(StandardCharsets.UTF_8));
+        FileInfo fileInfo = new FileInfo();
+        fileInfo.setId(id);
+        fileInfo.setOriginalName(originalName);
+        fileInfo.setFilePath(path.toString());
+        fileInfo.setDirectoryId(directoryId);
+        fileInfo.setFileType("文档");
+        return fileInfo;
+    }
+
+    private static Directory directory(Long id, Long parentId, String name, String path) {
+        Directory directory = new Directory();
+        directory.setId(id);
+        directory.setParentId(parentId);
+        directory.setName(name);
+        directory.setPath(path);
+        return directory;
+    }
+
+    /**
+     * 写出压缩包并按写入顺序读取条目名称和内容，目录条目内容为空字符串
+     */
+    private static Map<String, String> unzip(StreamingResponseBody body) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        body.writeTo(outputStream);
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream zipInputStream = new ZipInputStream(
+                new ByteArrayInputStream(outputStream.toByteArray()), StandardCharsets.UTF_8)) {
+            ZipEntry entry;
+            while ((entry = zipInputStream.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(zipInputStream.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+}